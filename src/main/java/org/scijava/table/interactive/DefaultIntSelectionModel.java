@@ -0,0 +1,171 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.table.interactive;
+
+import org.scijava.listeners.Listeners;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link IntSelectionModel} storing the selected rows in a {@link BitSet}.
+ */
+public class DefaultIntSelectionModel implements IntSelectionModel
+{
+	private final Listeners.SynchronizedList< SelectionListener > listeners = new Listeners.SynchronizedList<>();
+	private final SelectionEventDispatcher dispatcher = new SelectionEventDispatcher( listeners );
+	private final BitSet selected = new BitSet();
+	private int focused = -1;
+
+	@Override
+	public synchronized boolean isSelected( int row )
+	{
+		return row >= 0 && selected.get( row );
+	}
+
+	@Override
+	public boolean isSelected( Integer row )
+	{
+		return row != null && isSelected( row.intValue() );
+	}
+
+	@Override
+	public synchronized void setSelected( int row, boolean select )
+	{
+		if ( row < 0 || selected.get( row ) == select ) return;
+		selected.set( row, select );
+		dispatcher.selectionChanged();
+	}
+
+	@Override
+	public void setSelected( Integer row, boolean select )
+	{
+		if ( row != null ) setSelected( row.intValue(), select );
+	}
+
+	@Override
+	public synchronized boolean setSelected( BitSet rows, boolean select )
+	{
+		final int before = selected.cardinality();
+		if ( select ) selected.or( rows );
+		else selected.andNot( rows );
+		final boolean changed = selected.cardinality() != before;
+		if ( changed ) dispatcher.selectionChanged();
+		return changed;
+	}
+
+	@Override
+	public boolean setSelected( Collection< Integer > rows, boolean select )
+	{
+		final BitSet bits = new BitSet();
+		for ( Integer row : rows )
+			if ( row != null && row >= 0 ) bits.set( row );
+		return setSelected( bits, select );
+	}
+
+	@Override
+	public synchronized void toggle( Integer row )
+	{
+		if ( row != null ) setSelected( row.intValue(), !isSelected( row.intValue() ) );
+	}
+
+	@Override
+	public synchronized void focus( Integer row )
+	{
+		focused = row == null ? -1 : row;
+		dispatcher.focusChanged();
+	}
+
+	@Override
+	public synchronized boolean isFocused( Integer row )
+	{
+		return row != null && focused >= 0 && focused == row;
+	}
+
+	@Override
+	public synchronized boolean clearSelection()
+	{
+		if ( selected.isEmpty() ) return false;
+		selected.clear();
+		dispatcher.selectionChanged();
+		return true;
+	}
+
+	@Override
+	public synchronized BitSet getSelectedRows()
+	{
+		return ( BitSet ) selected.clone();
+	}
+
+	@Override
+	public synchronized Set< Integer > getSelected()
+	{
+		final Set< Integer > res = new HashSet<>();
+		selected.stream().forEach( res::add );
+		return res;
+	}
+
+	@Override
+	public synchronized int getFocusedRow()
+	{
+		return focused;
+	}
+
+	@Override
+	public synchronized Integer getFocused()
+	{
+		return focused < 0 ? null : focused;
+	}
+
+	@Override
+	public synchronized boolean isEmpty()
+	{
+		return selected.isEmpty();
+	}
+
+	@Override
+	public Listeners< SelectionListener > listeners()
+	{
+		return listeners;
+	}
+
+	@Override
+	public void resumeListeners()
+	{
+		dispatcher.resume();
+	}
+
+	@Override
+	public void pauseListeners()
+	{
+		dispatcher.pause();
+	}
+}
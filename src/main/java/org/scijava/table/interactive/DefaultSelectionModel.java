@@ -37,17 +37,19 @@ import java.util.Set;
 public class DefaultSelectionModel< T > implements SelectionModel< T >
 {
 	private final Listeners.SynchronizedList<SelectionListener> listeners;
+	private final SelectionEventDispatcher dispatcher;
 	private final Set< T > selected;
 	private T focusObject;
 
 	public DefaultSelectionModel()
 	{
 		listeners = new Listeners.SynchronizedList<>(  );
+		dispatcher = new SelectionEventDispatcher( listeners );
 		selected = new HashSet<>();
 	}
 
 	@Override
-	public boolean isSelected( T object )
+	public synchronized boolean isSelected( T object )
 	{
 		return selected.contains( object );
 	}
@@ -58,102 +60,67 @@ public class DefaultSelectionModel< T > implements SelectionModel< T >
 		setSelected( object, select, true );
 	}
 
-	public void setSelected( T object, boolean select, boolean notify )
+	public synchronized void setSelected( T object, boolean select, boolean notify )
 	{
-		if ( select )
-			add( object, notify );
-		else
-			remove( object, notify );
-	}
-
-	private void remove( T object, boolean notify )
-	{
-		if ( selected.contains( object ) )
-		{
-			selected.remove( object );
-			if ( notify )
-				notifySelectionListeners();
-			notifySelectionListeners();
-		}
-	}
-
-	private void add( T object, boolean notify )
-	{
-		if ( ! selected.contains( object ) )
-		{
-			selected.add( object );
-			if ( notify )
-				notifySelectionListeners();
-		}
-	}
-
-	private void notifySelectionListeners()
-	{
-		for ( SelectionListener listener : listeners.list )
-			new Thread(listener::selectionChanged).start();
+		final boolean changed = select ? selected.add( object ) : selected.remove( object );
+		if ( changed && notify )
+			dispatcher.selectionChanged();
 	}
 
 	@Override
-	public void toggle( T object )
+	public synchronized void toggle( T object )
 	{
-		if ( selected.contains( object ) )
-			remove( object, true );
-		else
-			add( object, true );
+		setSelected( object, !selected.contains( object ) );
 	}
 
 	@Override
-	public void focus( T object )
+	public synchronized void focus( T object )
 	{
 		focusObject = object;
-
-		for ( SelectionListener listener : listeners.list )
-			new Thread(listener::focusChanged).start();
+		dispatcher.focusChanged();
 	}
 
 	@Override
-	public boolean isFocused( T object )
+	public synchronized boolean isFocused( T object )
 	{
 		return focusObject != null && focusObject.equals(object);
 	}
 
 	@Override
-	public boolean setSelected( Collection< T > objects, boolean select )
+	public synchronized boolean setSelected( Collection< T > objects, boolean select )
 	{
-		for( T object : objects )
-			setSelected( object, select, false );
-
-		notifySelectionListeners();
-
-		return true;
+		final boolean changed = select ? selected.addAll( objects ) : selected.removeAll( objects );
+		if ( changed )
+			dispatcher.selectionChanged();
+		return changed;
 	}
 
 	@Override
-	public boolean clearSelection()
+	public synchronized boolean clearSelection()
 	{
 		if ( selected.size() == 0 )
 			return false;
 		else
 		{
 			selected.clear();
-			notifySelectionListeners();
+			dispatcher.selectionChanged();
 			return true;
 		}
 	}
 
 	@Override
-	public Set< T > getSelected()
+	public synchronized Set< T > getSelected()
 	{
-		return selected;
+		return new HashSet<>( selected );
 	}
 
 	@Override
-	public T getFocused() {
+	public synchronized T getFocused() {
 		return focusObject;
 	}
 
 	@Override
-	public boolean isEmpty()
+	public synchronized boolean isEmpty()
 	{
 		return selected.isEmpty();
 	}
@@ -167,13 +134,13 @@ public class DefaultSelectionModel< T > implements SelectionModel< T >
 	@Override
 	public void resumeListeners()
 	{
-
+		dispatcher.resume();
 	}
 
 	@Override
 	public void pauseListeners()
 	{
-
+		dispatcher.pause();
 	}
 
 }
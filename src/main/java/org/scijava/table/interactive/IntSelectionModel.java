@@ -0,0 +1,56 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.table.interactive;
+
+import java.util.BitSet;
+
+/**
+ * A {@link SelectionModel} of non-negative int rows with primitive access to the selection.
+ */
+public interface IntSelectionModel extends SelectionModel< Integer >
+{
+	boolean isSelected( int row );
+
+	void setSelected( int row, boolean select );
+
+	/**
+	 * @return {@code true} if the selection was changed by this call.
+	 */
+	boolean setSelected( BitSet rows, boolean select );
+
+	/**
+	 * @return a <b>new</b> {@link BitSet} containing all selected rows.
+	 */
+	BitSet getSelectedRows();
+
+	/**
+	 * @return the focused row or -1 if no row is focused.
+	 */
+	int getFocusedRow();
+}
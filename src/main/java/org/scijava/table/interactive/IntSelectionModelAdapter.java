@@ -0,0 +1,256 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.table.interactive;
+
+import org.scijava.listeners.Listeners;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Exposes a {@link SelectionModel} of objects as {@link IntSelectionModel} of rows.
+ * Rows are mapped to objects through an array, objects to rows through an open addressing hash table with int values,
+ * such that bulk operations only touch the changed rows and nothing is boxed.
+ */
+public class IntSelectionModelAdapter< L > implements IntSelectionModel
+{
+	private final SelectionModel< L > selection;
+	private final ForwardedListeners.SynchronizedList< SelectionListener > listeners;
+	private volatile Index index;
+
+	private static class Index
+	{
+		final Object[] objects;
+		final Object[] keys;
+		final int[] rows;
+		final int mask;
+
+		Index( final List< ? > objects )
+		{
+			this.objects = objects.toArray();
+			int capacity = 16;
+			while ( capacity < this.objects.length * 2 ) capacity <<= 1;
+			keys = new Object[ capacity ];
+			rows = new int[ capacity ];
+			mask = capacity - 1;
+			for ( int row = 0; row < this.objects.length; row++ )
+			{
+				int slot = slot( this.objects[ row ] );
+				while ( keys[ slot ] != null ) slot = ( slot + 1 ) & mask;
+				keys[ slot ] = this.objects[ row ];
+				rows[ slot ] = row;
+			}
+		}
+
+		int slot( final Object object )
+		{
+			final int hash = object.hashCode() * 0x9E3779B9;
+			return ( hash ^ ( hash >>> 16 ) ) & mask;
+		}
+
+		int row( final Object object )
+		{
+			if ( object == null ) return -1;
+			for ( int slot = slot( object ); keys[ slot ] != null; slot = ( slot + 1 ) & mask )
+				if ( keys[ slot ].equals( object ) ) return rows[ slot ];
+			return -1;
+		}
+	}
+
+	public IntSelectionModelAdapter( final SelectionModel< L > selection, final List< L > rowObjects )
+	{
+		this.selection = selection;
+		this.listeners = new ForwardedListeners.SynchronizedList<>( selection.listeners() );
+		setRows( rowObjects );
+	}
+
+	/**
+	 * Replaces the objects of all rows, e.g. after sorting or reloading the table.
+	 */
+	public void setRows( final List< L > rowObjects )
+	{
+		index = new Index( rowObjects );
+	}
+
+	public int getRowCount()
+	{
+		return index.objects.length;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public L getObject( final int row )
+	{
+		final Object[] objects = index.objects;
+		return row >= 0 && row < objects.length ? ( L ) objects[ row ] : null;
+	}
+
+	/**
+	 * @return the row of the object or -1 if the object has no row
+	 */
+	public int getRow( final L object )
+	{
+		return index.row( object );
+	}
+
+	@Override
+	public boolean isSelected( final int row )
+	{
+		final L object = getObject( row );
+		return object != null && selection.isSelected( object );
+	}
+
+	@Override
+	public boolean isSelected( final Integer row )
+	{
+		return row != null && isSelected( row.intValue() );
+	}
+
+	@Override
+	public void setSelected( final int row, final boolean select )
+	{
+		final L object = getObject( row );
+		if ( object != null ) selection.setSelected( object, select );
+	}
+
+	@Override
+	public void setSelected( final Integer row, final boolean select )
+	{
+		if ( row != null ) setSelected( row.intValue(), select );
+	}
+
+	@Override
+	public boolean setSelected( final BitSet rows, final boolean select )
+	{
+		final List< L > objects = new ArrayList<>( rows.cardinality() );
+		for ( int row = rows.nextSetBit( 0 ); row >= 0; row = rows.nextSetBit( row + 1 ) )
+		{
+			final L object = getObject( row );
+			if ( object != null ) objects.add( object );
+		}
+		return !objects.isEmpty() && selection.setSelected( objects, select );
+	}
+
+	@Override
+	public boolean setSelected( final Collection< Integer > rows, final boolean select )
+	{
+		final BitSet bits = new BitSet();
+		for ( Integer row : rows )
+			if ( row != null && row >= 0 ) bits.set( row );
+		return setSelected( bits, select );
+	}
+
+	@Override
+	public void toggle( final Integer row )
+	{
+		final L object = row == null ? null : getObject( row );
+		if ( object != null ) selection.toggle( object );
+	}
+
+	@Override
+	public void focus( final Integer row )
+	{
+		final L object = row == null ? null : getObject( row );
+		if ( object != null ) selection.focus( object );
+	}
+
+	@Override
+	public boolean isFocused( final Integer row )
+	{
+		final L object = row == null ? null : getObject( row );
+		return object != null && selection.isFocused( object );
+	}
+
+	@Override
+	public boolean clearSelection()
+	{
+		return selection.clearSelection();
+	}
+
+	@Override
+	public BitSet getSelectedRows()
+	{
+		final Index index = this.index;
+		final BitSet res = new BitSet( index.objects.length );
+		for ( L object : selection.getSelected() )
+		{
+			final int row = index.row( object );
+			if ( row >= 0 ) res.set( row );
+		}
+		return res;
+	}
+
+	@Override
+	public Set< Integer > getSelected()
+	{
+		final Set< Integer > res = new HashSet<>();
+		getSelectedRows().stream().forEach( res::add );
+		return res;
+	}
+
+	@Override
+	public int getFocusedRow()
+	{
+		return getRow( selection.getFocused() );
+	}
+
+	@Override
+	public Integer getFocused()
+	{
+		final int row = getFocusedRow();
+		return row < 0 ? null : row;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return selection.isEmpty();
+	}
+
+	@Override
+	public Listeners< SelectionListener > listeners()
+	{
+		return listeners;
+	}
+
+	@Override
+	public void resumeListeners()
+	{
+		selection.resumeListeners();
+	}
+
+	@Override
+	public void pauseListeners()
+	{
+		selection.pauseListeners();
+	}
+}
@@ -28,15 +28,17 @@
  */
 package org.scijava.table.interactive;
 
-import org.scijava.table.GenericTable;
-
 import javax.swing.*;
 import javax.swing.event.ListSelectionListener;
+import javax.swing.table.TableModel;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Iterator;
 
 public class InteractiveTableDisplayViewer extends JPanel
 {
-	private final GenericTable genericTable;
+	private final SortableTableModel sortableModel;
 	private final SelectionModel< Integer > selectionModel;
 	private final String tableName;
 
@@ -47,15 +49,29 @@ public class InteractiveTableDisplayViewer extends JPanel
 	private Component parentComponent;
 	private ListSelectionListener tableSelectionListener;
 	private SelectionListener modelSelectionListener;
+	private int sortedColumn = -1;
+	private boolean sortedAscending = true;
 
 	public InteractiveTableDisplayViewer(
 			final InteractiveTable<Integer> table )
+	{
+		this( TableUtils.asTableModel( table ), table.getSelectionModel() );
+	}
+
+	public InteractiveTableDisplayViewer(
+			final SortableTableModel tableModel, final SelectionModel< Integer > selectionModel )
+	{
+		this( ( TableModel ) tableModel, selectionModel );
+	}
+
+	private InteractiveTableDisplayViewer(
+			final TableModel tableModel, final SelectionModel< Integer > selectionModel )
 	{
 		super( new GridLayout(1, 0 ) );
-		this.selectionModel = table.getSelectionModel();
+		this.selectionModel = selectionModel;
 		this.tableName = "";
-		this.table = TableUtils.asJTable(table);
-		this.genericTable = table;
+		this.sortableModel = tableModel instanceof SortableTableModel ? ( SortableTableModel ) tableModel : null;
+		this.table = new JTable( tableModel );
 
 		recentlySelectedRowInView = -1;
 
@@ -85,7 +101,7 @@ public class InteractiveTableDisplayViewer extends JPanel
 
 					recentlySelectedRowInView = selectedRowInView;
 
-					final int row = table.convertRowIndexToModel(recentlySelectedRowInView);
+					final int row = convertRowIndexToModel(recentlySelectedRowInView);
 
 					unregisterModelSelectionListener( selectionModel );
 
@@ -101,29 +117,28 @@ public class InteractiveTableDisplayViewer extends JPanel
 	}
 
 	private void createModelSelectionListener() {
-		modelSelectionListener = new SelectionListener() {
+		modelSelectionListener = new SwingSelectionListener() {
 			@Override
-			public synchronized void selectionChanged() {
-				if (selectionModel.isEmpty()) {
+			public void selectionChanged() {
+				final int selectedRow = firstSelectedRow();
+				if (selectedRow < 0) {
 					recentlySelectedRowInView = -1;
 					unregisterTableSelectionListener();
 					table.getSelectionModel().clearSelection();
 					registerTableSelectionListener();
 				} else {
 					unregisterTableSelectionListener();
-					Integer selected = selectionModel.getSelected().iterator().next();
+					int selected = convertRowIndexToView(selectedRow);
 					table.getSelectionModel().clearSelection();
 					table.getSelectionModel().setSelectionInterval(selected, selected);
 					registerTableSelectionListener();
 				}
-				SwingUtilities.invokeLater(() -> table.repaint());
+				table.repaint();
 			}
 
 			@Override
-			public synchronized void focusChanged() {
-				SwingUtilities.invokeLater(() -> {
-					moveToSelectedTableRow(selectionModel.getFocused());
-				});
+			public void focusChanged() {
+				moveToSelectedTableRow(selectionModel.getFocused());
 			}
 
 		};
@@ -132,10 +147,12 @@ public class InteractiveTableDisplayViewer extends JPanel
 
 	private void configureJTable()
 	{
-		table = TableUtils.asJTable( genericTable );
 		table.setPreferredScrollableViewportSize( new Dimension(500, 200) );
 		table.setFillsViewportHeight( true );
-		table.setAutoCreateRowSorter( true );
+		if ( sortableModel == null )
+			table.setAutoCreateRowSorter( true );
+		else
+			installHeaderSorting();
 		table.setRowSelectionAllowed( true );
 		table.setSelectionMode( ListSelectionModel.SINGLE_SELECTION );
 
@@ -151,6 +168,45 @@ public class InteractiveTableDisplayViewer extends JPanel
 		updateUI();
 	}
 
+	private void installHeaderSorting()
+	{
+		table.getTableHeader().addMouseListener( new MouseAdapter()
+		{
+			@Override
+			public void mouseClicked( MouseEvent e )
+			{
+				final int column = table.convertColumnIndexToModel( table.columnAtPoint( e.getPoint() ) );
+				if ( column < 0 ) return;
+				sortedAscending = column != sortedColumn || !sortedAscending;
+				sortedColumn = column;
+				sortableModel.sort( column, sortedAscending );
+				recentlySelectedRowInView = -1;
+				if ( !selectionModel.isEmpty() )
+					modelSelectionListener.selectionChanged();
+			}
+		} );
+	}
+
+	private int firstSelectedRow()
+	{
+		if ( selectionModel instanceof IntSelectionModel )
+			return ( ( IntSelectionModel ) selectionModel ).getSelectedRows().nextSetBit( 0 );
+		final Iterator< Integer > selected = selectionModel.getSelected().iterator();
+		return selected.hasNext() ? selected.next() : -1;
+	}
+
+	private int convertRowIndexToModel( int rowInView )
+	{
+		if ( sortableModel != null ) return sortableModel.convertRowIndexToModel( rowInView );
+		return table.convertRowIndexToModel( rowInView );
+	}
+
+	private int convertRowIndexToView( int rowInModel )
+	{
+		if ( sortableModel != null ) return sortableModel.convertRowIndexToView( rowInModel );
+		return table.convertRowIndexToView( rowInModel );
+	}
+
 	private void makeFrame()
 	{
 		frame = new JFrame( tableName );
@@ -218,7 +274,9 @@ public class InteractiveTableDisplayViewer extends JPanel
 
 	private void moveToSelectedTableRow(Integer selection)
 	{
-		final int rowInView = table.convertRowIndexToView( selection );
+		if ( selection == null ) return;
+
+		final int rowInView = convertRowIndexToView( selection );
 
 		if ( rowInView == recentlySelectedRowInView ) return;
 
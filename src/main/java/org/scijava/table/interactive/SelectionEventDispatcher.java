@@ -0,0 +1,166 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.table.interactive;
+
+import org.scijava.listeners.Listeners;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers selection and focus events of a {@link SelectionModel} in order on a single shared thread.
+ * Events fired while a notification is still pending are coalesced into this notification.
+ * {@link SwingSelectionListener}s are notified on the event dispatch thread.
+ * Listeners are always notified asynchronously, after the method firing the event returned.
+ * Exceptions thrown by listeners are passed to the uncaught exception handler of the notifying thread.
+ */
+public class SelectionEventDispatcher
+{
+	private static final ThreadPoolExecutor executor = new ThreadPoolExecutor( 1, 1, 10, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), runnable -> {
+				final Thread thread = new Thread( runnable, "selection-events" );
+				thread.setDaemon( true );
+				return thread;
+			} );
+
+	static
+	{
+		executor.allowCoreThreadTimeOut( true );
+	}
+
+	private final Listeners.List< SelectionListener > listeners;
+
+	private boolean selectionPending = false;
+
+	private boolean focusPending = false;
+
+	private boolean scheduled = false;
+
+	private boolean paused = false;
+
+	public SelectionEventDispatcher( final Listeners.List< SelectionListener > listeners )
+	{
+		this.listeners = listeners;
+	}
+
+	public synchronized void selectionChanged()
+	{
+		selectionPending = true;
+		schedule();
+	}
+
+	public synchronized void focusChanged()
+	{
+		focusPending = true;
+		schedule();
+	}
+
+	/**
+	 * Keeps events until {@link #resume()} is called.
+	 */
+	public synchronized void pause()
+	{
+		paused = true;
+	}
+
+	public synchronized void resume()
+	{
+		paused = false;
+		schedule();
+	}
+
+	private void schedule()
+	{
+		if ( paused || scheduled || !( selectionPending || focusPending ) ) return;
+		scheduled = true;
+		executor.execute( this::dispatch );
+	}
+
+	private void dispatch()
+	{
+		final boolean selection;
+		final boolean focus;
+		synchronized ( this )
+		{
+			selection = selectionPending;
+			focus = focusPending;
+			selectionPending = false;
+			focusPending = false;
+			scheduled = false;
+		}
+		final List< SelectionListener > snapshot;
+		synchronized ( listeners )
+		{
+			snapshot = new ArrayList<>( listeners.list );
+		}
+		for ( SelectionListener listener : snapshot )
+		{
+			final Runnable notification = () -> notify( listener, selection, focus );
+			if ( listener instanceof SwingSelectionListener )
+				SwingUtilities.invokeLater( notification );
+			else
+				notification.run();
+		}
+	}
+
+	private static void notify( final SelectionListener listener, final boolean selection, final boolean focus )
+	{
+		try
+		{
+			if ( selection ) listener.selectionChanged();
+			if ( focus ) listener.focusChanged();
+		}
+		catch ( RuntimeException e )
+		{
+			// report through the handler of the current thread, without stopping the delivery to the other listeners
+			final Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException( thread, e );
+		}
+	}
+
+	/**
+	 * Waits until all events scheduled so far are delivered to listeners which are not {@link SwingSelectionListener}s.
+	 */
+	static void flush() throws InterruptedException
+	{
+		try
+		{
+			executor.submit( () -> {} ).get();
+		}
+		catch ( ExecutionException e )
+		{
+			throw new RuntimeException( e );
+		}
+	}
+}
@@ -32,10 +32,16 @@ import org.scijava.table.GenericTable;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 
 class TableUtils
 {
 	static JTable asJTable(GenericTable genericTable)
+	{
+		return new JTable( asTableModel( genericTable ) );
+	}
+
+	static TableModel asTableModel(GenericTable genericTable)
 	{
 		final int numCols = genericTable.getColumnCount();
 
@@ -65,7 +71,7 @@ class TableUtils
 			model.addRow( rowEntries );
 		}
 
-		return new JTable( model );
+		return model;
 	}
 
 }
@@ -43,6 +43,7 @@ import org.scijava.ui.UIService;
 import org.scijava.widget.NumberWidget;
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
 import sc.fiji.labeleditor.plugin.behaviours.modification.SplitLabels;
 
 import java.util.Random;
@@ -90,10 +91,8 @@ public class InteractiveWatershedCommand<L> implements Command, Cancelable {
 			L onlyLabel = output.labeling().getMapping().getLabels().iterator().next();
 			SplitLabels.split(onlyLabel, output.labeling(), output.getData(), sigma, ops);
 			Random random = new Random();
-			output.labeling().getMapping().getLabels().forEach(label -> {
-				output.tagging().addTagToLabel(label, label);
-				output.colors().getFaceColor(label).set(randomColor(random));
-			});
+			output.labelColors().setAll(output.labeling().getMapping().getLabels(), LabelEditorTargetComponent.FACE,
+					label -> randomColor(random));
 		}
 	}
 
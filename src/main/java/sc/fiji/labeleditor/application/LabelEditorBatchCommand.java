@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.application;
+
+import io.scif.services.DatasetIOService;
+import net.imagej.Dataset;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.IntegerType;
+import org.scijava.ItemIO;
+import org.scijava.command.Command;
+import org.scijava.log.LogService;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+import org.scijava.widget.FileWidget;
+import sc.fiji.labeleditor.plugin.batch.LabelEditorBatch;
+import sc.fiji.labeleditor.plugin.batch.TagRule;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+@Plugin(type = Command.class, menuPath = "Plugins>LabelEditor>Batch process label maps", name = "LabelEditor batch", headless = true)
+public class LabelEditorBatchCommand implements Command {
+
+	@Parameter(label = "Label map directory", style = FileWidget.DIRECTORY_STYLE)
+	private File inputDirectory;
+
+	@Parameter(label = "File suffix")
+	private String suffix = ".tif";
+
+	@Parameter(label = "Output directory", style = FileWidget.DIRECTORY_STYLE)
+	private File outputDirectory;
+
+	@Parameter(label = "Tag rules (one per line, e.g. 'large #ff0000: area > 500 AND NOT border')", style = "text area", required = false)
+	private String rules = "";
+
+	@Parameter(label = "Number of threads", min = "1")
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+
+	@Parameter(label = "Save rendered labels")
+	private boolean render = false;
+
+	@Parameter(label = "Count touching labels (value 'neighbors')")
+	private boolean neighbors = false;
+
+	@Parameter(type = ItemIO.OUTPUT)
+	private int numFailed;
+
+	@Parameter
+	private DatasetIOService datasetIOService;
+
+	@Parameter
+	private LogService log;
+
+	@Override
+	public void run() {
+		LabelEditorBatch batch = new LabelEditorBatch(this::read)
+				.setNumThreads(numThreads)
+				.setRender(render)
+				.setNeighbors(neighbors)
+				.setProgressListener(result -> {
+					if(result.getError() == null) log.info(result);
+					else log.error(result.toString(), result.getError());
+				});
+		for (String rule : rules.split("[\\n;]")) {
+			if(!rule.trim().isEmpty()) batch.addRule(TagRule.parse(rule));
+		}
+		List<File> inputs = LabelEditorBatch.listFiles(inputDirectory, suffix);
+		log.info("Processing " + inputs.size() + " label maps from " + inputDirectory);
+		try {
+			numFailed = (int) batch.process(inputs, outputDirectory).stream()
+					.filter(result -> result.getError() != null).count();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.warn("Batch processing interrupted.");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private RandomAccessibleInterval<? extends IntegerType<?>> read(File file) throws IOException {
+		Dataset dataset = datasetIOService.open(file.getAbsolutePath());
+		if(!(dataset.firstElement() instanceof IntegerType)) {
+			throw new IOException(file + " is not an integer label map.");
+		}
+		return (RandomAccessibleInterval) dataset;
+	}
+}
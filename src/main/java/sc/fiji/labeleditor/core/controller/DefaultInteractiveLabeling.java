@@ -81,6 +81,8 @@ public class DefaultInteractiveLabeling<L> implements InteractiveLabeling<L> {
 	}
 
 	private void onLabelingChange(LabelingChangedEvent event) {
+		// displays of the index image can only be updated completely, skip them if no pixel was written
+		if(event.isEmpty()) return;
 		if(displayService != null) {
 			displayService.getDisplays(model().labeling().getIndexImg()).forEach(Display::update);
 		}
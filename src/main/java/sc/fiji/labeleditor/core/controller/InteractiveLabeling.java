@@ -28,6 +28,7 @@
  */
 package sc.fiji.labeleditor.core.controller;
 
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.labeling.LabelingType;
 import org.scijava.table.interactive.SelectionModel;
@@ -41,6 +42,13 @@ public interface InteractiveLabeling<L> {
 	LabelEditorView<L> view();
 	LabelEditorInterface interfaceInstance();
 	RandomAccessibleInterval<LabelingType<L>> getLabelingInScope();
+
+	/**
+	 * @return the given interval of {@link #getLabelingInScope()} in coordinates of the complete labeling
+	 */
+	default Interval toLabelingInterval(Interval intervalInScope) {
+		return intervalInScope;
+	}
 	Set<L> getLabelSetInScope();
 	SelectionModel<L> getSelectionModel();
 	void setSelectionModel(SelectionModel<L> model);
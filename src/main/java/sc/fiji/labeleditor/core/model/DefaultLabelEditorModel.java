@@ -44,7 +44,9 @@ import net.imglib2.type.numeric.integer.IntType;
 import net.imglib2.util.Intervals;
 import net.imglib2.view.Views;
 import org.scijava.listeners.Listeners;
+import sc.fiji.labeleditor.core.model.colors.DefaultLabelEditorLabelColors;
 import sc.fiji.labeleditor.core.model.colors.DefaultLabelEditorTagColors;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorLabelColors;
 import sc.fiji.labeleditor.core.model.colors.LabelEditorTagColors;
 import sc.fiji.labeleditor.core.model.tagging.DefaultLabelEditorTagging;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
@@ -70,6 +72,11 @@ public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 	private List<Object> orderedTags = new ArrayList<>();
 
 	private final LabelEditorTagColors tagColors = new DefaultLabelEditorTagColors();
+	private final LabelEditorLabelColors<L> labelColors = new DefaultLabelEditorLabelColors<>(tagColors);
+	private final LabelEditorMetrics metrics = new LabelEditorMetrics();
+	private final LabelingCompaction<L> compaction = new LabelingCompaction<>(this);
+	private RegionAdjacencyGraph<L> adjacency;
+	private LabelMapLUT<L> labelMapLUT;
 	private String name;
 	private Listeners.List<LabelingChangeListener> listeners = new Listeners.SynchronizedList<>();
 	private boolean labelingListenersPaused = false;
@@ -87,6 +94,8 @@ public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 			initTagOrdering();
 			initTagging();
 			addDefaultColorsets();
+			listeners.add(this::updateAdjacency);
+			listeners.add(compaction::onLabelingChange);
 		}
 	}
 	public static DefaultLabelEditorModel<IntType> initFromLabelMap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap) {
@@ -140,7 +149,11 @@ public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 
 	// TODO: Consider using setters instead of protected methods.
 	protected void initTagging() {
-		tagging = new DefaultLabelEditorTagging<>(this);
+		setTagging(new DefaultLabelEditorTagging<>(this));
+	}
+
+	protected void setTagging(LabelEditorTagging<L> tagging) {
+		this.tagging = tagging;
 	}
 
 	protected void initLabelOrdering(ImgLabeling<L, ? extends IntegerType<?>> labeling) {
@@ -193,6 +206,11 @@ public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 		return tagColors;
 	}
 
+	@Override
+	public LabelEditorLabelColors<L> labelColors() {
+		return labelColors;
+	}
+
 	public void setTagComparator(Comparator<Object> comparator) {
 		this.tagComparator = comparator;
 	}
@@ -281,8 +299,47 @@ public class DefaultLabelEditorModel<L> implements LabelEditorModel<L> {
 
 	@Override
 	public void notifyLabelingListeners() {
-		LabelingChangedEvent e = new LabelingChangedEvent();
+		notifyLabelingListeners(new LabelingChangedEvent<>());
+	}
+
+	@Override
+	public void notifyLabelingListeners(LabelingChangedEvent<L> e) {
+		long start = metrics.start();
 		listeners.list.forEach(listener -> listener.labelingChanged(e));
+		metrics.stop(LabelEditorMetrics.LABELING_EVENTS, start);
+	}
+
+	/**
+	 * @return the compaction of the label sets of this model, see {@link LabelingCompaction#request()}
+	 */
+	public LabelingCompaction<L> compaction() {
+		return compaction;
+	}
+
+	@Override
+	public synchronized RegionAdjacencyGraph<L> adjacency() {
+		if(adjacency == null) adjacency = createAdjacencyGraph();
+		return adjacency;
+	}
+
+	@Override
+	public synchronized LabelMapLUT<L> labelMapLUT() {
+		if(labelMapLUT == null) labelMapLUT = new LabelMapLUT<>(this);
+		return labelMapLUT;
+	}
+
+	protected RegionAdjacencyGraph<L> createAdjacencyGraph() {
+		return new RegionAdjacencyGraph<>(labeling(), -1);
+	}
+
+	private void updateAdjacency(LabelingChangedEvent<?> e) {
+		RegionAdjacencyGraph<L> adjacency = this.adjacency;
+		if(adjacency != null) adjacency.update(e);
+	}
+
+	@Override
+	public LabelEditorMetrics metrics() {
+		return metrics;
 	}
 
 }
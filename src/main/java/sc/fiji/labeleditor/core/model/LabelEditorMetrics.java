@@ -0,0 +1,249 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of timings, counts and cache hit rates of the hot paths of a {@link LabelEditorModel} and its views.
+ * Metrics are only recorded while the registry is enabled, otherwise {@link #start()} returns 0
+ * and all recording methods return after reading a single volatile flag.
+ * <pre>
+ * long start = metrics.start();
+ * ...
+ * metrics.stop(LabelEditorMetrics.UPDATE_LUT, start, entries);
+ * </pre>
+ * A {@link Tracer} can be registered to forward every recorded sample, e.g. to JFR events or a logging framework.
+ */
+public class LabelEditorMetrics {
+
+	/** LUT rebuilds of renderers, amount: LUT entries computed */
+	public static final String UPDATE_LUT = "renderer.updateLUT";
+	/** tag event notifications, amount: events per batch, time: listener fan-out */
+	public static final String TAG_EVENTS = "tagging.events";
+	/** labeling listener notifications, time: listener fan-out */
+	public static final String LABELING_EVENTS = "model.labelingListeners";
+	/** view listener notifications, time: listener fan-out */
+	public static final String VIEW_EVENTS = "view.listeners";
+	/** label lookup at the mouse position */
+	public static final String FIND_LABELS_AT_MOUSE = "interface.findLabelsAtMousePosition";
+	/** labeling modifications, amount: pixels touched */
+	public static final String MODIFICATION = "modification";
+	/** labeling compaction, amount: label sets removed */
+	public static final String COMPACTION = "model.compaction";
+	/** time slice label set cache, hits and misses */
+	public static final String TIME_SLICE_SCOPE_CACHE = "timeslice.scopeCache";
+	/** time slice presence index, hits and misses */
+	public static final String TIME_SLICE_PRESENCE_INDEX = "timeslice.presenceIndex";
+
+	/** start time returned by {@link #start()} if metrics are disabled, {@link System#nanoTime()} can be 0 or negative */
+	public static final long DISABLED = Long.MIN_VALUE;
+
+	/** metrics which can not be enabled, for models which do not record metrics */
+	public static final LabelEditorMetrics NONE = new LabelEditorMetrics() {
+		@Override
+		public void setEnabled(boolean enabled) {
+		}
+	};
+
+	public interface Tracer {
+		void trace(String name, long startNanos, long durationNanos, long amount);
+	}
+
+	public static class Metric {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final LongAdder totalAmount = new LongAdder();
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+
+		void record(long nanos, long amount) {
+			count.increment();
+			totalNanos.add(nanos);
+			totalAmount.add(amount);
+			long max;
+			while(nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos));
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public double getTotalMillis() {
+			return totalNanos.sum() / 1e6;
+		}
+
+		public double getMeanMillis() {
+			long count = getCount();
+			return count == 0 ? 0 : getTotalMillis() / count;
+		}
+
+		public double getMaxMillis() {
+			return maxNanos.get() / 1e6;
+		}
+
+		public long getTotalAmount() {
+			return totalAmount.sum();
+		}
+
+		public double getMeanAmount() {
+			long count = getCount();
+			return count == 0 ? 0 : (double) getTotalAmount() / count;
+		}
+
+		public long getHits() {
+			return hits.sum();
+		}
+
+		public long getMisses() {
+			return misses.sum();
+		}
+
+		/**
+		 * @return the ratio of hits to all lookups or NaN if there were no lookups
+		 */
+		public double getHitRate() {
+			long hits = getHits();
+			long lookups = hits + getMisses();
+			return lookups == 0 ? Double.NaN : (double) hits / lookups;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder res = new StringBuilder();
+			if(getCount() > 0) {
+				res.append(String.format("count %d, mean %.3f ms, max %.3f ms, total %.1f ms",
+						getCount(), getMeanMillis(), getMaxMillis(), getTotalMillis()));
+				if(getTotalAmount() > 0) res.append(String.format(", amount %d (mean %.1f)", getTotalAmount(), getMeanAmount()));
+			}
+			if(getHits() + getMisses() > 0) {
+				if(res.length() > 0) res.append(", ");
+				res.append(String.format("hit rate %.1f%% (%d / %d)", getHitRate() * 100, getHits(), getHits() + getMisses()));
+			}
+			return res.toString();
+		}
+	}
+
+	private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+	private volatile boolean enabled = false;
+	private volatile Tracer tracer;
+	private volatile long resetTime = System.nanoTime();
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		if(enabled && !this.enabled) reset();
+		this.enabled = enabled;
+	}
+
+	public void setTracer(Tracer tracer) {
+		this.tracer = tracer;
+	}
+
+	/**
+	 * @return the current time in nanoseconds or {@link #DISABLED} if metrics are disabled
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : DISABLED;
+	}
+
+	/**
+	 * Records the time since {@code start} (as returned by {@link #start()}), does nothing if {@code start} is {@link #DISABLED}.
+	 */
+	public void stop(String name, long start) {
+		stop(name, start, 0);
+	}
+
+	public void stop(String name, long start, long amount) {
+		if(start == DISABLED) return;
+		long duration = System.nanoTime() - start;
+		get(name).record(duration, amount);
+		Tracer tracer = this.tracer;
+		if(tracer != null) tracer.trace(name, start, duration, amount);
+	}
+
+	public void hit(String name) {
+		if(enabled) get(name).hits.increment();
+	}
+
+	public void miss(String name) {
+		if(enabled) get(name).misses.increment();
+	}
+
+	public Metric get(String name) {
+		return metrics.computeIfAbsent(name, n -> new Metric());
+	}
+
+	/**
+	 * @return the number of recorded samples per second since the metrics were enabled or reset
+	 */
+	public double getRate(String name) {
+		double seconds = getElapsedSeconds();
+		return seconds <= 0 ? 0 : get(name).getCount() / seconds;
+	}
+
+	/**
+	 * @return the recorded amount per second since the metrics were enabled or reset, e.g. tag events per second
+	 */
+	public double getAmountRate(String name) {
+		double seconds = getElapsedSeconds();
+		return seconds <= 0 ? 0 : get(name).getTotalAmount() / seconds;
+	}
+
+	public double getElapsedSeconds() {
+		return (System.nanoTime() - resetTime) / 1e9;
+	}
+
+	public Map<String, Metric> getMetrics() {
+		return new TreeMap<>(metrics);
+	}
+
+	public void reset() {
+		metrics.clear();
+		resetTime = System.nanoTime();
+	}
+
+	public String report() {
+		StringBuilder res = new StringBuilder();
+		getMetrics().forEach((name, metric) -> res.append(name).append(": ").append(metric).append("\n"));
+		return res.toString();
+	}
+
+	@Override
+	public String toString() {
+		return report();
+	}
+}
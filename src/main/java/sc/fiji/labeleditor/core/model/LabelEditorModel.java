@@ -32,6 +32,7 @@ import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.labeling.ImgLabeling;
 import net.imglib2.type.numeric.IntegerType;
 import org.scijava.listeners.Listeners;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorLabelColors;
 import sc.fiji.labeleditor.core.model.colors.LabelEditorTagColors;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
 
@@ -43,6 +44,13 @@ public interface LabelEditorModel <L> {
 	LabelEditorTagging<L> tagging();
 	LabelEditorTagColors colors();
 
+	/**
+	 * @return the individual colors of labels, by default read-only and empty
+	 */
+	default LabelEditorLabelColors<L> labelColors() {
+		return LabelEditorLabelColors.empty();
+	}
+
 	Comparator<Object> getTagComparator();
 	Comparator<L> getLabelComparator();
 
@@ -55,4 +63,36 @@ public interface LabelEditorModel <L> {
 	void pauseLabelingListeners();
 	void resumeLabelingListeners();
 	void notifyLabelingListeners();
+
+	/**
+	 * Notifies listeners about a modification of the labeling,
+	 * the event describes which part of the labeling changed so that listeners can update only that part.
+	 * The default implementation notifies about a change of the whole labeling.
+	 */
+	default void notifyLabelingListeners(LabelingChangedEvent<L> event) {
+		notifyLabelingListeners();
+	}
+
+	/**
+	 * @return the graph of touching labels, computed on first access and updated on labeling changes.
+	 * The default implementation returns a new graph on every call, computed on its first query.
+	 */
+	default RegionAdjacencyGraph<L> adjacency() {
+		return new RegionAdjacencyGraph<>(labeling(), -1);
+	}
+
+	/**
+	 * @return the table converting the index image into a label map, kept up to date with the labeling and the tags.
+	 * The default implementation returns a new table on every call which does not listen to changes of the model.
+	 */
+	default LabelMapLUT<L> labelMapLUT() {
+		return new LabelMapLUT<>(this, false);
+	}
+
+	/**
+	 * @return the metrics of the model and its views, {@link LabelEditorMetrics#NONE} if the model does not record metrics
+	 */
+	default LabelEditorMetrics metrics() {
+		return LabelEditorMetrics.NONE;
+	}
 }
@@ -0,0 +1,128 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.Converters;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps each label set index of a model to the value of the first label of the set according to the label comparator,
+ * 0 for the empty set. Each model owns one table ({@link LabelEditorModel#labelMapLUT()}), it is invalidated
+ * by labeling and tag changes of the model and recomputed lazily on the next access.
+ * Numeric labels keep their value, other labels are numbered consecutively starting from 1 in comparator order.
+ */
+public class LabelMapLUT<L> {
+
+	private final LabelEditorModel<L> model;
+	private volatile int[] lut;
+
+	LabelMapLUT(LabelEditorModel<L> model) {
+		this(model, true);
+	}
+
+	/**
+	 * @param track whether to invalidate the table on labeling and tag changes,
+	 * otherwise the table is only recomputed if the number of label sets changes
+	 */
+	LabelMapLUT(LabelEditorModel<L> model, boolean track) {
+		this.model = model;
+		if(!track) return;
+		// the label comparator depends on the tags
+		model.labelingListeners().add(e -> invalidate());
+		model.tagging().listeners().add(e -> invalidate());
+	}
+
+	public int[] get() {
+		int[] res = lut;
+		LabelingMapping<L> mapping = model.labeling().getMapping();
+		if(res == null || res.length != mapping.numSets()) {
+			res = compute(mapping, model.getLabelComparator());
+			lut = res;
+		}
+		return res;
+	}
+
+	/**
+	 * Forces a recomputation of the table, e.g. after the index image was written without notifying the model.
+	 */
+	public void invalidate() {
+		lut = null;
+	}
+
+	/**
+	 * @return the label map as view of the index image of the model converted through the table
+	 */
+	public RandomAccessibleInterval<IntType> convert() {
+		Converter<IntegerType<?>, IntType> converter = (in, out) -> {
+			int index = in.getInteger();
+			int[] table = lut;
+			if(table == null || index >= table.length) table = get();
+			out.set(table[index]);
+		};
+		get();
+		return Converters.convert((RandomAccessibleInterval<IntegerType<?>>) model.labeling().getIndexImg(), converter, new IntType());
+	}
+
+	public static <L> int[] compute(LabelingMapping<L> mapping, Comparator<L> comparator) {
+		int[] res = new int[mapping.numSets()];
+		Map<L, Integer> ids = new HashMap<>();
+		if(!mapping.getLabels().stream().allMatch(label -> label instanceof RealType || label instanceof Number)) {
+			List<L> labels = new ArrayList<>(mapping.getLabels());
+			labels.sort(comparator);
+			for (int i = 0; i < labels.size(); i++) {
+				ids.put(labels.get(i), i + 1);
+			}
+		}
+		for (int i = 0; i < res.length; i++) {
+			Set<L> labels = mapping.labelsAtIndex(i);
+			if(labels.isEmpty()) continue;
+			L first = Collections.min(labels, comparator);
+			res[i] = ids.isEmpty() ? value(first) : ids.get(first);
+		}
+		return res;
+	}
+
+	private static int value(Object label) {
+		if(label instanceof RealType) return (int) ((RealType<?>) label).getRealFloat();
+		return ((Number) label).intValue();
+	}
+}
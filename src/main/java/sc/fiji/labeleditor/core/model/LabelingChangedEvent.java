@@ -28,5 +28,184 @@
  */
 package sc.fiji.labeleditor.core.model;
 
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.Localizable;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Describes a modification of the labeling.
+ * Every property is null if unknown, in which case listeners have to assume that everything changed.
+ */
 public class LabelingChangedEvent<L> {
+
+	private final Interval interval;
+	private final BitSet setIndices;
+	private final Set<L> addedLabels;
+	private final Set<L> removedLabels;
+
+	public LabelingChangedEvent() {
+		this(null, null, null, null);
+	}
+
+	public LabelingChangedEvent(Interval interval, BitSet setIndices, Set<L> addedLabels, Set<L> removedLabels) {
+		this.interval = interval;
+		this.setIndices = setIndices;
+		this.addedLabels = addedLabels;
+		this.removedLabels = removedLabels;
+	}
+
+	/**
+	 * @return the bounding interval of all modified pixels in coordinates of the complete labeling
+	 */
+	public Interval getInterval() {
+		return interval;
+	}
+
+	/**
+	 * @return the label set indices written to modified pixels
+	 */
+	public BitSet getSetIndices() {
+		return setIndices;
+	}
+
+	/**
+	 * @return the labels which were written to pixels
+	 */
+	public Set<L> getAddedLabels() {
+		return addedLabels;
+	}
+
+	/**
+	 * @return the labels which were removed from pixels
+	 */
+	public Set<L> getRemovedLabels() {
+		return removedLabels;
+	}
+
+	/**
+	 * @return whether labels might have been added to or removed from the labeling
+	 */
+	public boolean affectsLabels() {
+		return addedLabels == null || removedLabels == null || !addedLabels.isEmpty() || !removedLabels.isEmpty();
+	}
+
+	/**
+	 * @return whether the event is known to describe no change at all, e.g. a modification which wrote no pixel
+	 */
+	public boolean isEmpty() {
+		return interval == null && setIndices != null && setIndices.isEmpty() && !affectsLabels();
+	}
+
+	/**
+	 * @return whether any modified pixel might be located inside of the given interval
+	 */
+	public boolean intersects(Interval other) {
+		if(interval == null || other.numDimensions() != interval.numDimensions()) return true;
+		return !Intervals.isEmpty(Intervals.intersect(interval, other));
+	}
+
+	@Override
+	public String toString() {
+		if(interval == null) return "Labeling changed";
+		return "Labeling changed in " + Util.printInterval(interval)
+				+ (addedLabels == null ? "" : ", added " + addedLabels)
+				+ (removedLabels == null ? "" : ", removed " + removedLabels);
+	}
+
+	/**
+	 * Collects the changes of a labeling modification, can be shared by concurrently modifying threads.
+	 */
+	public static class Builder<L> {
+
+		private long[] min;
+		private long[] max;
+		private BitSet setIndices = new BitSet();
+		private final Set<L> addedLabels = new HashSet<>();
+		private final Set<L> removedLabels = new HashSet<>();
+
+		public synchronized Builder<L> include(Localizable position) {
+			if(min == null) {
+				min = new long[position.numDimensions()];
+				max = new long[position.numDimensions()];
+				position.localize(min);
+				position.localize(max);
+				return this;
+			}
+			for (int d = 0; d < min.length; d++) {
+				long pos = position.getLongPosition(d);
+				if(pos < min[d]) min[d] = pos;
+				if(pos > max[d]) max[d] = pos;
+			}
+			return this;
+		}
+
+		public synchronized Builder<L> include(Interval interval) {
+			if(min == null) {
+				min = Intervals.minAsLongArray(interval);
+				max = Intervals.maxAsLongArray(interval);
+				return this;
+			}
+			for (int d = 0; d < min.length; d++) {
+				min[d] = Math.min(min[d], interval.min(d));
+				max[d] = Math.max(max[d], interval.max(d));
+			}
+			return this;
+		}
+
+		public synchronized Builder<L> setIndex(int index) {
+			if(setIndices != null) setIndices.set(index);
+			return this;
+		}
+
+		/**
+		 * Marks the set indices in the given range as written, e.g. the sets created by a modification.
+		 */
+		public synchronized Builder<L> setIndices(int fromIndex, int toIndex) {
+			if(setIndices != null && fromIndex < toIndex) setIndices.set(fromIndex, toIndex);
+			return this;
+		}
+
+		/**
+		 * Call this if the modification cannot keep track of the set indices it writes.
+		 */
+		public synchronized Builder<L> unknownSetIndices() {
+			setIndices = null;
+			return this;
+		}
+
+		public synchronized Builder<L> added(Collection<L> labels) {
+			addedLabels.addAll(labels);
+			return this;
+		}
+
+		public synchronized Builder<L> removed(Collection<L> labels) {
+			removedLabels.addAll(labels);
+			return this;
+		}
+
+		public LabelingChangedEvent<L> build() {
+			return build(UnaryOperator.identity());
+		}
+
+		/**
+		 * @param toLabelingInterval maps the collected interval into the coordinates of the complete labeling,
+		 *                           e.g. if the modification was performed on a slice of the labeling
+		 */
+		public synchronized LabelingChangedEvent<L> build(UnaryOperator<Interval> toLabelingInterval) {
+			Interval interval = min == null ? null : toLabelingInterval.apply(new FinalInterval(min, max));
+			return new LabelingChangedEvent<>(interval,
+					setIndices == null ? null : (BitSet) setIndices.clone(),
+					Collections.unmodifiableSet(new HashSet<>(addedLabels)),
+					Collections.unmodifiableSet(new HashSet<>(removedLabels)));
+		}
+	}
 }
@@ -0,0 +1,252 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes the label sets of a {@link LabelingMapping} which are not used by any pixel anymore.
+ * Adding labels to and removing labels from pixels keeps interning new label sets, the unused ones are never reclaimed.
+ * Compaction finds the used set indices with a parallel scan of the index image,
+ * rebuilds a dense mapping and rewrites the index image in parallel.
+ * Compaction runs on explicit {@link #request()}. Once enabled ({@link #setEnabled(boolean)}), it also scans for unused
+ * sets in the background whenever the mapping grew considerably and compacts the labeling if the ratio of unused sets
+ * exceeds the threshold. This is only safe if every write to the labeling synchronizes on its mapping,
+ * which is why automatic compaction is disabled by default.
+ * Pixels with an index outside of the mapping are never rewritten, compaction fails instead.
+ */
+public class LabelingCompaction<L> {
+
+	public static final double DEFAULT_THRESHOLD = 0.5;
+
+	/** minimal number of label sets before compaction is considered */
+	private static final int MIN_SETS = 1024;
+	/** the mapping is scanned again once it grew by this factor since the last scan */
+	private static final double GROWTH = 1.5;
+
+	private final LabelEditorModel<L> model;
+	private final ThreadPoolExecutor executor;
+	private double threshold = DEFAULT_THRESHOLD;
+	private boolean enabled = false;
+	private int setsAtLastScan = 0;
+	private Future<?> pending;
+
+	public LabelingCompaction(LabelEditorModel<L> model) {
+		this.model = model;
+		this.executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "labeleditor-compaction");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @param threshold the ratio of unused label sets above which the labeling is compacted automatically
+	 */
+	public synchronized void setThreshold(double threshold) {
+		this.threshold = threshold;
+	}
+
+	/**
+	 * @param enabled whether to compact automatically after labeling changes, only enable this if all writers
+	 *                of the labeling synchronize on its mapping
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Starts a background compaction if enabled and the mapping grew considerably since the last scan.
+	 */
+	public synchronized void onLabelingChange(LabelingChangedEvent<L> e) {
+		if(!enabled || model.labeling() == null) return;
+		int numSets = model.labeling().getMapping().numSets();
+		if(numSets < MIN_SETS || numSets < setsAtLastScan * GROWTH) return;
+		if(pending != null && !pending.isDone()) return;
+		setsAtLastScan = numSets;
+		pending = executor.submit(() -> compactModel(threshold));
+	}
+
+	/**
+	 * Compacts the labeling of the model in the background, regardless of the ratio of unused sets.
+	 * Writers of the labeling have to synchronize on its mapping until the returned future is done.
+	 */
+	public synchronized Future<?> request() {
+		return executor.submit(() -> compactModel(0));
+	}
+
+	private void compactModel(double minDeadRatio) {
+		ImgLabeling<L, ? extends IntegerType<?>> labeling = model.labeling();
+		LabelingMapping<L> mapping = labeling.getMapping();
+		Set<L> removed;
+		IllegalStateException error = null;
+		synchronized (mapping) {
+			long start = model.metrics().start();
+			BitSet live = findLiveSets(labeling);
+			int numSets = mapping.numSets();
+			int dead = numSets - live.cardinality();
+			synchronized (this) {
+				setsAtLastScan = numSets - dead;
+			}
+			if(dead == 0 || (double) dead / numSets < minDeadRatio) return;
+			Set<L> before = new HashSet<>(mapping.getLabels());
+			try {
+				compact(labeling, live);
+			} catch (IllegalStateException e) {
+				error = e;
+			}
+			removed = new HashSet<>(before);
+			removed.removeAll(mapping.getLabels());
+			model.metrics().stop(LabelEditorMetrics.COMPACTION, start, dead);
+		}
+		// every index changed, listeners have to update completely
+		model.notifyLabelingListeners(new LabelingChangedEvent<>(null, null, Collections.emptySet(), removed));
+		if(error != null) throw error;
+	}
+
+	public void dispose() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the indices of all label sets used by at least one pixel, including the empty set
+	 */
+	public static BitSet findLiveSets(ImgLabeling<?, ? extends IntegerType<?>> labeling) {
+		BitSet live = slabs(labeling.getIndexImg()).parallelStream().map(slab -> {
+			BitSet res = new BitSet();
+			Cursor<? extends IntegerType<?>> cursor = Views.flatIterable(slab).cursor();
+			int last = -1;
+			while(cursor.hasNext()) {
+				int index = cursor.next().getInteger();
+				if(index == last) continue;
+				if(index < 0) throw new IllegalStateException("Negative label set index " + index + " in index image.");
+				res.set(index);
+				last = index;
+			}
+			return res;
+		}).reduce(new BitSet(), (a, b) -> {
+			BitSet res = (BitSet) a.clone();
+			res.or(b);
+			return res;
+		});
+		live.set(0);
+		return live;
+	}
+
+	/**
+	 * Compacts the labeling, regardless of whether it is worth it.
+	 * @return the new index of each old label set index, -1 for removed sets, or null if all sets are in use
+	 */
+	public static <L> int[] compact(ImgLabeling<L, ? extends IntegerType<?>> labeling) {
+		synchronized (labeling.getMapping()) {
+			return compact(labeling, findLiveSets(labeling));
+		}
+	}
+
+	private static <L> int[] compact(ImgLabeling<L, ? extends IntegerType<?>> labeling, BitSet live) {
+		LabelingMapping<L> mapping = labeling.getMapping();
+		int numSets = mapping.numSets();
+		if(live.length() > numSets) {
+			throw new IllegalStateException("Index image contains label set index " + (live.length() - 1)
+					+ ", but the mapping only has " + numSets + " sets.");
+		}
+		if(live.cardinality() == numSets) return null;
+		int[] remap = new int[numSets];
+		List<Set<L>> labelSets = new ArrayList<>(live.cardinality());
+		for (int i = 0; i < numSets; i++) {
+			if(!live.get(i)) {
+				remap[i] = -1;
+				continue;
+			}
+			remap[i] = labelSets.size();
+			labelSets.add(new HashSet<>(mapping.labelsAtIndex(i)));
+		}
+		long invalid = slabs(labeling.getIndexImg()).parallelStream().mapToLong(slab -> {
+			long res = 0;
+			Cursor<? extends IntegerType<?>> cursor = Views.flatIterable(slab).cursor();
+			while(cursor.hasNext()) {
+				IntegerType<?> index = cursor.next();
+				int value = index.getInteger();
+				// written concurrently without synchronizing on the mapping, leave it untouched
+				if(value < 0 || value >= numSets || remap[value] < 0) {
+					res++;
+					continue;
+				}
+				if(remap[value] != value) index.setInteger(remap[value]);
+			}
+			return res;
+		}).sum();
+		// the rewritten pixels refer to the new sets, so the new mapping is installed in any case
+		new LabelingMapping.SerialisationAccess<L>(mapping) {
+			{
+				super.setLabelSets(labelSets);
+			}
+		};
+		if(invalid > 0) {
+			throw new IllegalStateException(invalid + " pixels were modified during compaction without synchronizing on the mapping.");
+		}
+		return remap;
+	}
+
+	/**
+	 * Splits the interval into slabs along its last dimension, a few per available processor.
+	 */
+	private static <T> List<RandomAccessibleInterval<T>> slabs(RandomAccessibleInterval<T> img) {
+		List<RandomAccessibleInterval<T>> slabs = new ArrayList<>();
+		int dim = img.numDimensions() - 1;
+		long size = img.dimension(dim);
+		int numSlabs = (int) Math.max(1, Math.min(size, Runtime.getRuntime().availableProcessors() * 4L));
+		for (int i = 0; i < numSlabs; i++) {
+			long[] min = Intervals.minAsLongArray(img);
+			long[] max = Intervals.maxAsLongArray(img);
+			min[dim] = img.min(dim) + size * i / numSlabs;
+			max[dim] = img.min(dim) + size * (i + 1) / numSlabs - 1;
+			slabs.add(Views.interval(img, min, max));
+		}
+		return slabs;
+	}
+}
@@ -0,0 +1,222 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+import sc.fiji.labeleditor.core.util.MappedIntImg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Labeling with its index image memory mapped from a file in a directory, see {@link MappedIntImg}.
+ * The heap only holds the label sets, so labelings of any size can be edited with bounded memory.
+ * {@link #save()} writes the label sets next to the index image, the labeling can then be reopened
+ * with {@link #open(File, Function)}. Labels are stored as strings and parsed when reopening.
+ */
+public class MappedLabeling<L> implements Closeable {
+
+	public static final int DEFAULT_CELL_SIZE = 64;
+
+	static final String INDEX_FILE = "index.bin";
+	static final String HEADER_FILE = "index.properties";
+	static final String LABELSETS_FILE = "labelsets.bin";
+
+	private final File directory;
+	private final MappedIntImg index;
+	private final ImgLabeling<L, IntType> labeling;
+
+	private MappedLabeling(File directory, MappedIntImg index) {
+		this.directory = directory;
+		this.index = index;
+		this.labeling = new ImgLabeling<>(index.getImg());
+	}
+
+	/**
+	 * Creates an empty labeling, existing files in the directory are overwritten.
+	 */
+	public static <L> MappedLabeling<L> create(File directory, long... dimensions) throws IOException {
+		return create(directory, DEFAULT_CELL_SIZE, dimensions);
+	}
+
+	/**
+	 * @param cellSize edge length of the cells of the index image in each dimension
+	 */
+	public static <L> MappedLabeling<L> create(File directory, int cellSize, long... dimensions) throws IOException {
+		Files.createDirectories(directory.toPath());
+		int[] cellDimensions = new int[dimensions.length];
+		Arrays.fill(cellDimensions, cellSize);
+		writeHeader(new File(directory, HEADER_FILE), dimensions, cellDimensions);
+		MappedLabeling<L> res = new MappedLabeling<>(directory, MappedIntImg.create(new File(directory, INDEX_FILE), dimensions, cellDimensions));
+		res.save();
+		return res;
+	}
+
+	/**
+	 * Copies a label map into a new mapped labeling, each pixel value (except 0) becoming a label.
+	 */
+	public static MappedLabeling<IntType> fromLabelMap(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, File directory) throws IOException {
+		MappedLabeling<IntType> res = create(directory, Intervals.dimensionsAsLongArray(labelMap));
+		AtomicInteger max = new AtomicInteger(0);
+		LoopBuilder.setImages(labelMap, res.index.getImg()).forEachPixel((input, output) -> {
+			int intInput = input.getInteger();
+			max.accumulateAndGet(intInput, Math::max);
+			output.set(intInput);
+		});
+		List<Set<IntType>> labelSets = new ArrayList<>();
+		labelSets.add(new HashSet<>());
+		for (int label = 1; label <= max.get(); ++label) {
+			Set<IntType> set = new HashSet<>();
+			set.add(new IntType(label));
+			labelSets.add(set);
+		}
+		setLabelSets(res.labeling, labelSets);
+		res.save();
+		return res;
+	}
+
+	/**
+	 * Reopens a labeling saved in the given directory.
+	 * @param parser converts the stored string of each label back into a label
+	 */
+	public static <L> MappedLabeling<L> open(File directory, Function<String, L> parser) throws IOException {
+		Properties header = new Properties();
+		try (InputStream in = new FileInputStream(new File(directory, HEADER_FILE))) {
+			header.load(in);
+		}
+		long[] dimensions = Arrays.stream(header.getProperty("dimensions").split(",")).mapToLong(Long::parseLong).toArray();
+		int[] cellDimensions = Arrays.stream(header.getProperty("cellDimensions").split(",")).mapToInt(Integer::parseInt).toArray();
+		MappedLabeling<L> res = new MappedLabeling<>(directory, MappedIntImg.open(new File(directory, INDEX_FILE), dimensions, cellDimensions));
+		setLabelSets(res.labeling, readLabelSets(new File(directory, LABELSETS_FILE), parser));
+		return res;
+	}
+
+	public ImgLabeling<L, IntType> labeling() {
+		return labeling;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Writes the modified pixels of the index image and the current label sets to the directory.
+	 * The label sets are replaced atomically, so an interrupted save keeps the previous label sets.
+	 */
+	public void save() throws IOException {
+		LabelingMapping<L> mapping = labeling.getMapping();
+		synchronized (mapping) {
+			index.flush();
+			File labelSets = new File(directory, LABELSETS_FILE);
+			File tmp = new File(directory, LABELSETS_FILE + ".tmp");
+			writeLabelSets(tmp, mapping);
+			Files.move(tmp.toPath(), labelSets.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+	/**
+	 * Saves and closes the labeling, it must not be used afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		save();
+		index.close();
+	}
+
+	private static void writeHeader(File file, long[] dimensions, int[] cellDimensions) throws IOException {
+		Properties header = new Properties();
+		header.setProperty("dimensions", Arrays.stream(dimensions).mapToObj(String::valueOf).collect(Collectors.joining(",")));
+		header.setProperty("cellDimensions", Arrays.stream(cellDimensions).mapToObj(String::valueOf).collect(Collectors.joining(",")));
+		header.setProperty("dataType", "int32");
+		header.setProperty("byteOrder", "LITTLE_ENDIAN");
+		try (OutputStream out = new FileOutputStream(file)) {
+			header.store(out, "index image of a labeling, see " + MappedLabeling.class.getName());
+		}
+	}
+
+	private static <L> void writeLabelSets(File file, LabelingMapping<L> mapping) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			int numSets = mapping.numSets();
+			out.writeInt(numSets);
+			for (int i = 0; i < numSets; i++) {
+				Set<L> set = mapping.labelsAtIndex(i);
+				out.writeInt(set.size());
+				for (L label : set) out.writeUTF(String.valueOf(label));
+			}
+		}
+	}
+
+	private static <L> List<Set<L>> readLabelSets(File file, Function<String, L> parser) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			int numSets = in.readInt();
+			List<Set<L>> res = new ArrayList<>(numSets);
+			for (int i = 0; i < numSets; i++) {
+				int size = in.readInt();
+				Set<L> set = new HashSet<>();
+				for (int j = 0; j < size; j++) set.add(parser.apply(in.readUTF()));
+				res.add(set);
+			}
+			return res;
+		}
+	}
+
+	private static <L> void setLabelSets(ImgLabeling<L, IntType> labeling, List<Set<L>> labelSets) {
+		new LabelingMapping.SerialisationAccess<L>(labeling.getMapping()) {
+			{
+				super.setLabelSets(labelSets);
+			}
+		};
+	}
+}
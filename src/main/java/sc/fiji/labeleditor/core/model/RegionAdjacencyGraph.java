@@ -0,0 +1,492 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import sc.fiji.labeleditor.core.util.LongCounts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Graph of labels touching each other, weighted by the size of their shared boundary.
+ * Two labels touch if a pixel of one of them is a face neighbor of a pixel of the other one
+ * (the same neighborhood as used by {@link net.imglib2.roi.boundary.IntTypeBoundary}), the time dimension is ignored.
+ * The graph is computed in one parallel pass per dimension over the index image,
+ * edges are stored in primitive adjacency arrays per label.
+ * After modifications of the labeling, only the labels in the modified region are updated.
+ */
+public class RegionAdjacencyGraph<L> {
+
+	private final ImgLabeling<L, ? extends IntegerType<?>> labeling;
+	private final int timeDimension;
+	private final int n;
+
+	private final List<L> labels = new ArrayList<>();
+	private final Map<L, Integer> ids = new HashMap<>();
+	private int[][] setIds = new int[0][];
+	private int[] degree = new int[0];
+	private int[][] neighbors = new int[0][];
+	private long[][] boundaries = new long[0][];
+	private long[] bounds = new long[0];
+	private boolean valid = false;
+
+	/**
+	 * @param timeDimension the dimension along which labels are never adjacent, -1 if there is none
+	 */
+	public RegionAdjacencyGraph(ImgLabeling<L, ? extends IntegerType<?>> labeling, int timeDimension) {
+		this.labeling = labeling;
+		this.timeDimension = timeDimension;
+		this.n = labeling.numDimensions();
+	}
+
+	/**
+	 * @return the labels sharing a boundary with the given label
+	 */
+	public synchronized Set<L> getNeighbors(L label) {
+		ensureBuilt();
+		Set<L> res = new HashSet<>();
+		Integer id = ids.get(label);
+		if(id == null) return res;
+		for (int i = 0; i < degree[id]; i++) res.add(labels.get(neighbors[id][i]));
+		return res;
+	}
+
+	/**
+	 * @return the number of pixel faces shared by the two labels, 0 if they do not touch
+	 */
+	public synchronized long getBoundarySize(L label1, L label2) {
+		ensureBuilt();
+		Integer a = ids.get(label1);
+		Integer b = ids.get(label2);
+		if(a == null || b == null) return 0;
+		int i = indexOf(a, b);
+		return i < 0 ? 0 : boundaries[a][i];
+	}
+
+	/**
+	 * @return the given labels and all labels sharing a boundary with any of them
+	 */
+	public synchronized Set<L> grow(Collection<L> labels) {
+		ensureBuilt();
+		Set<L> res = new HashSet<>(labels);
+		for (L label : labels) {
+			Integer id = ids.get(label);
+			if(id == null) continue;
+			for (int i = 0; i < degree[id]; i++) res.add(this.labels.get(neighbors[id][i]));
+		}
+		return res;
+	}
+
+	public synchronized int getNumEdges() {
+		ensureBuilt();
+		int res = 0;
+		for (int d : degree) res += d;
+		return res / 2;
+	}
+
+	/**
+	 * Calls the consumer once for each pair of touching labels.
+	 */
+	public synchronized void forEachEdge(EdgeConsumer<L> consumer) {
+		ensureBuilt();
+		for (int a = 0; a < labels.size(); a++) {
+			for (int i = 0; i < degree[a]; i++) {
+				int b = neighbors[a][i];
+				if(a < b) consumer.accept(labels.get(a), labels.get(b), boundaries[a][i]);
+			}
+		}
+	}
+
+	public interface EdgeConsumer<L> {
+		void accept(L label1, L label2, long boundarySize);
+	}
+
+	public synchronized void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Updates the graph after a modification of the labeling.
+	 * All edges of labels located in the modified region are recomputed by scanning the bounding box of these labels,
+	 * the graph is invalidated if the modified region is unknown.
+	 */
+	public synchronized void update(LabelingChangedEvent<?> event) {
+		if(!valid) return;
+		Interval interval = event.getInterval();
+		if(interval == null || interval.numDimensions() != n) {
+			valid = false;
+			return;
+		}
+		int known = labels.size();
+		updateSetIds();
+		Interval grown = Intervals.intersect(grow(interval), labeling);
+		if(Intervals.isEmpty(grown)) return;
+		boolean[] dirty = new boolean[labels.size()];
+		// labels previously located in the region, labels located in the region now and new labels
+		for (int id = 0; id < dirty.length; id++) {
+			dirty[id] = id >= known || intersects(id, grown);
+		}
+		for (int set : setBounds(Views.interval(labeling.getIndexImg(), grown)).keySet()) {
+			for (int id : setIds[set]) dirty[id] = true;
+		}
+		if(event.getRemovedLabels() != null) {
+			for (Object label : event.getRemovedLabels()) {
+				Integer id = ids.get(label);
+				if(id != null) dirty[id] = true;
+			}
+		}
+		// the region has to include all old pixels of the dirty labels and their neighbors
+		long[] min = Intervals.minAsLongArray(grown);
+		long[] max = Intervals.maxAsLongArray(grown);
+		for (int id = 0; id < dirty.length; id++) {
+			if(!dirty[id] || bounds[2 * n * id] > bounds[2 * n * id + n]) continue;
+			for (int d = 0; d < n; d++) {
+				long margin = d == timeDimension ? 0 : 1;
+				min[d] = Math.min(min[d], bounds[2 * n * id + d] - margin);
+				max[d] = Math.max(max[d], bounds[2 * n * id + n + d] + margin);
+			}
+		}
+		for (int id = 0; id < dirty.length; id++) {
+			if(!dirty[id]) continue;
+			removeEdges(id);
+			resetBounds(id);
+		}
+		scan(Intervals.intersect(new FinalInterval(min, max), labeling), dirty);
+	}
+
+	private void ensureBuilt() {
+		if(!valid) build();
+	}
+
+	/**
+	 * Computes the complete graph from scratch.
+	 */
+	public synchronized void build() {
+		labels.clear();
+		ids.clear();
+		setIds = new int[0][];
+		degree = new int[0];
+		neighbors = new int[0][];
+		boundaries = new long[0][];
+		bounds = new long[0];
+		updateSetIds();
+		RandomAccessibleInterval<? extends IntegerType<?>> indexImg = labeling.getIndexImg();
+
+		// set bounds, indexed by set index
+		Map<Integer, long[]> setBounds = slabs(indexImg, -1).parallelStream()
+				.map(this::setBounds)
+				.reduce(new HashMap<>(), (a, b) -> {
+					Map<Integer, long[]> res = new HashMap<>(a);
+					b.forEach((set, bounds) -> res.merge(set, bounds, this::union));
+					return res;
+				});
+		setBounds.forEach((set, setBound) -> {
+			for (int id : setIds[set]) include(id, setBound);
+		});
+
+		// pairs of different sets sharing a face
+		LongCounts pairs = new LongCounts();
+		for (int d = 0; d < n; d++) {
+			if(d == timeDimension || indexImg.dimension(d) < 2) continue;
+			int dim = d;
+			LongCounts dimPairs = slabs(indexImg, dim).parallelStream()
+					.map(slab -> countFaces(slab, dim))
+					.reduce((c1, c2) -> {
+						LongCounts larger = c1.size() >= c2.size() ? c1 : c2;
+						larger.addAll(larger == c1 ? c2 : c1);
+						return larger;
+					}).orElseGet(LongCounts::new);
+			pairs.addAll(dimPairs);
+		}
+		pairs.forEach((key, count) -> addFaces(LongCounts.first(key), LongCounts.second(key), count, null));
+		valid = true;
+	}
+
+	private Map<Integer, long[]> setBounds(RandomAccessibleInterval<? extends IntegerType<?>> slab) {
+		Map<Integer, long[]> res = new HashMap<>();
+		Cursor<? extends IntegerType<?>> cursor = Views.flatIterable(slab).localizingCursor();
+		int last = -1;
+		long[] lastBounds = null;
+		while(cursor.hasNext()) {
+			int index = cursor.next().getInteger();
+			if(index == 0) continue;
+			if(index != last) {
+				lastBounds = res.get(index);
+				if(lastBounds == null) {
+					lastBounds = new long[2 * n];
+					for (int d = 0; d < n; d++) {
+						lastBounds[d] = Long.MAX_VALUE;
+						lastBounds[n + d] = Long.MIN_VALUE;
+					}
+					res.put(index, lastBounds);
+				}
+				last = index;
+			}
+			for (int d = 0; d < n; d++) {
+				long pos = cursor.getLongPosition(d);
+				if(pos < lastBounds[d]) lastBounds[d] = pos;
+				if(pos > lastBounds[n + d]) lastBounds[n + d] = pos;
+			}
+		}
+		return res;
+	}
+
+	private long[] union(long[] a, long[] b) {
+		long[] res = a.clone();
+		for (int d = 0; d < n; d++) {
+			res[d] = Math.min(a[d], b[d]);
+			res[n + d] = Math.max(a[n + d], b[n + d]);
+		}
+		return res;
+	}
+
+	/**
+	 * Counts the faces between pixels of different label sets,
+	 * comparing each pixel of the slab with its successor along the given dimension.
+	 */
+	private static LongCounts countFaces(RandomAccessibleInterval<? extends IntegerType<?>> slab, int dim) {
+		LongCounts res = new LongCounts();
+		Cursor<? extends IntegerType<?>> cursor = Views.flatIterable(slab).cursor();
+		long[] min = Intervals.minAsLongArray(slab);
+		long[] max = Intervals.maxAsLongArray(slab);
+		min[dim]++;
+		max[dim]++;
+		Cursor<? extends IntegerType<?>> next = Views.flatIterable(Views.interval(slab, min, max)).cursor();
+		long current = -1;
+		long run = 0;
+		while(cursor.hasNext()) {
+			int a = cursor.next().getInteger();
+			int b = next.next().getInteger();
+			if(a == b) continue;
+			long key = a < b ? LongCounts.key(a, b) : LongCounts.key(b, a);
+			if(key == current) {
+				run++;
+				continue;
+			}
+			if(run > 0) res.add(current, run);
+			current = key;
+			run = 1;
+		}
+		if(run > 0) res.add(current, run);
+		return res;
+	}
+
+	/**
+	 * Rescans the given region, updating the bounds of the dirty labels and their edges.
+	 */
+	private void scan(Interval region, boolean[] dirty) {
+		RandomAccessibleInterval<? extends IntegerType<?>> indexImg = Views.interval(labeling.getIndexImg(), region);
+		Map<Integer, long[]> setBounds = setBounds(indexImg);
+		setBounds.forEach((set, setBound) -> {
+			for (int id : setIds[set]) if(dirty[id]) include(id, setBound);
+		});
+		for (int d = 0; d < n; d++) {
+			if(d == timeDimension || region.dimension(d) < 2) continue;
+			LongCounts pairs = countFaces(shrink(indexImg, d), d);
+			pairs.forEach((key, count) -> addFaces(LongCounts.first(key), LongCounts.second(key), count, dirty));
+		}
+	}
+
+	/**
+	 * Adds the shared faces of two label sets to all pairs of labels separated by them.
+	 * @param dirty if not null, only pairs with at least one dirty label are updated
+	 */
+	private void addFaces(int set1, int set2, long count, boolean[] dirty) {
+		int[] ids1 = setIds[set1];
+		int[] ids2 = setIds[set2];
+		for (int a : ids1) {
+			if(contains(ids2, a)) continue;
+			for (int b : ids2) {
+				if(contains(ids1, b)) continue;
+				if(dirty != null && !dirty[a] && !dirty[b]) continue;
+				addEdge(a, b, count);
+				addEdge(b, a, count);
+			}
+		}
+	}
+
+	private void addEdge(int a, int b, long count) {
+		int i = indexOf(a, b);
+		if(i >= 0) {
+			boundaries[a][i] += count;
+			return;
+		}
+		if(neighbors[a] == null) {
+			neighbors[a] = new int[4];
+			boundaries[a] = new long[4];
+		} else if(degree[a] == neighbors[a].length) {
+			neighbors[a] = Arrays.copyOf(neighbors[a], degree[a] * 2);
+			boundaries[a] = Arrays.copyOf(boundaries[a], degree[a] * 2);
+		}
+		neighbors[a][degree[a]] = b;
+		boundaries[a][degree[a]] = count;
+		degree[a]++;
+	}
+
+	private void removeEdges(int a) {
+		for (int i = 0; i < degree[a]; i++) {
+			int b = neighbors[a][i];
+			int j = indexOf(b, a);
+			if(j < 0) continue;
+			int last = --degree[b];
+			neighbors[b][j] = neighbors[b][last];
+			boundaries[b][j] = boundaries[b][last];
+		}
+		degree[a] = 0;
+	}
+
+	private int indexOf(int a, int b) {
+		for (int i = 0; i < degree[a]; i++) {
+			if(neighbors[a][i] == b) return i;
+		}
+		return -1;
+	}
+
+	private static boolean contains(int[] ids, int id) {
+		for (int i : ids) if(i == id) return true;
+		return false;
+	}
+
+	/**
+	 * Assigns ids to the labels of label sets created since the last call.
+	 */
+	private void updateSetIds() {
+		LabelingMapping<L> mapping = labeling.getMapping();
+		int numSets = mapping.numSets();
+		int oldNumSets = setIds.length;
+		if(numSets <= oldNumSets) return;
+		setIds = Arrays.copyOf(setIds, numSets);
+		for (int i = oldNumSets; i < numSets; i++) {
+			Set<L> set = mapping.labelsAtIndex(i);
+			int[] res = new int[set.size()];
+			int j = 0;
+			for (L label : set) res[j++] = id(label);
+			setIds[i] = res;
+		}
+	}
+
+	private int id(L label) {
+		Integer id = ids.get(label);
+		if(id != null) return id;
+		int res = labels.size();
+		labels.add(label);
+		ids.put(label, res);
+		if(res >= degree.length) {
+			int capacity = Math.max(16, degree.length * 2);
+			degree = Arrays.copyOf(degree, capacity);
+			neighbors = Arrays.copyOf(neighbors, capacity);
+			boundaries = Arrays.copyOf(boundaries, capacity);
+			int oldLength = bounds.length / (2 * n);
+			bounds = Arrays.copyOf(bounds, capacity * 2 * n);
+			for (int i = oldLength; i < capacity; i++) resetBounds(i);
+		}
+		return res;
+	}
+
+	private void resetBounds(int id) {
+		for (int d = 0; d < n; d++) {
+			bounds[2 * n * id + d] = Long.MAX_VALUE;
+			bounds[2 * n * id + n + d] = Long.MIN_VALUE;
+		}
+	}
+
+	private void include(int id, long[] setBounds) {
+		for (int d = 0; d < n; d++) {
+			bounds[2 * n * id + d] = Math.min(bounds[2 * n * id + d], setBounds[d]);
+			bounds[2 * n * id + n + d] = Math.max(bounds[2 * n * id + n + d], setBounds[n + d]);
+		}
+	}
+
+	private boolean intersects(int id, Interval interval) {
+		for (int d = 0; d < n; d++) {
+			if(bounds[2 * n * id + d] > interval.max(d) || bounds[2 * n * id + n + d] < interval.min(d)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the interval grown by one pixel in all dimensions except the time dimension
+	 */
+	private Interval grow(Interval interval) {
+		long[] min = Intervals.minAsLongArray(interval);
+		long[] max = Intervals.maxAsLongArray(interval);
+		for (int d = 0; d < n; d++) {
+			if(d == timeDimension) continue;
+			min[d]--;
+			max[d]++;
+		}
+		return new FinalInterval(min, max);
+	}
+
+	/**
+	 * @return the interval without its last plane along the given dimension
+	 */
+	private static <T> RandomAccessibleInterval<T> shrink(RandomAccessibleInterval<T> img, int dim) {
+		long[] max = Intervals.maxAsLongArray(img);
+		max[dim]--;
+		return Views.interval(img, Intervals.minAsLongArray(img), max);
+	}
+
+	/**
+	 * Splits the interval into slabs along its last dimension, a few per available processor.
+	 * If a face dimension is given, the last plane along this dimension is left out,
+	 * so that each pixel of a slab has a successor along this dimension.
+	 */
+	private static <T> List<RandomAccessibleInterval<T>> slabs(RandomAccessibleInterval<T> img, int faceDimension) {
+		RandomAccessibleInterval<T> interval = faceDimension < 0 ? img : shrink(img, faceDimension);
+		List<RandomAccessibleInterval<T>> slabs = new ArrayList<>();
+		int dim = interval.numDimensions() - 1;
+		long size = interval.dimension(dim);
+		int numSlabs = (int) Math.max(1, Math.min(size, Runtime.getRuntime().availableProcessors() * 4L));
+		IntStream.range(0, numSlabs).forEach(i -> {
+			long[] min = Intervals.minAsLongArray(interval);
+			long[] max = Intervals.maxAsLongArray(interval);
+			min[dim] = interval.min(dim) + size * i / numSlabs;
+			max[dim] = interval.min(dim) + size * (i + 1) / numSlabs - 1;
+			slabs.add(Views.interval(img, min, max));
+		});
+		return slabs;
+	}
+}
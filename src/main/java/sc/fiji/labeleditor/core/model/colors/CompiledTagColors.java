@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.colors;
+
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of tag colors resolved into dense arrays indexed by tag id and target component id.
+ * Constant colors are stored as ARGB values, only value dependent colors are evaluated on lookup.
+ * Looking up colors never creates colorsets, tags without colorset have color 0.
+ */
+public class CompiledTagColors {
+
+	private final Map<Object, Integer> tagIds = new HashMap<>();
+	private final Map<Object, Integer> componentIds = new HashMap<>();
+	private final int[][] colors;
+	private final LabelEditorColor[][] valueColors;
+
+	public CompiledTagColors(Map<Object, ? extends LabelEditorColorset> colorsets) {
+		for (Object tag : colorsets.keySet()) {
+			tagIds.put(tag, tagIds.size());
+		}
+		Map<Object, Map<Object, LabelEditorColor>> resolved = new HashMap<>();
+		colorsets.forEach((tag, colorset) -> {
+			Map<Object, LabelEditorColor> tagColors = new HashMap<>();
+			if(colorset instanceof Map) {
+				((Map<?, ?>) colorset).forEach((component, color) -> {
+					componentIds.putIfAbsent(component, componentIds.size());
+					tagColors.put(component, (LabelEditorColor) color);
+				});
+			}
+			resolved.put(tag, tagColors);
+		});
+		colors = new int[componentIds.size()][tagIds.size()];
+		valueColors = new LabelEditorColor[componentIds.size()][tagIds.size()];
+		resolved.forEach((tag, tagColors) -> {
+			int tagId = tagIds.get(tag);
+			tagColors.forEach((component, color) -> {
+				int componentId = componentIds.get(component);
+				if(color instanceof DefaultLabelEditorColor) colors[componentId][tagId] = color.get();
+				else valueColors[componentId][tagId] = color;
+			});
+		});
+	}
+
+	/**
+	 * @return the id of the target component or -1 if no colorset has a color for it
+	 */
+	public int getComponentId(Object targetComponent) {
+		Integer id = componentIds.get(targetComponent);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @return the id of the tag or -1 if it has no colorset
+	 */
+	public int getTagId(Object tag) {
+		Integer id = tagIds.get(tag);
+		return id == null ? -1 : id;
+	}
+
+	public boolean isValueDependent(int tagId, int componentId) {
+		return tagId >= 0 && componentId >= 0 && valueColors[componentId][tagId] != null;
+	}
+
+	public int get(int tagId, int componentId, Object value) {
+		if(tagId < 0 || componentId < 0) return 0;
+		LabelEditorColor valueColor = valueColors[componentId][tagId];
+		if(valueColor != null) return valueColor.get(value);
+		return colors[componentId][tagId];
+	}
+
+	/**
+	 * @return the colors of the tags of the label for the target component, in the order of the tags
+	 */
+	public <L> int[] getColors(L label, List<Object> tags, Object targetComponent, LabelEditorTagging<L> tagging) {
+		int[] res = new int[tags.size()];
+		getColors(label, tags, getComponentId(targetComponent), tagging, res);
+		return res;
+	}
+
+	/**
+	 * Writes the colors of the tags of the label for the target component into the first entries of {@code out}.
+	 */
+	public <L> void getColors(L label, List<Object> tags, int componentId, LabelEditorTagging<L> tagging, int[] out) {
+		for (int i = 0; i < tags.size(); i++) {
+			out[i] = 0;
+			if(componentId < 0) continue;
+			Object tag = tags.get(i);
+			int tagId = getTagId(tag);
+			if(tagId < 0) continue;
+			LabelEditorColor valueColor = valueColors[componentId][tagId];
+			out[i] = valueColor == null ? colors[componentId][tagId] : valueColor.get(tagging.getValue(tag, label));
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.colors;
+
+import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Stores the label colors in primitive arrays per target component, indexed by an id assigned to each colored label.
+ */
+public class DefaultLabelEditorLabelColors<L> implements LabelEditorLabelColors<L> {
+
+	private final LabelEditorTagColors tagColors;
+	private final Map<L, Integer> ids = new ConcurrentHashMap<>();
+	private volatile int[][] colors = new int[LabelEditorTargetComponent.values().length][16];
+
+	/**
+	 * @param tagColors the listeners of these tag colors are notified about label color changes
+	 */
+	public DefaultLabelEditorLabelColors(LabelEditorTagColors tagColors) {
+		this.tagColors = tagColors;
+	}
+
+	/**
+	 * Does not lock, so that renderers can look up colors from multiple threads.
+	 */
+	@Override
+	public int get(L label, LabelEditorTargetComponent targetComponent) {
+		Integer id = ids.get(label);
+		if(id == null) return 0;
+		return colors[targetComponent.ordinal()][id];
+	}
+
+	@Override
+	public void set(L label, LabelEditorTargetComponent targetComponent, int color) {
+		synchronized (this) {
+			int id = id(label);
+			colors[targetComponent.ordinal()][id] = color;
+		}
+		tagColors.notifyListeners();
+	}
+
+	@Override
+	public void setAll(Collection<L> labels, LabelEditorTargetComponent targetComponent, ToIntFunction<L> color) {
+		synchronized (this) {
+			for (L label : labels) {
+				int id = id(label);
+				colors[targetComponent.ordinal()][id] = color.applyAsInt(label);
+			}
+		}
+		tagColors.notifyListeners();
+	}
+
+	@Override
+	public void remove(L label) {
+		synchronized (this) {
+			Integer id = ids.get(label);
+			if(id == null) return;
+			for (int[] componentColors : colors) {
+				componentColors[id] = 0;
+			}
+		}
+		tagColors.notifyListeners();
+	}
+
+	@Override
+	public void clear() {
+		synchronized (this) {
+			ids.clear();
+			for (int[] componentColors : colors) {
+				Arrays.fill(componentColors, 0);
+			}
+		}
+		tagColors.notifyListeners();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return ids.isEmpty();
+	}
+
+	private int id(L label) {
+		Integer id = ids.get(label);
+		if(id != null) return id;
+		id = ids.size();
+		if(id >= colors[0].length) {
+			int[][] grown = new int[colors.length][];
+			for (int i = 0; i < colors.length; i++) {
+				grown[i] = Arrays.copyOf(colors[i], colors[i].length * 2);
+			}
+			colors = grown;
+		}
+		ids.put(label, id);
+		return id;
+	}
+}
@@ -36,6 +36,9 @@ public class DefaultLabelEditorTagColors extends HashMap<Object, LabelEditorColo
 
 	private final Listeners.List<ColorChangeListener> listeners = new Listeners.SynchronizedList<>();
 	private boolean listenersPaused = false;
+	private volatile CompiledTagColors compiled;
+	// incremented on each change, a snapshot compiled before a change must not be stored
+	private int version;
 
 	public DefaultLabelEditorTagColors() {
 	}
@@ -62,10 +65,30 @@ public class DefaultLabelEditorTagColors extends HashMap<Object, LabelEditorColo
 
 	@Override
 	public void notifyListeners() {
+		synchronized (this) {
+			version++;
+			compiled = null;
+		}
 		ColorChangedEvent e = new ColorChangedEvent();
 		listeners.list.forEach(listener -> listener.tagChanged(e));
 	}
 
+	@Override
+	public CompiledTagColors compile() {
+		CompiledTagColors res = compiled;
+		if(res == null) {
+			int version;
+			synchronized (this) {
+				version = this.version;
+			}
+			res = new CompiledTagColors(this);
+			synchronized (this) {
+				if(version == this.version) compiled = res;
+			}
+		}
+		return res;
+	}
+
 	// convenience methods
 
 }
@@ -0,0 +1,73 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.colors;
+
+import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
+
+import java.util.Collection;
+import java.util.function.ToIntFunction;
+
+/**
+ * Read-only label colors without any individual label color, see {@link LabelEditorLabelColors#empty()}.
+ */
+class EmptyLabelEditorLabelColors implements LabelEditorLabelColors<Object> {
+
+	static final EmptyLabelEditorLabelColors INSTANCE = new EmptyLabelEditorLabelColors();
+
+	private EmptyLabelEditorLabelColors() {
+	}
+
+	@Override
+	public int get(Object label, LabelEditorTargetComponent targetComponent) {
+		return 0;
+	}
+
+	@Override
+	public void set(Object label, LabelEditorTargetComponent targetComponent, int color) {
+		throw new UnsupportedOperationException("This model does not support individual label colors.");
+	}
+
+	@Override
+	public void setAll(Collection<Object> labels, LabelEditorTargetComponent targetComponent, ToIntFunction<Object> color) {
+		throw new UnsupportedOperationException("This model does not support individual label colors.");
+	}
+
+	@Override
+	public void remove(Object label) {
+	}
+
+	@Override
+	public void clear() {
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return true;
+	}
+}
@@ -0,0 +1,75 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.colors;
+
+import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+/**
+ * Individual ARGB colors of labels, mixed by the renderers in addition to the colors of the tags of a label.
+ * Use this instead of adding each label as tag to itself to color labels individually.
+ */
+public interface LabelEditorLabelColors<L> {
+
+	/**
+	 * @return the color of the label for the target component, 0 if the label has no individual color
+	 */
+	int get(L label, LabelEditorTargetComponent targetComponent);
+
+	void set(L label, LabelEditorTargetComponent targetComponent, int color);
+
+	/**
+	 * Sets the colors of all given labels, notifying the color listeners once.
+	 */
+	void setAll(Collection<L> labels, LabelEditorTargetComponent targetComponent, ToIntFunction<L> color);
+
+	/**
+	 * Assigns a random opaque color with the given alpha value to each given label, notifying the color listeners once.
+	 */
+	default void setRandom(Collection<L> labels, LabelEditorTargetComponent targetComponent, Random random, int alpha) {
+		setAll(labels, targetComponent, label -> (alpha << 24) | (random.nextInt(0x1000000)));
+	}
+
+	void remove(L label);
+
+	void clear();
+
+	boolean isEmpty();
+
+	/**
+	 * @return read-only label colors without any individual label color, setting colors is not supported
+	 */
+	@SuppressWarnings("unchecked")
+	static <L> LabelEditorLabelColors<L> empty() {
+		return (LabelEditorLabelColors<L>) EmptyLabelEditorLabelColors.INSTANCE;
+	}
+}
@@ -33,6 +33,8 @@ import org.scijava.listeners.Listeners;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
 
+import java.util.Map;
+
 public interface LabelEditorTagColors {
 	LabelEditorColorset getColorset(Object tag);
 
@@ -44,6 +46,18 @@ public interface LabelEditorTagColors {
 
 	void notifyListeners();
 
+	/**
+	 * @return a snapshot of the current colors for fast lookups, valid until the listeners are notified next.
+	 * The default implementation compiles the colorsets of implementations which are maps from tags to colorsets on every call.
+	 */
+	@SuppressWarnings("unchecked")
+	default CompiledTagColors compile() {
+		if(!(this instanceof Map)) {
+			throw new UnsupportedOperationException("Tag colors have to be a map from tags to colorsets or implement compile().");
+		}
+		return new CompiledTagColors((Map<Object, ? extends LabelEditorColorset>) this);
+	}
+
 	default LabelEditorColor getFaceColor(Object tag) {
 		return getColorset(tag).get(LabelEditorTargetComponent.FACE);
 	}
@@ -28,32 +28,41 @@
  */
 package sc.fiji.labeleditor.core.model.tagging;
 
+import net.imglib2.type.numeric.RealType;
 import org.scijava.listeners.Listeners;
 import org.scijava.log.LogService;
 import org.scijava.plugin.Parameter;
 import org.scijava.table.DefaultGenericTable;
 import org.scijava.table.GenericTable;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.DoublePredicate;
 
 public class DefaultLabelEditorTagging<L> implements LabelEditorTagging<L> {
 
 	@Parameter
 	LogService log;
 
+	private static final LabelEditorMetrics DISABLED_METRICS = new LabelEditorMetrics();
+
 	private final LabelEditorModel model;
 	private final GenericTable table = new DefaultGenericTable();
 	private final HashMap<Object, Integer> tagToColumn = new HashMap<>();
 	private final HashMap<Integer, Object> columnToTag = new HashMap<>();
 	private final HashMap<L, Integer> labelToRow = new HashMap<>();
 	private final HashMap<Integer, L> rowToLabel = new HashMap<>();
+	// per column: rows with a tag or value and, for numeric values, the values by row (NaN if missing)
+	private final List<BitSet> columnRows = new ArrayList<>();
+	private final List<double[]> columnValues = new ArrayList<>();
 
 	//	private final HashMap<L, Set<Object>> tags = new HashMap<>();
 	private final Listeners.List<TagChangeListener> listeners = new Listeners.SynchronizedList<>();
@@ -79,7 +88,9 @@ public class DefaultLabelEditorTagging<L> implements LabelEditorTagging<L> {
 		listenersPaused = false;
 		if(keptEvents.size() > 0) {
 //			System.out.println(keptEvents);
+			long start = metrics().start();
 			listeners.list.forEach(listener -> listener.tagChanged(keptEvents));
+			metrics().stop(LabelEditorMetrics.TAG_EVENTS, start, keptEvents.size());
 			keptEvents.clear();
 		}
 	}
@@ -91,16 +102,86 @@ public class DefaultLabelEditorTagging<L> implements LabelEditorTagging<L> {
 
 	@Override
 	public Set<L> filterLabelsWithTag(Set<L> labels, Object tag) {
-		return labels.stream()
-				.filter(label -> this.getTags(label).contains(tag))
-				.collect(Collectors.toSet());
+		return filterLabels(labels, getRowsWithTag(tag));
 	}
 
 	@Override
 	public Set filterLabelsWithAnyTag(Set<L> labels, Set<Object> tags) {
-		return labels.stream()
-				.filter(label -> getTags(label).stream().anyMatch(tags::contains))
-				.collect(Collectors.toSet());
+		BitSet rows = new BitSet();
+		tags.forEach(tag -> rows.or(getRowsWithTag(tag)));
+		return filterLabels(labels, rows);
+	}
+
+	private Set<L> filterLabels(Set<L> labels, BitSet rows) {
+		Set<L> res = new HashSet<>();
+		if(rows.isEmpty()) return res;
+		for (L label : labels) {
+			Integer row = getRow(label);
+			if(row != null && rows.get(row)) res.add(label);
+		}
+		return res;
+	}
+
+	/**
+	 * @return the number of labels with at least one tag or value assigned at some point, each occupying one row
+	 */
+	public int getRowCount() {
+		return table.getRowCount();
+	}
+
+	/**
+	 * @return the row of the label or null if no tag was ever assigned to this label
+	 */
+	public Integer getRow(L label) {
+		return labelToRow.get(label);
+	}
+
+	public L getLabel(int row) {
+		return rowToLabel.get(row);
+	}
+
+	/**
+	 * @return the rows (see {@link #getRow(Object)}) with any tag or value
+	 */
+	public BitSet getTaggedRows() {
+		BitSet res = new BitSet();
+		columnRows.forEach(res::or);
+		return res;
+	}
+
+	/**
+	 * @return a copy of the rows (see {@link #getRow(Object)}) with the given tag or value
+	 */
+	public BitSet getRowsWithTag(Object tag) {
+		Integer col = tagToColumn.get(tag);
+		if(col == null) return new BitSet();
+		return (BitSet) columnRows.get(col).clone();
+	}
+
+	/**
+	 * @return the rows (see {@link #getRow(Object)}) with a numeric value of the given tag matching the condition
+	 */
+	public BitSet getRowsWithValue(Object tag, DoublePredicate condition) {
+		BitSet res = new BitSet();
+		Integer col = tagToColumn.get(tag);
+		if(col == null) return res;
+		double[] values = columnValues.get(col);
+		if(values == null) return res;
+		BitSet rows = columnRows.get(col);
+		for (int row = rows.nextSetBit(0); row >= 0 && row < values.length; row = rows.nextSetBit(row + 1)) {
+			double value = values[row];
+			if(!Double.isNaN(value) && condition.test(value)) res.set(row);
+		}
+		return res;
+	}
+
+	/**
+	 * @return the labels of the given rows (see {@link #getRow(Object)})
+	 */
+	public Set<L> getLabels(BitSet rows) {
+		Set<L> res = new HashSet<>(Math.max(16, rows.cardinality() * 4 / 3 + 1));
+		rows.stream().forEach(row -> res.add(getLabel(row)));
+		return res;
 	}
 
 	@Override
@@ -115,10 +196,16 @@ public class DefaultLabelEditorTagging<L> implements LabelEditorTagging<L> {
 			keptEvents.add(e);
 		} else {
 //			System.out.println(e);
+			long start = metrics().start();
 			listeners.list.forEach(listener -> listener.tagChanged(Collections.singletonList(e)));
+			metrics().stop(LabelEditorMetrics.TAG_EVENTS, start, 1);
 		}
 	}
 
+	private LabelEditorMetrics metrics() {
+		return model == null ? DISABLED_METRICS : model.metrics();
+	}
+
 	private synchronized void notifyListeners(Object tag, L label, LabelEditorModel model, TagChangedEvent.Action action) {
 		TagChangedEvent e = new TagChangedEvent();
 		e.action = action;
@@ -130,49 +217,73 @@ public class DefaultLabelEditorTagging<L> implements LabelEditorTagging<L> {
 
 	@Override
 	public void addTagToLabel(Object tag, L label) {
-		Integer row = labelToRow.get(label);
-		if(row == null) {
-			table.appendRow();
-			row = table.getRowCount()-1;
-			labelToRow.put(label, row);
-			rowToLabel.put(row, label);
-		}
-		Integer col = tagToColumn.get(tag);
-		if(col == null) {
-			table.appendColumn();
-			col = table.getColumnCount()-1;
-			tagToColumn.put(tag, col);
-			columnToTag.put(col, tag);
-		}
+		int row = getOrAddRow(label);
+		int col = getOrAddColumn(tag);
 		if(table.get(col, row) != null) return;
 		table.set(col, row, true);
+		columnRows.get(col).set(row);
 		notifyListeners(tag, label, model, TagChangedEvent.Action.ADDED);
 	}
 
 	@Override
 	public void addValueToLabel(Object tag, Object value, L label) {
-		Integer row = labelToRow.get(label);
-		if(row == null) {
-			table.appendRow();
-			row = table.getRowCount()-1;
-			labelToRow.put(label, row);
-			rowToLabel.put(row, label);
-		}
+		int row = getOrAddRow(label);
+		int col = getOrAddColumn(tag);
+		if(table.get(col, row) != null) return;
+		table.set(col, row, value);
+		columnRows.get(col).set(row);
+		if(value instanceof RealType) setNumericValue(col, row, ((RealType<?>) value).getRealDouble());
+		notifyListeners(tag, label, model, TagChangedEvent.Action.ADDED);
+	}
+
+	private int getOrAddRow(L label) {
+		Integer row = getRow(label);
+		return row == null ? addRow(label) : row;
+	}
+
+	/**
+	 * Adds a row for a label without row, see {@link #getRow(Object)}.
+	 * @return the row of the label
+	 */
+	protected int addRow(L label) {
+		table.appendRow();
+		int row = table.getRowCount()-1;
+		labelToRow.put(label, row);
+		rowToLabel.put(row, label);
+		return row;
+	}
+
+	protected void appendRows(int count) {
+		table.appendRows(count);
+	}
+
+	private int getOrAddColumn(Object tag) {
 		Integer col = tagToColumn.get(tag);
 		if(col == null) {
 			table.appendColumn();
 			col = table.getColumnCount()-1;
 			tagToColumn.put(tag, col);
 			columnToTag.put(col, tag);
+			columnRows.add(new BitSet());
+			columnValues.add(null);
 		}
-		if(table.get(col, row) != null) return;
-		table.set(col, row, value);
-		notifyListeners(tag, label, model, TagChangedEvent.Action.ADDED);
+		return col;
+	}
+
+	private void setNumericValue(int col, int row, double value) {
+		double[] values = columnValues.get(col);
+		if(values == null || values.length <= row) {
+			int oldLength = values == null ? 0 : values.length;
+			values = values == null ? new double[Math.max(16, row + 1)] : Arrays.copyOf(values, Math.max(row + 1, oldLength * 2));
+			Arrays.fill(values, oldLength, values.length, Double.NaN);
+			columnValues.set(col, values);
+		}
+		values[row] = value;
 	}
 
 	@Override
 	public Object getValue(Object tag, L label) {
-		Integer row = labelToRow.get(label);
+		Integer row = getRow(label);
 		if(row == null) return null;
 		Integer col = tagToColumn.get(tag);
 		if(col == null) return null;
@@ -181,18 +292,21 @@ public class DefaultLabelEditorTagging<L> implements LabelEditorTagging<L> {
 
 	@Override
 	public void removeTagFromLabel(Object tag, L label) {
-		Integer row = labelToRow.get(label);
+		Integer row = getRow(label);
 		if(row == null) return;
 		Integer col = tagToColumn.get(tag);
 		if(col == null) return;
 		if(table.get(col, row) == null) return;
 		table.set(col, row, null);
+		columnRows.get(col).clear(row);
+		double[] values = columnValues.get(col);
+		if(values != null && row < values.length) values[row] = Double.NaN;
 		notifyListeners(tag, label, model, TagChangedEvent.Action.REMOVED);
 	}
 
 	@Override
 	public Set<Object> getTags(L label) {
-		Integer row = labelToRow.get(label);
+		Integer row = getRow(label);
 		if(row == null) return Collections.emptySet();
 		Set<Object> res = new HashSet<>();
 		for (int i = 0; i < table.getColumnCount(); i++) {
@@ -205,22 +319,21 @@ public class DefaultLabelEditorTagging<L> implements LabelEditorTagging<L> {
 	public synchronized void removeTagFromLabel(Object tag) {
 		Integer col = tagToColumn.get(tag);
 		if(col == null) return;
-		for (int i = 0; i < table.getRowCount(); i++) {
-			boolean existed = table.get(col, i) != null;
+		BitSet rows = columnRows.get(col);
+		for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
 			table.set(col, i, null);
-			if(existed) notifyListeners(tag, rowToLabel.get(i),model,  TagChangedEvent.Action.REMOVED);
+			notifyListeners(tag, getLabel(i),model,  TagChangedEvent.Action.REMOVED);
 		}
+		rows.clear();
+		double[] values = columnValues.get(col);
+		if(values != null) Arrays.fill(values, Double.NaN);
 	}
 
 	@Override
 	public Set<L> getLabels(Object tag) {
 		Integer col = tagToColumn.get(tag);
 		if(col == null) return Collections.emptySet();
-		Set<L> res = new HashSet<>();
-		for (int i = 0; i < table.getRowCount(); i++) {
-			if(table.get(col, i) != null) res.add(rowToLabel.get(i));
-		}
-		return Collections.unmodifiableSet(res);
+		return Collections.unmodifiableSet(getLabels(columnRows.get(col)));
 	}
 
 }
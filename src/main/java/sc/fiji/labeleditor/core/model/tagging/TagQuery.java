@@ -0,0 +1,412 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.tagging;
+
+import net.imglib2.type.numeric.RealType;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.DoublePredicate;
+
+/**
+ * A compiled query over the tags and values of labels, e.g. {@code area > 500 AND NOT border AND (classA OR classB)}.
+ * <p>
+ * Supported are tag names (quoted with {@code "} if they contain spaces or operators),
+ * comparisons of value tags with numbers ({@code <, <=, >, >=, ==, !=}),
+ * {@code AND}, {@code OR}, {@code NOT} (or {@code &&, ||, !}) and parentheses. Tags are matched by their {@code toString()} value.
+ * On a {@link DefaultLabelEditorTagging}, queries are evaluated on the tag columns of the tagging as bit sets.
+ * </p>
+ */
+public class TagQuery {
+
+	private final String query;
+	private final Node root;
+
+	private TagQuery(String query, Node root) {
+		this.query = query;
+		this.root = root;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the query cannot be parsed
+	 */
+	public static TagQuery compile(String query) {
+		return new TagQuery(query, new Parser(query).parse());
+	}
+
+	/**
+	 * @return all labels of the model matching the query, including labels without any tag (e.g. for {@code NOT border})
+	 */
+	public <L> Set<L> evaluate(LabelEditorModel<L> model) {
+		return filter(model.tagging(), model.labeling().getMapping().getLabels());
+	}
+
+	/**
+	 * The tagging does not know about labels which never had a tag,
+	 * use {@link #evaluate(LabelEditorModel)} to evaluate the query on all labels.
+	 * @return all labels with tags or values matching the query
+	 */
+	public <L> Set<L> evaluate(LabelEditorTagging<L> tagging) {
+		if(tagging instanceof DefaultLabelEditorTagging) {
+			DefaultLabelEditorTagging<L> defaultTagging = (DefaultLabelEditorTagging<L>) tagging;
+			return defaultTagging.getLabels(root.rows(defaultTagging, defaultTagging.getRowCount()));
+		}
+		Set<L> labels = new HashSet<>();
+		tagging.getAllTags().forEach(tag -> labels.addAll(tagging.getLabels(tag)));
+		return filter(tagging, labels);
+	}
+
+	/**
+	 * @return the subset of the given labels matching the query
+	 */
+	public <L> Set<L> filter(LabelEditorTagging<L> tagging, Set<L> labels) {
+		Set<L> res = new HashSet<>();
+		if(tagging instanceof DefaultLabelEditorTagging) {
+			DefaultLabelEditorTagging<L> defaultTagging = (DefaultLabelEditorTagging<L>) tagging;
+			BitSet rows = root.rows(defaultTagging, defaultTagging.getRowCount());
+			boolean matchesUntagged = root.test(tagging, null);
+			for (L label : labels) {
+				Integer row = defaultTagging.getRow(label);
+				if(row == null ? matchesUntagged : rows.get(row)) res.add(label);
+			}
+		} else {
+			for (L label : labels) {
+				if(root.test(tagging, label)) res.add(label);
+			}
+		}
+		return res;
+	}
+
+	public <L> boolean test(LabelEditorTagging<L> tagging, L label) {
+		return root.test(tagging, label);
+	}
+
+	/**
+	 * Selects exactly the labels of the given scope matching the query.
+	 */
+	public <L> void select(LabelEditorModel<L> model, Set<L> scope) {
+		LabelEditorTagging<L> tagging = model.tagging();
+		Set<L> toSelect = filter(tagging, scope);
+		Set<L> toUnselect = tagging.filterLabelsWithTag(scope, LabelEditorTag.SELECTED);
+		toUnselect.removeAll(toSelect);
+		tagging.pauseListeners();
+		toUnselect.forEach(label -> tagging.removeTagFromLabel(LabelEditorTag.SELECTED, label));
+		toSelect.forEach(label -> tagging.addTagToLabel(LabelEditorTag.SELECTED, label));
+		tagging.resumeListeners();
+	}
+
+	/**
+	 * Adds the tag to all labels of the given scope matching the query.
+	 */
+	public <L> void tag(LabelEditorModel<L> model, Object tag, Set<L> scope) {
+		LabelEditorTagging<L> tagging = model.tagging();
+		Set<L> matching = filter(tagging, scope);
+		tagging.pauseListeners();
+		matching.forEach(label -> tagging.addTagToLabel(tag, label));
+		tagging.resumeListeners();
+	}
+
+	/**
+	 * Adds the tag to all labels of the given scope matching the query and displays it with the given face color.
+	 */
+	public <L> void color(LabelEditorModel<L> model, Object tag, int color, Set<L> scope) {
+		model.colors().getFaceColor(tag).set(color);
+		tag(model, tag, scope);
+	}
+
+	@Override
+	public String toString() {
+		return query;
+	}
+
+	private interface Node {
+		BitSet rows(DefaultLabelEditorTagging<?> tagging, int numRows);
+		<L> boolean test(LabelEditorTagging<L> tagging, L label);
+	}
+
+	private static Object resolve(LabelEditorTagging<?> tagging, String name) {
+		for (Object tag : tagging.getAllTags()) {
+			if(name.equals(tag.toString())) return tag;
+		}
+		return null;
+	}
+
+	private static class TagNode implements Node {
+		private final String name;
+
+		TagNode(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public BitSet rows(DefaultLabelEditorTagging<?> tagging, int numRows) {
+			Object tag = resolve(tagging, name);
+			return tag == null ? new BitSet() : tagging.getRowsWithTag(tag);
+		}
+
+		@Override
+		public <L> boolean test(LabelEditorTagging<L> tagging, L label) {
+			if(label == null) return false;
+			Object tag = resolve(tagging, name);
+			return tag != null && tagging.getValue(tag, label) != null;
+		}
+	}
+
+	private static class ComparisonNode implements Node {
+		private final String name;
+		private final DoublePredicate condition;
+
+		ComparisonNode(String name, DoublePredicate condition) {
+			this.name = name;
+			this.condition = condition;
+		}
+
+		@Override
+		public BitSet rows(DefaultLabelEditorTagging<?> tagging, int numRows) {
+			Object tag = resolve(tagging, name);
+			return tag == null ? new BitSet() : tagging.getRowsWithValue(tag, condition);
+		}
+
+		@Override
+		public <L> boolean test(LabelEditorTagging<L> tagging, L label) {
+			if(label == null) return false;
+			Object tag = resolve(tagging, name);
+			if(tag == null) return false;
+			Object value = tagging.getValue(tag, label);
+			if(!(value instanceof RealType)) return false;
+			double realValue = ((RealType<?>) value).getRealDouble();
+			return !Double.isNaN(realValue) && condition.test(realValue);
+		}
+	}
+
+	private static class NotNode implements Node {
+		private final Node child;
+
+		NotNode(Node child) {
+			this.child = child;
+		}
+
+		@Override
+		public BitSet rows(DefaultLabelEditorTagging<?> tagging, int numRows) {
+			BitSet res = child.rows(tagging, numRows);
+			res.flip(0, numRows);
+			return res;
+		}
+
+		@Override
+		public <L> boolean test(LabelEditorTagging<L> tagging, L label) {
+			return !child.test(tagging, label);
+		}
+	}
+
+	private static class AndNode implements Node {
+		private final List<Node> children;
+
+		AndNode(List<Node> children) {
+			this.children = children;
+		}
+
+		@Override
+		public BitSet rows(DefaultLabelEditorTagging<?> tagging, int numRows) {
+			BitSet res = children.get(0).rows(tagging, numRows);
+			for (int i = 1; i < children.size() && !res.isEmpty(); i++) {
+				res.and(children.get(i).rows(tagging, numRows));
+			}
+			return res;
+		}
+
+		@Override
+		public <L> boolean test(LabelEditorTagging<L> tagging, L label) {
+			for (Node child : children) {
+				if(!child.test(tagging, label)) return false;
+			}
+			return true;
+		}
+	}
+
+	private static class OrNode implements Node {
+		private final List<Node> children;
+
+		OrNode(List<Node> children) {
+			this.children = children;
+		}
+
+		@Override
+		public BitSet rows(DefaultLabelEditorTagging<?> tagging, int numRows) {
+			BitSet res = children.get(0).rows(tagging, numRows);
+			for (int i = 1; i < children.size(); i++) {
+				res.or(children.get(i).rows(tagging, numRows));
+			}
+			return res;
+		}
+
+		@Override
+		public <L> boolean test(LabelEditorTagging<L> tagging, L label) {
+			for (Node child : children) {
+				if(child.test(tagging, label)) return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Recursive descent parser for
+	 * <pre>
+	 * or         := and ( OR and )*
+	 * and        := not ( AND not )*
+	 * not        := NOT not | primary
+	 * primary    := '(' or ')' | name [ comparator number ]
+	 * </pre>
+	 */
+	private static class Parser {
+
+		private static final String[] COMPARATORS = {"<=", ">=", "==", "!=", "<", ">", "="};
+
+		private final String query;
+		private int position = 0;
+
+		Parser(String query) {
+			this.query = query;
+		}
+
+		Node parse() {
+			Node res = parseOr();
+			skipWhitespace();
+			if(position < query.length()) throw error("Unexpected '" + query.charAt(position) + "'");
+			return res;
+		}
+
+		private Node parseOr() {
+			List<Node> children = new ArrayList<>();
+			children.add(parseAnd());
+			while(acceptKeyword("OR") || accept("||")) children.add(parseAnd());
+			return children.size() == 1 ? children.get(0) : new OrNode(children);
+		}
+
+		private Node parseAnd() {
+			List<Node> children = new ArrayList<>();
+			children.add(parseNot());
+			while(acceptKeyword("AND") || accept("&&")) children.add(parseNot());
+			return children.size() == 1 ? children.get(0) : new AndNode(children);
+		}
+
+		private Node parseNot() {
+			if(acceptKeyword("NOT") || (!peek("!=") && accept("!"))) return new NotNode(parseNot());
+			return parsePrimary();
+		}
+
+		private Node parsePrimary() {
+			if(accept("(")) {
+				Node res = parseOr();
+				if(!accept(")")) throw error("Missing ')'");
+				return res;
+			}
+			String name = parseName();
+			for (String comparator : COMPARATORS) {
+				if(accept(comparator)) {
+					return new ComparisonNode(name, makeCondition(comparator, parseNumber()));
+				}
+			}
+			return new TagNode(name);
+		}
+
+		private String parseName() {
+			skipWhitespace();
+			if(accept("\"")) {
+				int end = query.indexOf('"', position);
+				if(end < 0) throw error("Missing '\"'");
+				String res = query.substring(position, end);
+				position = end + 1;
+				return res;
+			}
+			int start = position;
+			while(position < query.length() && isNameChar(query.charAt(position))) position++;
+			if(start == position) throw error("Expected a tag name");
+			return query.substring(start, position);
+		}
+
+		private double parseNumber() {
+			skipWhitespace();
+			int start = position;
+			while(position < query.length() && "+-.eE0123456789".indexOf(query.charAt(position)) >= 0) position++;
+			try {
+				return Double.parseDouble(query.substring(start, position));
+			} catch (NumberFormatException e) {
+				throw error("Expected a number");
+			}
+		}
+
+		private static DoublePredicate makeCondition(String comparator, double value) {
+			switch (comparator) {
+				case "<=": return v -> v <= value;
+				case ">=": return v -> v >= value;
+				case "!=": return v -> v != value;
+				case "<": return v -> v < value;
+				case ">": return v -> v > value;
+				default: return v -> v == value;
+			}
+		}
+
+		private static boolean isNameChar(char c) {
+			return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-';
+		}
+
+		private boolean acceptKeyword(String keyword) {
+			skipWhitespace();
+			int end = position + keyword.length();
+			if(end > query.length() || !query.substring(position, end).equalsIgnoreCase(keyword)) return false;
+			if(end < query.length() && isNameChar(query.charAt(end))) return false;
+			position = end;
+			return true;
+		}
+
+		private boolean peek(String token) {
+			skipWhitespace();
+			return query.startsWith(token, position);
+		}
+
+		private boolean accept(String token) {
+			if(!peek(token)) return false;
+			position += token.length();
+			return true;
+		}
+
+		private void skipWhitespace() {
+			while(position < query.length() && Character.isWhitespace(query.charAt(position))) position++;
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + position + " of query '" + query + "'");
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Sparse counts of non-negative long keys, stored in an open addressing hash table without boxing.
+ * Keys are typically pairs of non-negative ints, e.g. label set indices, see {@link #key(int, int)}.
+ */
+public class LongCounts {
+
+	private static final long EMPTY = -1;
+
+	private long[] keys;
+	private long[] counts;
+	private int size = 0;
+
+	public LongCounts() {
+		this(64);
+	}
+
+	public LongCounts(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new long[capacity];
+		counts = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	public static long key(int a, int b) {
+		return ((long) a << 32) | (b & 0xffffffffL);
+	}
+
+	public static int first(long key) {
+		return (int) (key >>> 32);
+	}
+
+	public static int second(long key) {
+		return (int) key;
+	}
+
+	public void add(long key, long count) {
+		int slot = slot(key, keys);
+		if(keys[slot] == EMPTY) {
+			keys[slot] = key;
+			if(++size * 2 > keys.length) grow();
+			slot = slot(key, keys);
+		}
+		counts[slot] += count;
+	}
+
+	public void addAll(LongCounts other) {
+		for (int i = 0; i < other.keys.length; i++) {
+			if(other.keys[i] != EMPTY) add(other.keys[i], other.counts[i]);
+		}
+	}
+
+	public long get(long key) {
+		int slot = slot(key, keys);
+		return keys[slot] == EMPTY ? 0 : counts[slot];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void forEach(Consumer consumer) {
+		for (int i = 0; i < keys.length; i++) {
+			if(keys[i] != EMPTY) consumer.accept(keys[i], counts[i]);
+		}
+	}
+
+	public interface Consumer {
+		void accept(long key, long count);
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		long[] oldCounts = counts;
+		keys = new long[oldKeys.length * 2];
+		counts = new long[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if(oldKeys[i] == EMPTY) continue;
+			int slot = slot(oldKeys[i], keys);
+			keys[slot] = oldKeys[i];
+			counts[slot] = oldCounts[i];
+		}
+	}
+
+	private static int slot(long key, long[] keys) {
+		int mask = keys.length - 1;
+		long hash = key * 0x9E3779B97F4A7C15L;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		while(keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+}
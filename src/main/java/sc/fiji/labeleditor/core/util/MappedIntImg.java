@@ -0,0 +1,168 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.util;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Int image stored in a memory mapped file, cell by cell.
+ * Pixels are read and written directly in the mapped file without copying, the operating system decides which parts
+ * of the file are held in memory, so images larger than the heap (and larger than 2^31 pixels) can be edited.
+ * The file is mapped in regions of up to 2 GB, each region holding a whole number of cells.
+ * All cells have the full cell size in the file, cells at the border of the image only use their first pixels.
+ * A new file is filled with zeros. Changes are written to the file by the operating system, {@link #flush()} forces this.
+ */
+public class MappedIntImg implements Closeable {
+
+	private static final long MAX_REGION_BYTES = Integer.MAX_VALUE;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final CellGrid grid;
+	private final long length;
+	private final int cellBytes;
+	private final int cellsPerRegion;
+	private final AtomicReferenceArray<MappedByteBuffer> regions;
+	private final LazyCellImg<IntType, MappedIntAccess> img;
+
+	private MappedIntImg(File file, long[] dimensions, int[] cellDimensions, boolean create) throws IOException {
+		long cellSize = 4 * Intervals.numElements(cellDimensions);
+		if(cellSize > MAX_REGION_BYTES) {
+			throw new IllegalArgumentException("Cells of size " + cellSize + " bytes are too large to be mapped.");
+		}
+		this.grid = new CellGrid(dimensions, cellDimensions);
+		this.cellBytes = (int) cellSize;
+		this.cellsPerRegion = (int) (MAX_REGION_BYTES / cellBytes);
+		long numCells = Intervals.numElements(grid.getGridDimensions());
+		this.length = numCells * cellBytes;
+		this.regions = new AtomicReferenceArray<>((int) ((numCells + cellsPerRegion - 1) / cellsPerRegion));
+		this.file = new RandomAccessFile(file, "rw");
+		if(create) {
+			this.file.setLength(0);
+			this.file.setLength(length);
+		} else if(this.file.length() != length) {
+			this.file.close();
+			throw new IOException("Size of " + file + " (" + this.file.length() + " bytes) does not match the image dimensions (" + length + " bytes).");
+		}
+		this.channel = this.file.getChannel();
+		this.img = new LazyCellImg<>(grid, new IntType(), this::getCell);
+	}
+
+	/**
+	 * Creates a new file of the given dimensions, an existing file is overwritten.
+	 */
+	public static MappedIntImg create(File file, long[] dimensions, int[] cellDimensions) throws IOException {
+		return new MappedIntImg(file, dimensions, cellDimensions, true);
+	}
+
+	/**
+	 * Maps an existing file, dimensions and cell dimensions have to be the ones the file was created with.
+	 */
+	public static MappedIntImg open(File file, long[] dimensions, int[] cellDimensions) throws IOException {
+		return new MappedIntImg(file, dimensions, cellDimensions, false);
+	}
+
+	public Img<IntType> getImg() {
+		return img;
+	}
+
+	public CellGrid getGrid() {
+		return grid;
+	}
+
+	private Cell<MappedIntAccess> getCell(long index) {
+		int n = grid.numDimensions();
+		long[] cellMin = new long[n];
+		int[] cellDimensions = new int[n];
+		grid.getCellDimensions(index, cellMin, cellDimensions);
+		ByteBuffer buffer = getRegion((int) (index / cellsPerRegion)).duplicate();
+		int offset = (int) (index % cellsPerRegion) * cellBytes;
+		// cast for Java 8 compatibility of the compiled code
+		((Buffer) buffer).position(offset);
+		((Buffer) buffer).limit(offset + cellBytes);
+		return new Cell<>(cellDimensions, cellMin, new MappedIntAccess(buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer()));
+	}
+
+	private MappedByteBuffer getRegion(int index) {
+		MappedByteBuffer region = regions.get(index);
+		if(region != null) return region;
+		synchronized (regions) {
+			region = regions.get(index);
+			if(region == null) {
+				long start = (long) index * cellsPerRegion * cellBytes;
+				long size = Math.min(length - start, (long) cellsPerRegion * cellBytes);
+				try {
+					region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				regions.set(index, region);
+			}
+			return region;
+		}
+	}
+
+	/**
+	 * Writes all modified pixels to the file.
+	 */
+	public void flush() {
+		for (int i = 0; i < regions.length(); i++) {
+			MappedByteBuffer region = regions.get(i);
+			if(region != null) region.force();
+		}
+	}
+
+	/**
+	 * Flushes and closes the file. Mapped regions are released by the garbage collector,
+	 * the image must not be used afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+		channel.close();
+		file.close();
+	}
+}
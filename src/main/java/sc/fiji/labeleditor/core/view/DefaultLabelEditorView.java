@@ -33,6 +33,7 @@ import org.scijava.InstantiableException;
 import org.scijava.listeners.Listeners;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.PluginInfo;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
 import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
 import sc.fiji.labeleditor.core.model.colors.ColorChangedEvent;
@@ -40,9 +41,17 @@ import sc.fiji.labeleditor.core.model.tagging.TagChangedEvent;
 import sc.fiji.labeleditor.plugin.renderers.BorderLabelEditorRenderer;
 import sc.fiji.labeleditor.plugin.renderers.DefaultLabelEditorRenderer;
 
+import net.imglib2.Interval;
+import net.imglib2.roi.labeling.LabelingMapping;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class DefaultLabelEditorView<L> implements LabelEditorView<L> {
 
@@ -53,6 +62,9 @@ public class DefaultLabelEditorView<L> implements LabelEditorView<L> {
 	private final List<LabelEditorRenderer<L>> renderers = new ArrayList<>();
 	private final Listeners.List<ViewChangeListener> listeners = new Listeners.SynchronizedList<>();
 	private boolean listenersPaused = false;
+	private Map<L, int[]> setIndicesByLabel;
+	private Set<L> highlighted = Collections.emptySet();
+	private int setIndicesNumSets = -1;
 
 	public DefaultLabelEditorView(LabelEditorModel<L> model) {
 		this.model = model;
@@ -78,15 +90,71 @@ public class DefaultLabelEditorView<L> implements LabelEditorView<L> {
 		notifyListeners();
 	}
 
-	private void onLabelingChange(LabelingChangedEvent e) {
+	@Override
+	public synchronized void setHighlighted(Set<L> labels) {
 		if(model == null || model.labeling() == null) return;
+		highlight(labels);
+		notifyListeners();
+	}
+
+	private void highlight(Set<L> labels) {
+		highlighted = labels;
+		BitSet setIndices = new BitSet();
+		if(!labels.isEmpty()) {
+			Map<L, int[]> indices = getSetIndicesByLabel();
+			for (L label : labels) {
+				int[] labelIndices = indices.get(label);
+				if(labelIndices == null) continue;
+				for (int i = 1; i <= labelIndices[0]; i++) setIndices.set(labelIndices[i]);
+			}
+		}
 		renderers.forEach(renderer -> {
-			if(renderer.isActive()) {
-				renderer.updateOnLabelingChange();
-				renderer.updateOnTagChange(model);
+			if(renderer.isActive()) renderer.updateOnHighlight(model, labels, setIndices);
+		});
+	}
+
+	/**
+	 * @return for each label the set indices containing it, the first entry of each array being the number of indices
+	 */
+	private Map<L, int[]> getSetIndicesByLabel() {
+		LabelingMapping<L> mapping = model.labeling().getMapping();
+		int numSets = mapping.numSets();
+		if(setIndicesByLabel != null && setIndicesNumSets == numSets) return setIndicesByLabel;
+		Map<L, int[]> res = new HashMap<>();
+		for (int i = 0; i < numSets; i++) {
+			for (L label : mapping.labelsAtIndex(i)) {
+				int[] indices = res.get(label);
+				if(indices == null) {
+					indices = new int[4];
+					res.put(label, indices);
+				} else if(indices[0] + 1 == indices.length) {
+					indices = Arrays.copyOf(indices, indices.length * 2);
+					res.put(label, indices);
+				}
+				indices[++indices[0]] = i;
 			}
+		}
+		setIndicesByLabel = res;
+		setIndicesNumSets = numSets;
+		return res;
+	}
+
+	private void onLabelingChange(LabelingChangedEvent<L> e) {
+		if(model == null || model.labeling() == null) return;
+		renderers.forEach(renderer -> {
+			if(renderer.isActive()) renderer.updateOnLabelingChange(model, e);
 		});
-		notifyListeners();
+		synchronized (this) {
+			if(e.getSetIndices() == null) {
+				// set indices might have been reassigned, e.g. by compaction
+				setIndicesByLabel = null;
+				if(!highlighted.isEmpty()) highlight(highlighted);
+			} else if(!highlighted.isEmpty() && model.labeling().getMapping().numSets() != setIndicesNumSets) {
+				// new sets might contain highlighted labels
+				highlight(highlighted);
+			}
+		}
+		notifyListeners(e.getInterval());
 	}
 
 	public List<LabelEditorRenderer<L>> renderers() {
@@ -98,8 +166,15 @@ public class DefaultLabelEditorView<L> implements LabelEditorView<L> {
 	}
 
 	private void notifyListeners() {
+		notifyListeners(null);
+	}
+
+	private void notifyListeners(Interval interval) {
 		if(listenersPaused) return;
-		listeners.list.forEach(listener -> listener.viewChanged(new ViewChangedEvent()));
+		long start = model.metrics().start();
+		ViewChangedEvent event = new ViewChangedEvent(model, interval);
+		listeners.list.forEach(listener -> listener.viewChanged(event));
+		model.metrics().stop(LabelEditorMetrics.VIEW_EVENTS, start);
 	}
 
 	public void addDefaultRenderers() {
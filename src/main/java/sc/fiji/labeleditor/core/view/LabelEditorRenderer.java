@@ -32,11 +32,33 @@ import net.imglib2.RandomAccessibleInterval;
 import org.scijava.plugin.Plugin;
 import org.scijava.plugin.SciJavaPlugin;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
+
+import java.util.BitSet;
+import java.util.Set;
 
 public interface LabelEditorRenderer<L> extends SciJavaPlugin {
 	void init(LabelEditorModel<L> model);
 	void updateOnTagChange(LabelEditorModel<L> model);
 	void updateOnLabelingChange();
+
+	/**
+	 * Called when the labeling was modified, the event describes which part of the labeling changed.
+	 * By default, the renderer is updated completely.
+	 */
+	default void updateOnLabelingChange(LabelEditorModel<L> model, LabelingChangedEvent<L> event) {
+		updateOnLabelingChange();
+		updateOnTagChange(model);
+	}
+
+	/**
+	 * Called when the labels highlighted by hovering change.
+	 * Renderers should apply the highlight without rebuilding their complete state.
+	 * @param labels the highlighted labels, empty if nothing is highlighted
+	 * @param setIndices the label set indices containing any of the highlighted labels
+	 */
+	default void updateOnHighlight(LabelEditorModel<L> model, Set<L> labels, BitSet setIndices) {}
+
 	void setActive(boolean active);
 	boolean isActive();
 
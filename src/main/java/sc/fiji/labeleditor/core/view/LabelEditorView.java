@@ -31,11 +31,18 @@ package sc.fiji.labeleditor.core.view;
 import org.scijava.listeners.Listeners;
 
 import java.util.List;
+import java.util.Set;
 
 public interface LabelEditorView<L> {
 
 	void updateRenderers();
 
+	/**
+	 * Highlights the given labels in all renderers, e.g. while hovering, without changing their tags.
+	 * Views without highlighting support ignore this.
+	 */
+	default void setHighlighted(Set<L> labels) {}
+
 	List< LabelEditorRenderer<L> > renderers();
 
 	Listeners< ViewChangeListener > listeners();
@@ -28,5 +28,19 @@
  */
 package sc.fiji.labeleditor.core.view;
 
+import net.imglib2.Interval;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+
 public class ViewChangedEvent {
+	public LabelEditorModel model;
+	/** the changed region in labeling coordinates, null if the whole view changed */
+	public Interval interval;
+
+	public ViewChangedEvent() {
+	}
+
+	public ViewChangedEvent(LabelEditorModel model, Interval interval) {
+		this.model = model;
+		this.interval = interval;
+	}
 }
@@ -0,0 +1,286 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.batch;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
+import sc.fiji.labeleditor.plugin.renderers.BorderLabelEditorRenderer;
+import sc.fiji.labeleditor.plugin.renderers.ColorMixingUtils;
+import sc.fiji.labeleditor.plugin.renderers.DefaultLabelEditorRenderer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Applies feature computation and {@link TagRule}s to many label maps without any display.
+ * Label maps are read, processed and written by a fixed number of workers,
+ * so only as many labelings as there are workers are held in memory at the same time.
+ * For each input, a CSV table of the label features and tags is written to the output directory,
+ * optionally together with the rendered faces and borders as PNG (one file per 2D plane).
+ */
+public class LabelEditorBatch {
+
+	public interface Reader {
+		RandomAccessibleInterval<? extends IntegerType<?>> read(File file) throws IOException;
+	}
+
+	public static class Result {
+		private final File input;
+		private int numLabels;
+		private final Map<Object, Integer> tagCounts = new HashMap<>();
+		private long duration;
+		private Exception error;
+
+		Result(File input) {
+			this.input = input;
+		}
+
+		public File getInput() {
+			return input;
+		}
+
+		public int getNumLabels() {
+			return numLabels;
+		}
+
+		public Map<Object, Integer> getTagCounts() {
+			return Collections.unmodifiableMap(tagCounts);
+		}
+
+		public long getDuration() {
+			return duration;
+		}
+
+		public Exception getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			if(error != null) return input.getName() + ": failed (" + error.getMessage() + ")";
+			return input.getName() + ": " + numLabels + " labels, tags " + tagCounts + " (" + duration + " ms)";
+		}
+	}
+
+	private final Reader reader;
+	private final List<TagRule> rules = new ArrayList<>();
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private boolean render = false;
+	private boolean neighbors = false;
+	private Consumer<Result> progressListener = result -> {};
+
+	public LabelEditorBatch(Reader reader) {
+		this.reader = reader;
+	}
+
+	public LabelEditorBatch addRule(TagRule rule) {
+		rules.add(rule);
+		return this;
+	}
+
+	public LabelEditorBatch setNumThreads(int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+		return this;
+	}
+
+	public LabelEditorBatch setRender(boolean render) {
+		this.render = render;
+		return this;
+	}
+
+	/**
+	 * @param neighbors whether to compute the number of touching labels, stored as {@link LabelFeatures#NEIGHBORS}
+	 */
+	public LabelEditorBatch setNeighbors(boolean neighbors) {
+		this.neighbors = neighbors;
+		return this;
+	}
+
+	/**
+	 * @param listener called from the worker threads after each processed input
+	 */
+	public LabelEditorBatch setProgressListener(Consumer<Result> listener) {
+		this.progressListener = listener;
+		return this;
+	}
+
+	public static List<File> listFiles(File directory, String suffix) {
+		File[] files = directory.listFiles(file -> file.isFile() && file.getName().endsWith(suffix));
+		if(files == null) return Collections.emptyList();
+		Arrays.sort(files);
+		return Arrays.asList(files);
+	}
+
+	public List<Result> process(List<File> inputs, File outputDirectory) throws InterruptedException {
+		if(!outputDirectory.exists() && !outputDirectory.mkdirs()) {
+			throw new IllegalArgumentException("Cannot create output directory " + outputDirectory);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, Math.max(1, inputs.size())));
+		try {
+			List<Future<Result>> futures = new ArrayList<>();
+			for (File input : inputs) {
+				futures.add(executor.submit(() -> process(input, outputDirectory)));
+			}
+			List<Result> results = new ArrayList<>();
+			for (Future<Result> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	public Result process(File input, File outputDirectory) {
+		Result result = new Result(input);
+		long start = System.currentTimeMillis();
+		try {
+			DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.initFromLabelMap(reader.read(input));
+			model.setName(input.getName());
+			process(model);
+			String name = baseName(input);
+			writeTable(model, new File(outputDirectory, name + ".csv"), neighbors);
+			if(render) writeRendering(model, outputDirectory, name);
+			Set<IntType> labels = model.labeling().getMapping().getLabels();
+			result.numLabels = labels.size();
+			for (TagRule rule : rules) {
+				result.tagCounts.put(rule.getTag(), model.tagging().getLabels(rule.getTag()).size());
+			}
+		} catch (Exception e) {
+			result.error = e;
+		}
+		result.duration = System.currentTimeMillis() - start;
+		progressListener.accept(result);
+		return result;
+	}
+
+	public <L> void process(LabelEditorModel<L> model) {
+		LabelFeatures.compute(model);
+		if(neighbors) LabelFeatures.computeNeighbors(model);
+		rules.forEach(rule -> rule.apply(model));
+	}
+
+	private static <L> void writeTable(LabelEditorModel<L> model, File file, boolean neighbors) throws IOException {
+		List<L> labels = new ArrayList<>(model.labeling().getMapping().getLabels());
+		labels.sort(model.getLabelComparator());
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
+			writer.write(neighbors ? "label,area,mean,neighbors,tags" : "label,area,mean,tags");
+			writer.newLine();
+			for (L label : labels) {
+				writer.write(String.valueOf(label));
+				writer.write(",");
+				writer.write(valueString(model.tagging().getValue(LabelFeatures.AREA, label)));
+				writer.write(",");
+				writer.write(valueString(model.tagging().getValue(LabelFeatures.MEAN, label)));
+				writer.write(",");
+				if(neighbors) {
+					writer.write(valueString(model.tagging().getValue(LabelFeatures.NEIGHBORS, label)));
+					writer.write(",");
+				}
+				StringBuilder tags = new StringBuilder();
+				for (Object tag : model.tagging().getTags(label)) {
+					if(model.tagging().getValue(tag, label) instanceof RealType) continue;
+					if(tags.length() > 0) tags.append(" ");
+					tags.append(tag);
+				}
+				writer.write(tags.toString());
+				writer.newLine();
+			}
+		}
+	}
+
+	private static String valueString(Object value) {
+		if(value instanceof RealType) return String.valueOf(((RealType<?>) value).getRealDouble());
+		return "";
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <L> void writeRendering(LabelEditorModel<L> model, File outputDirectory, String name) throws IOException {
+		List<LabelEditorRenderer<L>> renderers = Arrays.asList(new DefaultLabelEditorRenderer<>(), new BorderLabelEditorRenderer<>());
+		List<Cursor<ARGBType>> cursors = new ArrayList<>();
+		for (LabelEditorRenderer<L> renderer : renderers) {
+			renderer.init(model);
+			renderer.updateOnTagChange(model);
+			cursors.add(Views.flatIterable((RandomAccessibleInterval<ARGBType>) renderer.getOutput()).cursor());
+		}
+		int width = (int) model.labeling().dimension(0);
+		int height = model.labeling().numDimensions() > 1 ? (int) model.labeling().dimension(1) : 1;
+		long numPlanes = Intervals.numElements(model.labeling()) / ((long) width * height);
+		int[] layers = new int[cursors.size()];
+		for (long plane = 0; plane < numPlanes; plane++) {
+			BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			for (int i = 0; i < pixels.length; i++) {
+				// later renderers are drawn on top
+				for (int j = 0; j < layers.length; j++) {
+					layers[j] = cursors.get(layers.length - 1 - j).next().get();
+				}
+				pixels[i] = ColorMixingUtils.mixColorsOverlay(layers);
+			}
+			String fileName = numPlanes == 1 ? name + ".png" : String.format("%s_%05d.png", name, plane);
+			ImageIO.write(image, "png", new File(outputDirectory, fileName));
+		}
+	}
+
+	private static String baseName(File file) {
+		String name = file.getName();
+		int extension = name.lastIndexOf('.');
+		return extension > 0 ? name.substring(0, extension) : name;
+	}
+}
@@ -0,0 +1,125 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.batch;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes basic label features in a single pass over the index image and stores them as value tags.
+ * The mean intensity is only computed if the model data has the same dimensions as the labeling.
+ */
+public class LabelFeatures {
+
+	public static final String AREA = "area";
+	public static final String MEAN = "mean";
+	public static final String BORDER = "border";
+	public static final String NEIGHBORS = "neighbors";
+
+	public static <L> void compute(LabelEditorModel<L> model) {
+		ImgLabeling<L, ? extends IntegerType<?>> labeling = model.labeling();
+		LabelingMapping<L> mapping = labeling.getMapping();
+		int numSets = mapping.numSets();
+		long[] area = new long[numSets];
+		double[] sum = new double[numSets];
+		boolean[] border = new boolean[numSets];
+
+		RandomAccessibleInterval<?> data = model.getData();
+		boolean hasData = data != null
+				&& Intervals.equalDimensions(data, labeling)
+				&& data.randomAccess().get() instanceof RealType;
+		Cursor<? extends IntegerType<?>> cursor = Views.flatIterable(labeling.getIndexImg()).localizingCursor();
+		Cursor<?> dataCursor = hasData ? Views.flatIterable(data).cursor() : null;
+		long[] min = Intervals.minAsLongArray(labeling);
+		long[] max = Intervals.maxAsLongArray(labeling);
+		while(cursor.hasNext()) {
+			int index = cursor.next().getInteger();
+			if(hasData) sum[index] += ((RealType<?>) dataCursor.next()).getRealDouble();
+			area[index]++;
+			if(!border[index]) border[index] = onBorder(cursor, min, max);
+		}
+
+		Map<L, double[]> features = new HashMap<>();
+		for (int i = 0; i < numSets; i++) {
+			if(area[i] == 0) continue;
+			for (L label : mapping.labelsAtIndex(i)) {
+				double[] labelFeatures = features.computeIfAbsent(label, l -> new double[3]);
+				labelFeatures[0] += area[i];
+				labelFeatures[1] += sum[i];
+				if(border[i]) labelFeatures[2] = 1;
+			}
+		}
+
+		LabelEditorTagging<L> tagging = model.tagging();
+		tagging.pauseListeners();
+		features.forEach((label, labelFeatures) -> {
+			tagging.addValueToLabel(AREA, new DoubleType(labelFeatures[0]), label);
+			if(hasData) tagging.addValueToLabel(MEAN, new DoubleType(labelFeatures[1] / labelFeatures[0]), label);
+			if(labelFeatures[2] > 0) tagging.addTagToLabel(BORDER, label);
+		});
+		tagging.resumeListeners();
+	}
+
+	/**
+	 * Stores the number of touching labels of each label, based on the {@link LabelEditorModel#adjacency()} of the model.
+	 */
+	public static <L> void computeNeighbors(LabelEditorModel<L> model) {
+		Map<L, Integer> counts = new HashMap<>();
+		model.adjacency().forEachEdge((label1, label2, boundarySize) -> {
+			counts.merge(label1, 1, Integer::sum);
+			counts.merge(label2, 1, Integer::sum);
+		});
+		LabelEditorTagging<L> tagging = model.tagging();
+		tagging.pauseListeners();
+		for (L label : model.labeling().getMapping().getLabels()) {
+			tagging.addValueToLabel(NEIGHBORS, new DoubleType(counts.getOrDefault(label, 0)), label);
+		}
+		tagging.resumeListeners();
+	}
+
+	private static boolean onBorder(Cursor<?> cursor, long[] min, long[] max) {
+		for (int d = 0; d < min.length; d++) {
+			long pos = cursor.getLongPosition(d);
+			if(pos == min[d] || pos == max[d]) return true;
+		}
+		return false;
+	}
+}
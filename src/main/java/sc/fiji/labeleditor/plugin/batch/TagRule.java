@@ -0,0 +1,76 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.batch;
+
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.tagging.TagQuery;
+
+/**
+ * Adds a tag to all labels matching a {@link TagQuery}.
+ * Rules can be parsed from strings of the form {@code "tag: query"} or {@code "tag #RRGGBB: query"},
+ * e.g. {@code "large #ff0000: area > 500 AND NOT border"}.
+ */
+public class TagRule {
+
+	private final Object tag;
+	private final TagQuery query;
+	private int color = 0;
+
+	public TagRule(Object tag, TagQuery query) {
+		this.tag = tag;
+		this.query = query;
+	}
+
+	public TagRule withColor(int color) {
+		this.color = color;
+		return this;
+	}
+
+	public Object getTag() {
+		return tag;
+	}
+
+	public <L> void apply(LabelEditorModel<L> model) {
+		if(color != 0) query.color(model, tag, color, model.labeling().getMapping().getLabels());
+		else query.tag(model, tag, model.labeling().getMapping().getLabels());
+	}
+
+	public static TagRule parse(String rule) {
+		int separator = rule.indexOf(':');
+		if(separator < 0) throw new IllegalArgumentException("Rule " + rule + " has to be of the form 'tag: query'.");
+		String tag = rule.substring(0, separator).trim();
+		int color = 0;
+		int colorStart = tag.indexOf('#');
+		if(colorStart >= 0) {
+			color = 0xff000000 | Integer.parseInt(tag.substring(colorStart + 1).trim(), 16);
+			tag = tag.substring(0, colorStart).trim();
+		}
+		return new TagRule(tag, TagQuery.compile(rule.substring(separator + 1))).withColor(color);
+	}
+}
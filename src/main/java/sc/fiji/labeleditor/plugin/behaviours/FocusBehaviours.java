@@ -32,16 +32,16 @@ import net.imglib2.roi.labeling.LabelingType;
 import org.scijava.ui.behaviour.util.Behaviours;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
 import sc.fiji.labeleditor.core.controller.LabelEditorBehaviours;
-import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
+import java.util.Collections;
+import java.util.HashSet;
 
 public class FocusBehaviours<L> implements LabelEditorBehaviours<L> {
 
 	protected int currentSegment = -1;
-	private LabelingType<L> lastLabels = null;
 	protected InteractiveLabeling<L> labeling;
 
 	@Override
@@ -66,33 +66,23 @@ public class FocusBehaviours<L> implements LabelEditorBehaviours<L> {
 
 	protected synchronized void focusFirstLabelAtPosition(int x, int y) {
 		try {
-			labeling.model().tagging().pauseListeners();
 			LabelingType<L> labels = labeling.interfaceInstance().findLabelsAtMousePosition(x, y, labeling);
 			if(labels != null) {
-				if(currentSegment == labels.getIndex().getInteger()) {
-					labeling.model().tagging().resumeListeners();
-					return;
-				} else {
-					defocus();
-					focus(labels);
-				}
+				if(currentSegment == labels.getIndex().getInteger()) return;
+				focus(labels);
 			}
-			labeling.model().tagging().resumeListeners();
-		} catch(IndexOutOfBoundsException ignored){
-			labeling.model().tagging().resumeListeners();
-		}
+		} catch(IndexOutOfBoundsException ignored){}
 	}
 
 	protected void defocus() {
-		if(lastLabels == null) return;
-		lastLabels.forEach(label -> labeling.model().tagging().removeTagFromLabel(LabelEditorTag.MOUSE_OVER, label));
-		lastLabels = null;
+		if(currentSegment == -1) return;
+		currentSegment = -1;
+		labeling.view().setHighlighted(Collections.emptySet());
 	}
 
 	protected void focus(LabelingType<L> labels) {
-		labels.forEach(label -> labeling.model().tagging().addTagToLabel(LabelEditorTag.MOUSE_OVER, label));
-		lastLabels = labels;
 		currentSegment = labels.getIndex().getInteger();
+		labeling.view().setHighlighted(new HashSet<>(labels));
 	}
 
 }
@@ -0,0 +1,295 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.behaviours.export;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes images block by block into an N5 container on disk.
+ * Blocks are computed in parallel, each worker only holds the block it is currently writing,
+ * so outputs of any size can be exported with bounded memory.
+ */
+public class ChunkedExport {
+
+	public interface ProgressListener {
+		void progress(long writtenBlocks, long numBlocks);
+	}
+
+	static final String N5_VERSION = "2.5.1";
+	static final String INDEX_DATASET = "index";
+	/** blocks span at most this many dimensions, so that the block volume does not grow with the dimensionality */
+	static final int MAX_BLOCK_DIMENSIONS = 3;
+
+	private final File container;
+	private int blockSize = 64;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private boolean compressed = true;
+	private ProgressListener progressListener = (written, total) -> {};
+
+	public ChunkedExport(File container) {
+		this.container = container;
+	}
+
+	/**
+	 * @param blockSize edge length of the blocks in the first three dimensions, blocks have size 1 in higher dimensions
+	 */
+	public ChunkedExport setBlockSize(int blockSize) {
+		this.blockSize = blockSize;
+		return this;
+	}
+
+	public ChunkedExport setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+		return this;
+	}
+
+	/**
+	 * @param compressed whether blocks are gzip compressed, true by default
+	 */
+	public ChunkedExport setCompressed(boolean compressed) {
+		this.compressed = compressed;
+		return this;
+	}
+
+	public ChunkedExport setProgressListener(ProgressListener listener) {
+		this.progressListener = listener;
+		return this;
+	}
+
+	/**
+	 * Writes the index image of the labeling as dataset {@value #INDEX_DATASET}.
+	 * The label sets of the mapping are stored as attribute {@code labelSets} of the dataset,
+	 * entry i being the labels of set index i.
+	 */
+	public <L> void writeLabeling(ImgLabeling<L, ? extends IntegerType<?>> labeling) throws IOException {
+		write(INDEX_DATASET, labeling.getIndexImg(), ",\"labelSets\":" + toJson(labeling.getMapping()));
+	}
+
+	/**
+	 * Writes an image of integer values as int32 or an ARGB image as uint32 dataset.
+	 */
+	public void write(String dataset, RandomAccessibleInterval<?> img) throws IOException {
+		write(dataset, img, "");
+	}
+
+	private <T> void write(String dataset, RandomAccessibleInterval<?> img, String extraAttributes) throws IOException {
+		Object type = Util.getTypeFromInterval(img);
+		String dataType;
+		ToIntFunction<T> value;
+		if(type instanceof IntegerType) {
+			dataType = "int32";
+			value = pixel -> ((IntegerType<?>) pixel).getInteger();
+		} else if(type instanceof ARGBType) {
+			dataType = "uint32";
+			value = pixel -> ((ARGBType) pixel).get();
+		} else {
+			throw new IllegalArgumentException("Cannot write pixels of type " + type.getClass().getName());
+		}
+		File datasetDir = createDataset(dataset);
+		int[] blockSize = blockSize(img.numDimensions(), this.blockSize);
+		writeText(new File(datasetDir, "attributes.json"), "{\"dimensions\":" + Arrays.toString(Intervals.dimensionsAsLongArray(img))
+				+ ",\"blockSize\":" + Arrays.toString(blockSize)
+				+ ",\"dataType\":\"" + dataType + "\""
+				+ ",\"compression\":" + (compressed ? "{\"type\":\"gzip\",\"level\":-1,\"useZlib\":false}" : "{\"type\":\"raw\"}")
+				+ extraAttributes + "}");
+		writeBlocks(Views.zeroMin((RandomAccessibleInterval<T>) img), datasetDir, blockSize, value);
+	}
+
+	static int[] blockSize(int numDimensions, int edgeLength) {
+		int[] res = new int[numDimensions];
+		Arrays.fill(res, 1);
+		Arrays.fill(res, 0, Math.min(numDimensions, MAX_BLOCK_DIMENSIONS), edgeLength);
+		return res;
+	}
+
+	private File createDataset(String name) throws IOException {
+		File dataset = new File(container, name);
+		mkdirs(dataset);
+		File rootAttributes = new File(container, "attributes.json");
+		if(!rootAttributes.exists()) writeText(rootAttributes, "{\"n5\":\"" + N5_VERSION + "\"}");
+		return dataset;
+	}
+
+	private <T> void writeBlocks(RandomAccessibleInterval<T> img, File dataset, int[] blockSize, ToIntFunction<T> value) throws IOException {
+		long[] gridSize = gridSize(img, blockSize);
+		long numBlocks = Intervals.numElements(gridSize);
+		AtomicLong written = new AtomicLong();
+		progressListener.progress(0, numBlocks);
+		int threads = Math.max(1, numThreads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		// bounds the number of blocks in flight, each holding its encoded bytes
+		CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+		int maxInFlight = 2 * threads;
+		try {
+			int inFlight = 0;
+			for (long i = 0; i < numBlocks; i++) {
+				if(inFlight == maxInFlight) {
+					completion.take().get();
+					inFlight--;
+				}
+				long index = i;
+				completion.submit(() -> {
+					long[] gridPosition = new long[gridSize.length];
+					IntervalIndexer.indexToPosition(index, gridSize, gridPosition);
+					writeBlock(img, blockInterval(img, blockSize, gridPosition), blockFile(dataset, gridPosition), value);
+					progressListener.progress(written.incrementAndGet(), numBlocks);
+					return null;
+				});
+				inFlight++;
+			}
+			for (; inFlight > 0; inFlight--) {
+				completion.take().get();
+			}
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	static long[] gridSize(Interval img, int[] blockSize) {
+		long[] gridSize = new long[img.numDimensions()];
+		for (int d = 0; d < gridSize.length; d++) {
+			gridSize[d] = (img.dimension(d) + blockSize[d] - 1) / blockSize[d];
+		}
+		return gridSize;
+	}
+
+	static Interval blockInterval(Interval img, int[] blockSize, long[] gridPosition) {
+		long[] min = new long[gridPosition.length];
+		long[] max = new long[gridPosition.length];
+		for (int d = 0; d < min.length; d++) {
+			min[d] = gridPosition[d] * blockSize[d];
+			max[d] = Math.min(min[d] + blockSize[d], img.dimension(d)) - 1;
+		}
+		return new FinalInterval(min, max);
+	}
+
+	/**
+	 * Writes a block in the N5 default block format: mode, number of dimensions and block dimensions as header,
+	 * followed by the big endian pixel values, gzip compressed if enabled.
+	 */
+	private <T> void writeBlock(RandomAccessibleInterval<T> img, Interval block, File file, ToIntFunction<T> value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Intervals.numElements(block) * 4 + 64);
+		DataOutputStream header = new DataOutputStream(bytes);
+		header.writeShort(0);
+		header.writeShort(block.numDimensions());
+		for (int d = 0; d < block.numDimensions(); d++) {
+			header.writeInt((int) block.dimension(d));
+		}
+		OutputStream dataStream = compressed ? new GZIPOutputStream(bytes, 1 << 16) : bytes;
+		try (DataOutputStream data = new DataOutputStream(dataStream)) {
+			Cursor<T> cursor = Views.flatIterable(Views.interval(img, block)).cursor();
+			while(cursor.hasNext()) {
+				data.writeInt(value.applyAsInt(cursor.next()));
+			}
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			bytes.writeTo(out);
+		}
+	}
+
+	static File blockFile(File dataset, long[] gridPosition) throws IOException {
+		File dir = dataset;
+		for (int d = 0; d < gridPosition.length - 1; d++) {
+			dir = new File(dir, String.valueOf(gridPosition[d]));
+		}
+		mkdirs(dir);
+		return new File(dir, String.valueOf(gridPosition[gridPosition.length - 1]));
+	}
+
+	private static void mkdirs(File dir) throws IOException {
+		if(!dir.mkdirs() && !dir.isDirectory()) {
+			throw new IOException("Could not create directory " + dir);
+		}
+	}
+
+	private static <L> String toJson(LabelingMapping<L> mapping) {
+		StringJoiner sets = new StringJoiner(",", "[", "]");
+		for (int i = 0; i < mapping.numSets(); i++) {
+			StringJoiner labels = new StringJoiner(",", "[", "]");
+			Set<L> set = mapping.labelsAtIndex(i);
+			set.forEach(label -> labels.add(toJson(String.valueOf(label))));
+			sets.add(labels.toString());
+		}
+		return sets.toString();
+	}
+
+	private static String toJson(String value) {
+		StringBuilder res = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			if(c == '"' || c == '\\') res.append('\\').append(c);
+			else if(c < 0x20) res.append(String.format("\\u%04x", (int) c));
+			else res.append(c);
+		}
+		return res.append('"').toString();
+	}
+
+	private static void writeText(File file, String content) throws IOException {
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			writer.write(content);
+		}
+	}
+}
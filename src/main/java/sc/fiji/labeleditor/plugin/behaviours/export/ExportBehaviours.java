@@ -29,25 +29,25 @@
 package sc.fiji.labeleditor.plugin.behaviours.export;
 
 import net.imglib2.RandomAccessibleInterval;
-import net.imglib2.converter.Converter;
-import net.imglib2.converter.Converters;
-import net.imglib2.roi.labeling.LabelingType;
-import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.IntType;
 import org.scijava.Context;
+import org.scijava.app.StatusService;
 import org.scijava.plugin.Parameter;
 import org.scijava.table.interactive.InteractiveTableDisplayViewer;
 import org.scijava.ui.UIService;
 import org.scijava.ui.behaviour.ClickBehaviour;
 import org.scijava.ui.behaviour.util.Behaviours;
+import org.scijava.widget.FileWidget;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
 import sc.fiji.labeleditor.core.controller.LabelEditorBehaviours;
 import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
 import sc.fiji.labeleditor.plugin.table.LabelEditorTable;
 
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 public class ExportBehaviours implements LabelEditorBehaviours {
 
@@ -57,6 +57,9 @@ public class ExportBehaviours implements LabelEditorBehaviours {
 	@Parameter
 	Context context;
 
+	@Parameter
+	StatusService status;
+
 	private InteractiveLabeling interactiveLabeling;
 
 	@Override
@@ -103,22 +106,8 @@ public class ExportBehaviours implements LabelEditorBehaviours {
 		show(getLabelMap());
 	}
 
-	public <T extends RealType<T>> RandomAccessibleInterval<IntType> getLabelMap() {
-		RandomAccessibleInterval<LabelingType<T>> labeling = interactiveLabeling.model().labeling();
-		Converter<LabelingType<T>, IntType> converter = (i, o) -> {
-			if(i.size() == 0) {
-				o.setZero();
-				return;
-			}
-			List<T> sortedLabels = new ArrayList<>(i);
-			sortedLabels.sort(interactiveLabeling.model().getLabelComparator());
-			try {
-				o.set((int) sortedLabels.get(0).getRealFloat());
-			} catch(ClassCastException e) {
-				o.set((int) (Object)sortedLabels.get(0));
-			}
-		};
-		return Converters.convert(labeling, converter, new IntType());
+	public RandomAccessibleInterval<IntType> getLabelMap() {
+		return interactiveLabeling.model().labelMapLUT().convert();
 	}
 
 	public void showRenderer(LabelEditorRenderer renderer) {
@@ -129,6 +118,38 @@ public class ExportBehaviours implements LabelEditorBehaviours {
 //		ImageJFunctions.show(renderer.getOutput());
 	}
 
+	public void exportToN5() {
+		File container = ui.chooseFile(null, FileWidget.DIRECTORY_STYLE);
+		if(container == null) return;
+		try {
+			exportToN5(container);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Writes the labeling, the label map and the output of all renderers block by block into an N5 container.
+	 */
+	public void exportToN5(File container) throws IOException {
+		ChunkedExport export = new ChunkedExport(container);
+		if(status != null) {
+			export.setProgressListener((written, total) -> status.showProgress((int) written, (int) total));
+		}
+		export.writeLabeling(interactiveLabeling.model().labeling());
+		export.write("labelmap", getLabelMap());
+		Set<String> names = new HashSet<>();
+		for (Object renderer : interactiveLabeling.view().renderers()) {
+			LabelEditorRenderer labelEditorRenderer = (LabelEditorRenderer) renderer;
+			String name = labelEditorRenderer.getName().replaceAll("[^A-Za-z0-9_-]", "_");
+			// different names can be sanitized to the same dataset name
+			String dataset = name;
+			for (int i = 2; !names.add(dataset); i++) dataset = name + "_" + i;
+			export.write("renderers/" + dataset, labelEditorRenderer.getOutput());
+		}
+		if(status != null) status.clearStatus();
+	}
+
 	public void showData() {
 		show(interactiveLabeling.model().getData());
 	}
@@ -142,7 +163,8 @@ public class ExportBehaviours implements LabelEditorBehaviours {
 	}
 
 	public void showTables() {
-		InteractiveTableDisplayViewer viewer = new InteractiveTableDisplayViewer(new LabelEditorTable(interactiveLabeling));
+		LabelEditorTable table = new LabelEditorTable(interactiveLabeling);
+		InteractiveTableDisplayViewer viewer = new InteractiveTableDisplayViewer(table, table.getSelectionModel());
 		viewer.display();
 //		ui.show(new LabelEditorTable(model));
 	}
@@ -28,20 +28,19 @@
  */
 package sc.fiji.labeleditor.plugin.behaviours.export;
 
-import net.imagej.ops.OpService;
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
 import net.imglib2.Interval;
-import net.imglib2.Point;
-import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.Converters;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.loops.LoopBuilder;
 import net.imglib2.roi.labeling.ImgLabeling;
-import net.imglib2.roi.labeling.LabelRegion;
-import net.imglib2.roi.labeling.LabelRegionCursor;
-import net.imglib2.roi.labeling.LabelRegions;
-import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.integer.IntType;
-import net.imglib2.util.Intervals;
 import net.imglib2.view.Views;
 import org.scijava.Context;
 import org.scijava.plugin.Parameter;
@@ -50,9 +49,14 @@ import org.scijava.ui.behaviour.Behaviour;
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
-import sc.fiji.labeleditor.plugin.interfaces.bdv.LabelEditorBdvPanel;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -64,9 +68,6 @@ public class ExportLabels<L> implements Behaviour {
 	@Parameter
 	UIService ui;
 
-	@Parameter
-	OpService ops;
-
 	private final LabelEditorModel<L> model;
 
 	public ExportLabels(LabelEditorModel<L> model) {
@@ -74,63 +75,123 @@ public class ExportLabels<L> implements Behaviour {
 	}
 
 	public void exportSelected() {
-		Set<L> selected = model.tagging().getLabels(LabelEditorTag.SELECTED);
+		LabelEditorModel<L> exportModel = createCopy(model, getSelected());
+		if(exportModel != null) ui.show(exportModel);
+	}
 
-		LabelRegions regions = new LabelRegions<>(model.labeling());
-		Map<L, LabelRegion<L>> regionList = new HashMap<>();
+	/**
+	 * Writes the selected labels cropped to their bounding box into an N5 container, block by block.
+	 */
+	public void exportSelected(ChunkedExport export) throws IOException {
+		LabelEditorModel<L> exportModel = createView(model, getSelected());
+		if(exportModel != null) export.writeLabeling(exportModel.labeling());
+	}
 
-		selected.forEach(label -> {
-			regionList.put(label, regions.getLabelRegion(label));
-		});
-		Interval boundingBox = null;
-		for (LabelRegion<L> region : regionList.values()) {
-			if (boundingBox == null) {
-				boundingBox = region;
-			} else {
-				boundingBox = Intervals.union(boundingBox, region);
-			}
-		}
+	private Set<L> getSelected() {
+		return new HashSet<>(model.tagging().getLabels(LabelEditorTag.SELECTED));
+	}
 
-		ImgLabeling<L, IntType> cropLabeling = createCroppedLabeling(selected, boundingBox, regionList);
+	/**
+	 * Creates a model viewing the given labels of the source model, cropped to the bounding box of the labels.
+	 * Nothing is copied: the index image of the view converts the source set indices on the fly
+	 * to the indices of the source label sets restricted to the given labels.
+	 * The data of the view is the cropped source data.
+	 * The view reflects pixel changes of the source, labels sets added to the source afterwards show up as background.
+	 * The tags of the labels are copied, except for the {@link LabelEditorTag}s of the source interface.
+	 * The view is read-only: pixel changes of its labeling are lost, use {@link #createCopy(LabelEditorModel, Set)}
+	 * to edit the exported labels.
+	 * @return the view or null if none of the labels is present in the source labeling
+	 */
+	public static <L> LabelEditorModel<L> createView(LabelEditorModel<L> model, Set<L> labels) {
+		return create(model, labels, false);
+	}
+
+	/**
+	 * Same as {@link #createView(LabelEditorModel, Set)}, but the index image is copied into a writable image
+	 * so that the exported labels can be modified independently of the source.
+	 * @return the copy or null if none of the labels is present in the source labeling
+	 */
+	public static <L> LabelEditorModel<L> createCopy(LabelEditorModel<L> model, Set<L> labels) {
+		return create(model, labels, true);
+	}
 
+	private static <L> LabelEditorModel<L> create(LabelEditorModel<L> model, Set<L> labels, boolean copy) {
+		LabelingMapping<L> mapping = model.labeling().getMapping();
+		List<Set<L>> labelSets = new ArrayList<>();
+		Map<Set<L>, Integer> setIndices = new HashMap<>();
+		labelSets.add(Collections.emptySet());
+		setIndices.put(Collections.emptySet(), 0);
+		int[] remap = new int[mapping.numSets()];
+		for (int i = 0; i < remap.length; i++) {
+			Set<L> set = new HashSet<>(mapping.labelsAtIndex(i));
+			set.retainAll(labels);
+			Integer index = setIndices.get(set);
+			if(index == null) {
+				index = labelSets.size();
+				labelSets.add(set);
+				setIndices.put(set, index);
+			}
+			remap[i] = index;
+		}
+		RandomAccessibleInterval<? extends IntegerType<?>> indexImg = model.labeling().getIndexImg();
+		Interval boundingBox = boundingBox(indexImg, remap);
+		if(boundingBox == null) return null;
+		Converter<IntegerType<?>, IntType> converter = (in, out) -> {
+			int index = in.getInteger();
+			out.set(index < remap.length ? remap[index] : 0);
+		};
+		RandomAccessibleInterval<IntType> cropIndexImg = Views.zeroMin(Views.interval(
+				Converters.convert((RandomAccessibleInterval<IntegerType<?>>) indexImg, converter, new IntType()), boundingBox));
+		if(copy) {
+			Img<IntType> backing = new ArrayImgFactory<>(new IntType()).create(cropIndexImg);
+			LoopBuilder.setImages(cropIndexImg, backing).forEachPixel((input, output) -> output.set(input));
+			cropIndexImg = backing;
+		}
+		ImgLabeling<L, IntType> cropLabeling = ImgLabeling.fromImageAndLabelSets(cropIndexImg, labelSets);
 		LabelEditorModel<L> exportModel;
 		if(model.getData() != null) {
-			RandomAccessibleInterval data = createCroppedData(boundingBox);
-			exportModel = new DefaultLabelEditorModel<>(cropLabeling, data);
+			exportModel = new DefaultLabelEditorModel<>(cropLabeling, Views.zeroMin(Views.interval(model.getData(), boundingBox)));
 		} else {
 			exportModel = new DefaultLabelEditorModel<>(cropLabeling);
 		}
-		for(L label : exportModel.labeling().getMapping().getLabels()) {
-			Set<Object> oldTags = model.tagging().getTags(label);
-			oldTags.forEach(tag -> exportModel.tagging().addTagToLabel(tag, label));
-		}
-
-		ui.show(exportModel);
-
+		copyTags(labels, model.tagging(), exportModel.tagging());
+		return exportModel;
 	}
 
-	private RandomAccessibleInterval createCroppedData(Interval boundingBox) {
-		return ops.copy().rai(Views.zeroMin(Views.interval(model.getData(), boundingBox)));
+	/**
+	 * @return the bounding box of all pixels with a set index mapped to a non empty set, null if there are none
+	 */
+	private static Interval boundingBox(RandomAccessibleInterval<? extends IntegerType<?>> indexImg, int[] remap) {
+		int n = indexImg.numDimensions();
+		long[] min = new long[n];
+		long[] max = new long[n];
+		long[] position = new long[n];
+		boolean found = false;
+		Cursor<? extends IntegerType<?>> cursor = Views.flatIterable(indexImg).localizingCursor();
+		while(cursor.hasNext()) {
+			int index = cursor.next().getInteger();
+			if(index >= remap.length || remap[index] == 0) continue;
+			cursor.localize(position);
+			for (int d = 0; d < n; d++) {
+				if(!found || position[d] < min[d]) min[d] = position[d];
+				if(!found || position[d] > max[d]) max[d] = position[d];
+			}
+			found = true;
+		}
+		return found ? new FinalInterval(min, max) : null;
 	}
 
-	private ImgLabeling<L, IntType> createCroppedLabeling(Set<L> labels, Interval boundingBox, Map<L, LabelRegion<L>> regionList) {
-		Img<IntType> backing = new ArrayImgFactory<>(new IntType()).create( boundingBox );
-		ImgLabeling<L, IntType> cropLabeling = new ImgLabeling<>(backing);
-		Point offset = new Point(boundingBox.numDimensions());
-		for (int i = 0; i < boundingBox.numDimensions(); i++) {
-			offset.setPosition(-boundingBox.min(i), i);
-		}
-		RandomAccess<LabelingType<L>> outRA = cropLabeling.randomAccess();
-		labels.forEach(label -> {
-			LabelRegion<L> region = regionList.get(label);
-			LabelRegionCursor inCursor = region.localizingCursor();
-			while(inCursor.hasNext()) {
-				inCursor.next();
-				outRA.setPosition(inCursor);
-				outRA.move(offset);
-				outRA.get().add(label);
+	private static <L> void copyTags(Set<L> labels, LabelEditorTagging<L> source, LabelEditorTagging<L> target) {
+		target.pauseListeners();
+		for(L label : labels) {
+			for (Object tag : source.getTags(label)) {
+				// selection, focus etc. belong to the interface of the source
+				if(tag instanceof LabelEditorTag) continue;
+				Object value = source.getValue(tag, label);
+				if(value != null) target.addValueToLabel(tag, value, label);
+				else target.addTagToLabel(tag, label);
 			}
-		});
-		return cropLabeling;
+		}
+		target.resumeListeners();
 	}
 }
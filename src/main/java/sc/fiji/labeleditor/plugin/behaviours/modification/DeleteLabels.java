@@ -28,15 +28,24 @@
  */
 package sc.fiji.labeleditor.plugin.behaviours.modification;
 
-import net.imglib2.IterableInterval;
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
 import net.imglib2.RandomAccessibleInterval;
-import net.imglib2.roi.Regions;
-import net.imglib2.roi.labeling.LabelRegions;
+import net.imglib2.roi.labeling.LabelingMapping;
 import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
 import org.scijava.ui.behaviour.Behaviour;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 public class DeleteLabels<L> implements Behaviour {
@@ -50,21 +59,123 @@ public class DeleteLabels<L> implements Behaviour {
 	public void deleteSelected() {
 		Set<L> selected = labeling.model().tagging().getLabels(LabelEditorTag.SELECTED);
 		selected.forEach(label -> labeling.model().tagging().removeTagFromLabel(LabelEditorTag.SELECTED, label));
-		delete(selected, labeling.getLabelingInScope());
-		labeling.model().notifyLabelingListeners();
+		long start = labeling.model().metrics().start();
+		LabelingChangedEvent.Builder<L> changes = new LabelingChangedEvent.Builder<>();
+		long pixels;
+		synchronized (labeling.model().labeling().getMapping()) {
+			pixels = delete(selected, labeling.getLabelingInScope(), changes);
+		}
+		labeling.model().metrics().stop(LabelEditorMetrics.MODIFICATION, start, pixels);
+		if(pixels > 0) labeling.model().notifyLabelingListeners(changes.build(labeling::toLabelingInterval));
+	}
+
+	static <L> long delete(Set<L> labels, RandomAccessibleInterval<LabelingType<L>> labeling) {
+		return delete(labels, labeling, null);
 	}
 
-	private static <L> void delete(Set<L> labels, RandomAccessibleInterval<LabelingType<L>> labeling) {
-		LabelRegions<L> regions = new LabelRegions<>(labeling);
-		for (L label : labels) {
-			IterableInterval<LabelingType<L>> sample = Regions.sample(regions.getLabelRegion(label), labeling);
-			sample.forEach(pixel -> pixel.remove(label));
+	/**
+	 * @param changes if not null, collects the modified region and the written set indices
+	 */
+	static <L> long delete(Set<L> labels, RandomAccessibleInterval<LabelingType<L>> labeling, LabelingChangedEvent.Builder<L> changes) {
+		if(labels.isEmpty()) return 0;
+		int[] remap = remap(labels, labeling);
+		if(remap == null) return 0;
+		long pixels = rewrite(labeling, remap, changes);
+		if(changes != null && pixels > 0) {
+			for (int i = 0; i < remap.length; i++) {
+				if(remap[i] >= 0) changes.setIndex(remap[i]);
+			}
+			changes.removed(labels);
 		}
+		return pixels;
 	}
 
 	static <L> void delete(L label, RandomAccessibleInterval<LabelingType<L>> labeling) {
-		LabelRegions<L> regions = new LabelRegions<>(labeling);
-		IterableInterval<LabelingType<L>> sample = Regions.sample(regions.getLabelRegion(label), labeling);
-		sample.forEach(pixel -> pixel.remove(label));
+		delete(Collections.singleton(label), labeling);
+	}
+
+	/**
+	 * Computes the set index every set index of the labeling is mapped to once the given labels are removed.
+	 * Only the sets containing at least one of the labels are looked up in the mapping, all other indices map to -1.
+	 * The filtered sets are interned through a detached labeling variable sharing the mapping, no pixel is touched.
+	 * @return the remapping table or null if none of the labels is part of any set
+	 */
+	static <L> int[] remap(Set<L> labels, RandomAccessibleInterval<LabelingType<L>> labeling) {
+		LabelingType<L> scratch = Util.getTypeFromInterval(labeling).createVariable();
+		LabelingMapping<L> mapping = scratch.getMapping();
+		IntegerType<?> index = scratch.getIndex();
+		int numSets = mapping.numSets();
+		int[] remap = new int[numSets];
+		boolean affected = false;
+		for (int i = 0; i < numSets; i++) {
+			remap[i] = -1;
+			if(Collections.disjoint(mapping.labelsAtIndex(i), labels)) continue;
+			index.setInteger(i);
+			scratch.removeAll(labels);
+			remap[i] = index.getInteger();
+			affected = true;
+		}
+		return affected ? remap : null;
+	}
+
+	/**
+	 * Rewrites the index of every pixel of the labeling according to the remapping table, in parallel chunks.
+	 * @return the number of pixels that changed
+	 */
+	static <L> long rewrite(RandomAccessibleInterval<LabelingType<L>> labeling, int[] remap) {
+		return rewrite(labeling, remap, null);
+	}
+
+	/**
+	 * @param changes if not null, the bounding box of the changed pixels is added to it
+	 */
+	static <L> long rewrite(RandomAccessibleInterval<LabelingType<L>> labeling, int[] remap, LabelingChangedEvent.Builder<L> changes) {
+		return chunks(labeling).parallelStream().mapToLong(chunk -> {
+			long pixels = 0;
+			long[] min = null;
+			long[] max = null;
+			Cursor<LabelingType<L>> cursor = Views.flatIterable(chunk).cursor();
+			while (cursor.hasNext()) {
+				IntegerType<?> index = cursor.next().getIndex();
+				int value = index.getInteger();
+				if(value < remap.length && remap[value] >= 0) {
+					index.setInteger(remap[value]);
+					pixels++;
+					if(changes == null) continue;
+					if(min == null) {
+						min = new long[cursor.numDimensions()];
+						max = new long[cursor.numDimensions()];
+						cursor.localize(min);
+						cursor.localize(max);
+					} else {
+						for (int d = 0; d < min.length; d++) {
+							long pos = cursor.getLongPosition(d);
+							if(pos < min[d]) min[d] = pos;
+							if(pos > max[d]) max[d] = pos;
+						}
+					}
+				}
+			}
+			if(min != null) changes.include(new FinalInterval(min, max));
+			return pixels;
+		}).sum();
+	}
+
+	/**
+	 * Splits the interval into slabs along its last dimension, a few per available processor.
+	 */
+	static <T> List<RandomAccessibleInterval<T>> chunks(RandomAccessibleInterval<T> img) {
+		List<RandomAccessibleInterval<T>> chunks = new ArrayList<>();
+		int dim = img.numDimensions() - 1;
+		long size = img.dimension(dim);
+		int numChunks = (int) Math.max(1, Math.min(size, Runtime.getRuntime().availableProcessors() * 4L));
+		for (int i = 0; i < numChunks; i++) {
+			long[] min = Intervals.minAsLongArray(img);
+			long[] max = Intervals.maxAsLongArray(img);
+			min[dim] = img.min(dim) + size * i / numChunks;
+			max[dim] = img.min(dim) + size * (i + 1) / numChunks - 1;
+			chunks.add(Views.interval(img, min, max));
+		}
+		return chunks;
 	}
 }
@@ -35,8 +35,12 @@ import net.imglib2.roi.labeling.LabelingType;
 import net.imglib2.view.Views;
 import org.scijava.ui.behaviour.Behaviour;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Set;
 
 public class MergeLabels<L> implements Behaviour {
@@ -49,21 +53,36 @@ public class MergeLabels<L> implements Behaviour {
 
 	public void assignSelectedToFirst() {
 		Set<L> selected = labeling.model().tagging().getLabels(LabelEditorTag.SELECTED);
-		assignToFirst(selected, labeling.getLabelingInScope());
-		labeling.model().notifyLabelingListeners();
+		long start = labeling.model().metrics().start();
+		LabelingChangedEvent.Builder<L> changes = new LabelingChangedEvent.Builder<>();
+		long pixels;
+		synchronized (labeling.model().labeling().getMapping()) {
+			pixels = assignToFirst(selected, labeling.getLabelingInScope(), changes);
+		}
+		labeling.model().metrics().stop(LabelEditorMetrics.MODIFICATION, start, pixels);
+		if(pixels > 0) labeling.model().notifyLabelingListeners(changes.build(labeling::toLabelingInterval));
 	}
 
-	private static <L> void assignToFirst(Set<L> labels, RandomAccessibleInterval<LabelingType<L>> labeling) {
+	private static <L> long assignToFirst(Set<L> labels, RandomAccessibleInterval<LabelingType<L>> labeling, LabelingChangedEvent.Builder<L> changes) {
 		L first = labels.iterator().next();
 		labels.remove(first);
+		long pixels = 0;
+		BitSet setIndices = new BitSet();
 		Cursor<LabelingType<L>> cursor = Views.iterable(labeling).cursor();
 		while (cursor.hasNext()) {
 			LabelingType<L> val = cursor.next();
 			if(val.removeAll(labels)) {
 				val.add(first);
+				pixels++;
+				setIndices.set(val.getIndex().getInteger());
+				changes.include(cursor);
 			}
 
 		}
+		setIndices.stream().forEach(changes::setIndex);
+		changes.added(Collections.singleton(first));
+		changes.removed(labels);
+		return pixels;
 	}
 
 }
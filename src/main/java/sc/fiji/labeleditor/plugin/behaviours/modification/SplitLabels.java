@@ -30,16 +30,16 @@ package sc.fiji.labeleditor.plugin.behaviours.modification;
 
 import net.imagej.ops.OpService;
 import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
 import net.imglib2.Interval;
 import net.imglib2.Point;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
-import net.imglib2.algorithm.neighborhood.Neighborhood;
-import net.imglib2.algorithm.neighborhood.RectangleShape;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.array.ArrayImgFactory;
-import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.LongArray;
 import net.imglib2.roi.labeling.ImgLabeling;
 import net.imglib2.roi.labeling.LabelRegion;
 import net.imglib2.roi.labeling.LabelRegionCursor;
@@ -48,9 +48,9 @@ import net.imglib2.roi.labeling.LabelingType;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.logic.BitType;
 import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.IntType;
 import net.imglib2.util.Intervals;
-import net.imglib2.view.IntervalView;
 import net.imglib2.view.Views;
 import org.scijava.command.CommandModule;
 import org.scijava.command.CommandService;
@@ -59,15 +59,38 @@ import org.scijava.ui.UIService;
 import org.scijava.ui.behaviour.Behaviour;
 import sc.fiji.labeleditor.application.InteractiveWatershedCommand;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SplitLabels<L> implements Behaviour {
 
+	/**
+	 * Creates the labels a label is split into.
+	 * Only called from the thread writing the split result back into the labeling.
+	 */
+	public interface LabelFactory<L> {
+		L create(L parent, int part);
+	}
+
 	@Parameter
 	private OpService opService;
 	@Parameter
@@ -77,23 +100,34 @@ public class SplitLabels<L> implements Behaviour {
 
 	private final InteractiveLabeling<L> labeling;
 
+	private double sigma = 1;
+
 	public SplitLabels(InteractiveLabeling<L> labeling) {
 		this.labeling = labeling;
 	}
 
+	public void setSigma(double sigma) {
+		this.sigma = sigma;
+	}
+
 	public void splitSelected() {
 		if(opService == null) {
 			throw new RuntimeException("No OpService available. You have to inject your LabelEditorPanel with a context to use this behaviour.");
 		}
-		Set<L> selected = labeling.model().tagging().getLabels(LabelEditorTag.SELECTED);
-		selected.forEach(label -> {
-			try {
-				splitInteractively(label);
-			} catch (ExecutionException | InterruptedException e) {
-				e.printStackTrace();
-			}
-		});
-		labeling.model().notifyLabelingListeners();
+		if(labeling.model().getData() == null) {
+			throw new RuntimeException("No data available. Splitting labels requires a model with data.");
+		}
+		Set<L> selected = new HashSet<>(labeling.model().tagging().getLabels(LabelEditorTag.SELECTED));
+		if(selected.isEmpty()) return;
+		long start = labeling.model().metrics().start();
+		LabelEditorModel<L> model = labeling.model();
+		LabelingChangedEvent.Builder<L> changes = new LabelingChangedEvent.Builder<>();
+		synchronized (model.labeling().getMapping()) {
+			split(selected, model.labeling(), model.getData(), sigma, opService,
+					defaultLabelFactory(model.labeling().getMapping().getLabels()), model.tagging(), changes);
+		}
+		labeling.model().metrics().stop(LabelEditorMetrics.MODIFICATION, start);
+		labeling.model().notifyLabelingListeners(changes.build());
 	}
 
 	public <T extends NativeType<T>> void splitInteractively(L label) throws ExecutionException, InterruptedException {
@@ -105,23 +139,28 @@ public class SplitLabels<L> implements Behaviour {
 				InteractiveWatershedCommand.class, true,
 				"labeling", cropLabeling,
 				"data", data).get();
-		LabelEditorModel outModel = (LabelEditorModel) out.getOutput("output");
+		LabelEditorModel<L> outModel = (LabelEditorModel<L>) out.getOutput("output");
 		if(outModel != null) {
-			System.out.println("new labels: " + outModel.labeling().getMapping().getLabels().size());
-//			TODO add new labels to model labeling
-//			Set<Object> tags = model.tagging().getTags(label);
-//			newLabeling.forEach(newlabel -> tags.forEach(tag -> model.tagging().addTag(tag, newlabel)));
-			labeling.model().notifyLabelingListeners();
+			ImgLabeling<L, ? extends IntegerType<?>> target = labeling.model().labeling();
+			LabelEditorTagging<L> tagging = labeling.model().tagging();
+			LabelingChangedEvent.Builder<L> changes = new LabelingChangedEvent.Builder<>();
+			synchronized (target.getMapping()) {
+				int numSets = target.getMapping().numSets();
+				Map<L, L> parts = writeBack(label, outModel.labeling(), Intervals.minAsLongArray(region), target,
+						defaultLabelFactory(target.getMapping().getLabels()));
+				changes.include(region).setIndices(numSets, target.getMapping().numSets());
+				if(parts.size() > 1) {
+					tagging.pauseListeners();
+					inheritTags(label, parts.values(), tagging);
+					tagging.resumeListeners();
+					changes.added(parts.values());
+					DeleteLabels.delete(Collections.singleton(label), target, changes);
+				} else {
+					DeleteLabels.delete(new HashSet<>(parts.values()), target, changes);
+				}
+			}
+			labeling.model().notifyLabelingListeners(changes.build());
 		}
-
-
-//		ImgLabeling< Integer, IntType > watershed = new ImgLabeling<>( backing );
-//
-//		IntervalView dataCrop = Views.zeroMin(Views.interval(data, region));
-//		RandomAccessibleInterval gaussCrop = opService.filter().gauss(dataCrop, sigma);
-//		final ImgLabeling<Integer, IntType> seeds = findAndDisplayLocalMaxima(gaussCrop);
-//		Img invertedDataCrop = opService.create().img(Views.iterable(dataCrop));
-//		Set<L> newlabels = split(label, model.labels(), model.getData(), 1, opService);
 	}
 
 	private RandomAccessibleInterval createCroppedData(LabelRegion<L> region) {
@@ -147,35 +186,118 @@ public class SplitLabels<L> implements Behaviour {
 	}
 
 	public static <L> Set<L> split(L label, ImgLabeling<L, ? extends IntegerType<?> > labeling, RandomAccessibleInterval data, double sigma, OpService opService) {
-		LabelRegions regions = new LabelRegions<>(labeling);
-		LabelRegion<Integer> region = regions.getLabelRegion(label);
-		Img<BitType> mask = createMask(opService, region);
-		ImgLabeling<Integer, IntType> watershed = createWatershedResultLabeling(region);
-		Img watershedInput = createWatershedInput(data, sigma, opService, region);
-		final ImgLabeling<Integer, IntType> seeds = findAndDisplayLocalMinima(watershedInput, mask);
-		opService.image().watershed(watershed, watershedInput, seeds, true, false, mask);
-
-		//writing the watershedded values back into the original labeling, with the integer offset to not have duplicate labels
-		IntervalView<LabelingType<L>> labelingCrop = Views.zeroMin(Views.interval(labeling, region));
-		Cursor<LabelingType<Integer>> waterShedCursor = watershed.localizingCursor();
-		RandomAccess<LabelingType<L>> labelingRa = labelingCrop.randomAccess();
-		int startVal = labeling.getMapping().getLabels().size();
-		Set<L> res = new HashSet<>();
-		while(waterShedCursor.hasNext()) {
-			LabelingType<Integer> vals = waterShedCursor.next();
-			labelingRa.setPosition(waterShedCursor);
-			vals.forEach(val -> {
-				L newlabel = (L) new Integer(val + startVal);
-				res.add(newlabel);
-				labelingRa.get().add(newlabel);
-			});
-		}
-		DeleteLabels.delete(label, labeling);
+		Map<L, Set<L>> res = split(Collections.singleton(label), labeling, data, sigma, opService,
+				defaultLabelFactory(labeling.getMapping().getLabels()), null);
+		return res.getOrDefault(label, Collections.emptySet());
+	}
+
+	/**
+	 * Splits the given labels of the model, the new labels inherit the tags of the label they were split from.
+	 * @return the new labels for each label that was split into more than one part
+	 */
+	public static <L> Map<L, Set<L>> split(Set<L> labels, LabelEditorModel<L> model, double sigma, OpService opService) {
+		return split(labels, model.labeling(), model.getData(), sigma, opService,
+				defaultLabelFactory(model.labeling().getMapping().getLabels()), model.tagging());
+	}
+
+	/**
+	 * Splits each label by running a seeded watershed on the data cropped to the bounding box of the label.
+	 * The watersheds run concurrently, the results are written back into the labeling in one batch.
+	 * @param tagging if not null, the new labels inherit the tags of the label they were split from
+	 * @return the new labels for each label that was split into more than one part
+	 */
+	public static <L> Map<L, Set<L>> split(Set<L> labels, ImgLabeling<L, ? extends IntegerType<?> > labeling,
+			RandomAccessibleInterval data, double sigma, OpService opService, LabelFactory<L> labelFactory,
+			LabelEditorTagging<L> tagging) {
+		return split(labels, labeling, data, sigma, opService, labelFactory, tagging, null);
+	}
+
+	/**
+	 * @param changes if not null, collects the modified regions, the written set indices and the added and removed labels
+	 */
+	public static <L> Map<L, Set<L>> split(Set<L> labels, ImgLabeling<L, ? extends IntegerType<?> > labeling,
+			RandomAccessibleInterval data, double sigma, OpService opService, LabelFactory<L> labelFactory,
+			LabelEditorTagging<L> tagging, LabelingChangedEvent.Builder<L> changes) {
+		List<Crop<L>> crops = createCrops(labels, labeling);
+		runWatersheds(crops, data, sigma, opService);
+		Map<L, Set<L>> res = new LinkedHashMap<>();
+		int numSets = labeling.getMapping().numSets();
+		if(tagging != null) tagging.pauseListeners();
+		for (Crop<L> crop : crops) {
+			if(crop.result == null) continue;
+			Map<Integer, L> parts = writeBack(crop.label, crop.result, Intervals.minAsLongArray(crop.interval), labeling, labelFactory);
+			Set<L> newLabels = new HashSet<>(parts.values());
+			if(tagging != null) inheritTags(crop.label, newLabels, tagging);
+			res.put(crop.label, newLabels);
+			if(changes != null) changes.include(crop.interval).added(newLabels);
+		}
+		if(tagging != null) tagging.resumeListeners();
+		if(changes != null) changes.setIndices(numSets, labeling.getMapping().numSets());
+		DeleteLabels.delete(res.keySet(), labeling, changes);
 		return res;
 	}
 
-	private static Img<BitType> createMask(OpService opService, LabelRegion<Integer> region) {
-		Img<BitType> mask = opService.create().img(Views.zeroMin(region), new BitType());
+	private static class Crop<L> {
+		final L label;
+		final Interval interval;
+		final ArrayImg<BitType, LongArray> mask;
+		ImgLabeling<Integer, IntType> result;
+
+		Crop(L label, Interval interval, ArrayImg<BitType, LongArray> mask) {
+			this.label = label;
+			this.interval = interval;
+			this.mask = mask;
+		}
+	}
+
+	private static <L> List<Crop<L>> createCrops(Set<L> labels, ImgLabeling<L, ? extends IntegerType<?>> labeling) {
+		LabelRegions<L> regions = new LabelRegions<>(labeling);
+		Set<L> existing = regions.getExistingLabels();
+		List<Crop<L>> crops = new ArrayList<>();
+		for (L label : labels) {
+			if(!existing.contains(label)) continue;
+			LabelRegion<L> region = regions.getLabelRegion(label);
+			crops.add(new Crop<>(label, new FinalInterval(region), createMask(region)));
+		}
+		return crops;
+	}
+
+	private static void runWatersheds(List<? extends Crop<?>> crops, RandomAccessibleInterval data, double sigma, OpService opService) {
+		if(crops.isEmpty()) return;
+		int numThreads = Math.min(crops.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (Crop<?> crop : crops) {
+				futures.add(executor.submit(() -> runWatershed(crop, data, sigma, opService)));
+			}
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void runWatershed(Crop<?> crop, RandomAccessibleInterval data, double sigma, OpService opService) {
+		long[] dims = Intervals.dimensionsAsLongArray(crop.interval);
+		float[] values = createWatershedInput(data, crop.interval, sigma, opService);
+		ImgLabeling<Integer, IntType> seeds = new ImgLabeling<>(ArrayImgs.ints(dims));
+		if(findLocalMinima(values, dims, crop.mask.update(null).getCurrentStorageArray(), seeds) < 2) return;
+		ImgLabeling<Integer, IntType> watershed = new ImgLabeling<>(ArrayImgs.ints(dims));
+		opService.image().watershed(watershed, ArrayImgs.floats(values, dims), seeds, true, false, crop.mask);
+		crop.result = watershed;
+	}
+
+	private static ArrayImg<BitType, LongArray> createMask(LabelRegion<?> region) {
+		ArrayImg<BitType, LongArray> mask = ArrayImgs.bits(Intervals.dimensionsAsLongArray(region));
 		Point offset = new Point(region.numDimensions());
 		for (int i = 0; i < region.numDimensions(); i++) {
 			offset.setPosition(-region.min(i), i);
@@ -191,49 +313,165 @@ public class SplitLabels<L> implements Behaviour {
 		return mask;
 	}
 
-	private static Img createWatershedInput(RandomAccessibleInterval data, double sigma, OpService opService, LabelRegion<Integer> region) {
-		IntervalView dataCrop = Views.zeroMin(Views.interval(data, region));
-		RandomAccessibleInterval gaussCrop = opService.filter().gauss(dataCrop, sigma);
-		Img invertedDataCrop = opService.create().img(Views.iterable(dataCrop));
-		opService.image().invert(invertedDataCrop, Views.iterable(gaussCrop));
-		return invertedDataCrop;
+	/**
+	 * @return the smoothed data of the crop in flat iteration order, inverted so that bright objects become basins
+	 */
+	private static float[] createWatershedInput(RandomAccessibleInterval data, Interval interval, double sigma, OpService opService) {
+		RandomAccessibleInterval dataCrop = Views.zeroMin(Views.interval(data, interval));
+		if(sigma > 0) dataCrop = opService.filter().gauss(dataCrop, sigma);
+		float[] values = new float[(int) Intervals.numElements(interval)];
+		Cursor<? extends RealType<?>> cursor = Views.flatIterable((RandomAccessibleInterval<? extends RealType<?>>) dataCrop).cursor();
+		for (int i = 0; cursor.hasNext(); i++) {
+			values[i] = -cursor.next().getRealFloat();
+		}
+		return values;
 	}
 
-	private static ImgLabeling<Integer, IntType> createWatershedResultLabeling(LabelRegion<Integer> region) {
-		ArrayImg<IntType, IntArray> backing = (ArrayImg<IntType, IntArray>) new ArrayImgFactory<>(new IntType()).create( region );
-		return new ImgLabeling<>( backing );
+	/**
+	 * Marks every masked pixel which is strictly smaller than all of its neighbors (including diagonals) as a seed.
+	 * Works on the flat arrays using precomputed neighbor offsets, pixels on the border of the crop are skipped.
+	 * @param mask bits of the mask in flat iteration order
+	 * @return the number of seeds
+	 */
+	static int findLocalMinima(float[] values, long[] dims, long[] mask, ImgLabeling<Integer, IntType> seeds) {
+		int n = dims.length;
+		int[] offsets = neighborOffsets(dims);
+		int[] position = new int[n];
+		RandomAccess<LabelingType<Integer>> ra = seeds.randomAccess();
+		int count = 0;
+		for (int i = 0; i < values.length; i++) {
+			if(i > 0) {
+				for (int d = 0; d < n && ++position[d] == dims[d]; d++) position[d] = 0;
+			}
+			if((mask[i >>> 6] & (1L << (i & 63))) == 0 || onBorder(position, dims)) continue;
+			float center = values[i];
+			boolean isMinimum = true;
+			for (int offset : offsets) {
+				if(center >= values[i + offset]) {
+					isMinimum = false;
+					break;
+				}
+			}
+			if(isMinimum) {
+				ra.setPosition(position);
+				ra.get().add(count++);
+			}
+		}
+		return count;
 	}
 
+	private static boolean onBorder(int[] position, long[] dims) {
+		for (int d = 0; d < position.length; d++) {
+			if(position[d] == 0 || position[d] == dims[d] - 1) return true;
+		}
+		return false;
+	}
 
-	public static < T extends Comparable< T >> ImgLabeling<Integer, IntType>
-	findAndDisplayLocalMinima(RandomAccessibleInterval<T> source, Img<BitType> mask) {
-		ArrayImg<IntType, IntArray> backing = (ArrayImg<IntType, IntArray>) new ArrayImgFactory<>(new IntType()).create( source );
-		ImgLabeling< Integer, IntType > res = new ImgLabeling<>( backing );
-		RandomAccess<LabelingType<Integer>> ra = res.randomAccess();
-		int count = 0;
-		Interval interval = Intervals.expand( source, -1 );
-		source = Views.interval( source, interval );
-		final Cursor< T > center = Views.iterable( source ).cursor();
-		RandomAccess<BitType> maskRA = mask.randomAccess();
-		final RectangleShape shape = new RectangleShape( 1, true );
-		for ( final Neighborhood< T > localNeighborhood : shape.neighborhoods( source ) ) {
-			final T centerValue = center.next();
-			maskRA.setPosition(center);
-			if(maskRA.get().get()) {
-				boolean isMinimum = true;
-				for ( final T value : localNeighborhood ) {
-					if ( centerValue.compareTo( value ) >= 0 ) {
-						isMinimum = false;
-						break;
-					}
-				}
-				if ( isMinimum ) {
-					ra.setPosition(center);
-					ra.get().add(count++);
+	private static int[] neighborOffsets(long[] dims) {
+		int n = dims.length;
+		int[] strides = new int[n];
+		int stride = 1;
+		for (int d = 0; d < n; d++) {
+			strides[d] = stride;
+			stride *= dims[d];
+		}
+		int numNeighbors = 1;
+		for (int d = 0; d < n; d++) numNeighbors *= 3;
+		int[] offsets = new int[numNeighbors - 1];
+		int index = 0;
+		for (int k = 0; k < numNeighbors; k++) {
+			int offset = 0;
+			for (int d = 0, rest = k; d < n; d++, rest /= 3) {
+				offset += (rest % 3 - 1) * strides[d];
+			}
+			if(offset != 0) offsets[index++] = offset;
+		}
+		return offsets;
+	}
+
+	/**
+	 * Adds a new label to the target labeling for each label of the result, shifted by the offset.
+	 * @return the new label for each label of the result
+	 */
+	private static <L, K> Map<K, L> writeBack(L parent, RandomAccessibleInterval<LabelingType<K>> result, long[] offset,
+			RandomAccessibleInterval<LabelingType<L>> target, LabelFactory<L> labelFactory) {
+		Map<K, L> parts = new HashMap<>();
+		Cursor<LabelingType<K>> cursor = Views.flatIterable(result).localizingCursor();
+		RandomAccess<LabelingType<L>> targetRA = target.randomAccess();
+		long[] position = new long[offset.length];
+		while(cursor.hasNext()) {
+			LabelingType<K> values = cursor.next();
+			if(values.isEmpty()) continue;
+			cursor.localize(position);
+			for (int d = 0; d < position.length; d++) position[d] += offset[d];
+			targetRA.setPosition(position);
+			for (K value : values) {
+				L part = parts.get(value);
+				if(part == null) {
+					part = labelFactory.create(parent, parts.size());
+					parts.put(value, part);
 				}
+				targetRA.get().add(part);
 			}
 		}
-		return res;
+		return parts;
+	}
+
+	private static <L> void inheritTags(L parent, Collection<L> labels, LabelEditorTagging<L> tagging) {
+		for (Object tag : new ArrayList<>(tagging.getTags(parent))) {
+			Object value = tagging.getValue(tag, parent);
+			for (L label : labels) {
+				if(value != null) tagging.addValueToLabel(tag, value, label);
+				else tagging.addTagToLabel(tag, label);
+			}
+			tagging.removeTagFromLabel(tag, parent);
+		}
+	}
+
+	/**
+	 * Continues numbering for Integer, Long and imglib2 numeric labels (e.g. the IntType labels of
+	 * {@link sc.fiji.labeleditor.core.model.DefaultLabelEditorModel#initFromLabelMap}),
+	 * appends the part index to String labels.
+	 * @throws IllegalArgumentException for other label types, use a custom {@link LabelFactory} for these
+	 */
+	public static <L> LabelFactory<L> defaultLabelFactory(Set<L> existing) {
+		if(existing.stream().allMatch(label -> label instanceof Integer)) {
+			AtomicInteger next = new AtomicInteger(existing.stream().mapToInt(label -> (Integer) label).max().orElse(-1) + 1);
+			return (parent, part) -> (L) Integer.valueOf(next.getAndIncrement());
+		}
+		if(existing.stream().allMatch(label -> label instanceof Long)) {
+			AtomicLong next = new AtomicLong(existing.stream().mapToLong(label -> (Long) label).max().orElse(-1) + 1);
+			return (parent, part) -> (L) Long.valueOf(next.getAndIncrement());
+		}
+		if(!existing.isEmpty() && existing.stream().allMatch(label -> label instanceof IntegerType)) {
+			IntegerType<?> type = (IntegerType<?>) existing.iterator().next();
+			AtomicLong next = new AtomicLong(existing.stream().mapToLong(label -> ((IntegerType<?>) label).getIntegerLong()).max().getAsLong() + 1);
+			return (parent, part) -> {
+				IntegerType<?> label = type.createVariable();
+				label.setInteger(next.getAndIncrement());
+				return (L) label;
+			};
+		}
+		if(!existing.isEmpty() && existing.stream().allMatch(label -> label instanceof RealType)) {
+			RealType<?> type = (RealType<?>) existing.iterator().next();
+			double max = existing.stream().mapToDouble(label -> ((RealType<?>) label).getRealDouble()).max().getAsDouble();
+			AtomicLong next = new AtomicLong((long) Math.floor(max) + 1);
+			return (parent, part) -> {
+				RealType<?> label = type.createVariable();
+				label.setReal(next.getAndIncrement());
+				return (L) label;
+			};
+		}
+		if(existing.stream().allMatch(label -> label instanceof String)) {
+			Set<Object> used = new HashSet<>(existing);
+			return (parent, part) -> {
+				String label = parent + "-" + (part + 1);
+				while(!used.add(label)) label += "'";
+				return (L) label;
+			};
+		}
+		throw new IllegalArgumentException("Cannot create new labels of type " + existing.iterator().next().getClass().getName()
+				+ ", please provide a LabelFactory.");
 	}
 
 }
@@ -28,6 +28,7 @@
  */
 package sc.fiji.labeleditor.plugin.behaviours.select;
 
+import org.scijava.ItemVisibility;
 import org.scijava.command.Command;
 import org.scijava.command.InteractiveCommand;
 import org.scijava.module.DefaultMutableModuleItem;
@@ -36,6 +37,7 @@ import org.scijava.plugin.Plugin;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
+import sc.fiji.labeleditor.core.model.tagging.TagQuery;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -52,10 +54,30 @@ public class SelectByTagCommand extends InteractiveCommand {
 	@Parameter
 	InteractiveLabeling labeling;
 
+	@Parameter(label = "Query (e.g. area > 500 AND NOT border)", required = false, persist = false)
+	String query = "";
+
+	@Parameter(visibility = ItemVisibility.MESSAGE, required = false, persist = false)
+	String queryError = "";
+
 	Map<String, Object> namedTags;
 
 	@Override
 	public void run() {
+		if(query != null && !query.trim().isEmpty()) {
+			TagQuery compiled;
+			try {
+				compiled = TagQuery.compile(query);
+			} catch (IllegalArgumentException e) {
+				// the query might be incomplete while typing, show the error instead of failing
+				queryError = "Invalid query: " + e.getMessage();
+				return;
+			}
+			queryError = "";
+			compiled.select(model, labeling.getLabelSetInScope());
+			return;
+		}
+		queryError = "";
 		Set chosenTags = new HashSet();
 		namedTags.forEach((name, tag) -> {
 			if((Boolean)getInput(name)) {
@@ -66,7 +88,7 @@ public class SelectByTagCommand extends InteractiveCommand {
 		Set toSelect = model.tagging().filterLabelsWithAnyTag(labeling.getLabelSetInScope(), chosenTags);
 		Set toUnselect = new HashSet(selectedLabels);
 		toUnselect.removeAll(toSelect);
-		toSelect.remove(selectedLabels);
+		toSelect.removeAll(selectedLabels);
 
 		model.tagging().pauseListeners();
 		toUnselect.forEach(label -> model.tagging().removeTagFromLabel(LabelEditorTag.SELECTED, label));
@@ -75,7 +97,7 @@ public class SelectByTagCommand extends InteractiveCommand {
 	}
 
 	protected void initTagList() {
-		Set tags = model.tagging().getAllTags();
+		Set tags = new HashSet(model.tagging().getAllTags());
 		tags.removeAll(Arrays.asList(LabelEditorTag.values()));
 		if(tags.size() == 0) {
 			cancel("No tags assigned");
@@ -32,6 +32,7 @@ import net.imglib2.roi.labeling.LabelingType;
 import org.scijava.command.CommandService;
 import org.scijava.listeners.Listeners;
 import org.scijava.plugin.Parameter;
+import org.scijava.table.interactive.SelectionEventDispatcher;
 import org.scijava.table.interactive.SelectionListener;
 import org.scijava.table.interactive.SelectionModel;
 import org.scijava.ui.behaviour.Behaviour;
@@ -59,7 +60,7 @@ public class SelectionBehaviours<L> implements SelectionModel< L >, LabelEditorB
 	protected InteractiveLabeling<L> labeling;
 
 	private final Listeners.List<SelectionListener> listeners = new Listeners.SynchronizedList<>();
-	private boolean listenersPaused = false;
+	private final SelectionEventDispatcher dispatcher = new SelectionEventDispatcher(listeners);
 
 	protected static final String TOGGLE_LABEL_SELECTION_NAME = "LABELEDITOR_TOGGLELABELSELECTION";
 	protected static final String TOGGLE_LABEL_SELECTION_TRIGGERS = "shift scroll";
@@ -251,6 +252,9 @@ public class SelectionBehaviours<L> implements SelectionModel< L >, LabelEditorB
 		return selected.size() == 0;
 	}
 
+	/**
+	 * @return the selection listeners, notified asynchronously on the thread of the {@link SelectionEventDispatcher}
+	 */
 	@Override
 	public Listeners<SelectionListener> listeners() {
 		return listeners;
@@ -258,24 +262,20 @@ public class SelectionBehaviours<L> implements SelectionModel< L >, LabelEditorB
 
 	@Override
 	public void resumeListeners() {
-		listenersPaused = false;
+		dispatcher.resume();
 	}
 
 	@Override
 	public void pauseListeners() {
-		listenersPaused = true;
+		dispatcher.pause();
 	}
 
 	private void notifyListeners() {
-		listeners.list.forEach(listener -> {
-			listener.selectionChanged();
-		});
+		dispatcher.selectionChanged();
 	}
 
 	private void notifyListenersFocusChanged() {
-		listeners.list.forEach(listener -> {
-			listener.focusChanged();
-		});
+		dispatcher.focusChanged();
 	}
 
 	protected boolean anySelected(LabelingType<L> labels) {
@@ -284,7 +284,6 @@ public class SelectionBehaviours<L> implements SelectionModel< L >, LabelEditorB
 
 	protected void select(L label) {
 		labeling.model().tagging().addTagToLabel(LabelEditorTag.SELECTED, label);
-		labeling.model().tagging().removeTagFromLabel(LabelEditorTag.MOUSE_OVER, label);
 		labeling.model().tagging().removeTagFromLabel(LabelEditorTag.FOCUS);
 		focus(label);
 		notifyListeners();
@@ -332,6 +331,17 @@ public class SelectionBehaviours<L> implements SelectionModel< L >, LabelEditorB
 		selected.forEach(label -> deselect(label));
 	}
 
+	/**
+	 * Adds all labels touching a selected label to the selection.
+	 */
+	public void growSelection() {
+		Set<L> selected = labeling.model().tagging().filterLabelsWithTag(labeling.getLabelSetInScope(), LabelEditorTag.SELECTED);
+		Set<L> grown = labeling.model().adjacency().grow(selected);
+		grown.retainAll(labeling.getLabelSetInScope());
+		grown.removeAll(selected);
+		grown.forEach(this::select);
+	}
+
 	public void selectByTag() {
 		commandService.run(SelectByTagCommand.class, true,
 				"model", labeling.model(), "labeling", labeling);
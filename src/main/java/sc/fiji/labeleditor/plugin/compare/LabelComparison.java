@@ -0,0 +1,413 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.compare;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
+import sc.fiji.labeleditor.core.util.LongCounts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the labels of a reference model with the labels of a candidate model, e.g. a ground truth and a segmentation.
+ * A sparse contingency table of overlapping label pairs is computed in a single parallel pass over both index images.
+ * Labels are matched one to one greedily by descending intersection over union (IoU),
+ * precision, recall and F1 score are reported for each IoU threshold.
+ * A reference label is split if it covers more than one candidate label,
+ * a candidate label is merged if it covers more than one reference label,
+ * where covering means containing at least the minimal coverage ratio of the other label.
+ */
+public class LabelComparison<A, B> {
+
+	public static final String IOU = "iou";
+	public static final String MATCH = "match";
+	public static final String UNMATCHED = "unmatched";
+	public static final String SPLIT = "split";
+	public static final String MERGED = "merged";
+
+	private final LabelEditorModel<A> reference;
+	private final LabelEditorModel<B> candidate;
+	private double[] thresholds = {0.5};
+	private double minCoverage = 0.5;
+
+	public LabelComparison(LabelEditorModel<A> reference, LabelEditorModel<B> candidate) {
+		this.reference = reference;
+		this.candidate = candidate;
+	}
+
+	/**
+	 * @param thresholds the IoU thresholds to compute scores for, the first one is used for tagging
+	 */
+	public LabelComparison<A, B> setThresholds(double... thresholds) {
+		if(thresholds.length == 0) throw new IllegalArgumentException("At least one threshold is required.");
+		this.thresholds = thresholds.clone();
+		return this;
+	}
+
+	/**
+	 * @param minCoverage the minimal ratio of a label which has to be covered by another label to count as part of it
+	 */
+	public LabelComparison<A, B> setMinCoverage(double minCoverage) {
+		this.minCoverage = minCoverage;
+		return this;
+	}
+
+	public Result<A, B> compute() {
+		return compute(reference.labeling(), candidate.labeling(), thresholds, minCoverage);
+	}
+
+	/**
+	 * Compares the models and stores the results as tags on both models, based on the first threshold.
+	 * Each label gets its best IoU as {@link #IOU} value and its matching label as {@link #MATCH} value,
+	 * labels without match are tagged {@link #UNMATCHED}. Split reference labels are tagged {@link #SPLIT},
+	 * merged candidate labels {@link #MERGED}.
+	 */
+	public Result<A, B> computeAndTag() {
+		Result<A, B> result = compute();
+		tag(reference.tagging(), result.referenceLabels, result.referenceArea, result.referenceIoU, result.referenceMatch,
+				result.candidateLabels, result.split, SPLIT);
+		tag(candidate.tagging(), result.candidateLabels, result.candidateArea, result.candidateIoU, result.candidateMatch,
+				result.referenceLabels, result.merged, MERGED);
+		return result;
+	}
+
+	private static <L, O> void tag(LabelEditorTagging<L> tagging, List<L> labels, long[] area, double[] iou, int[] match,
+			List<O> others, boolean[] error, Object errorTag) {
+		tagging.pauseListeners();
+		tagging.removeTagFromLabel(IOU);
+		tagging.removeTagFromLabel(MATCH);
+		tagging.removeTagFromLabel(UNMATCHED);
+		tagging.removeTagFromLabel(errorTag);
+		for (int i = 0; i < labels.size(); i++) {
+			if(area[i] == 0) continue;
+			L label = labels.get(i);
+			tagging.addValueToLabel(IOU, new DoubleType(iou[i]), label);
+			if(match[i] >= 0) tagging.addValueToLabel(MATCH, others.get(match[i]), label);
+			else tagging.addTagToLabel(UNMATCHED, label);
+			if(error[i]) tagging.addTagToLabel(errorTag, label);
+		}
+		tagging.resumeListeners();
+	}
+
+	public static <A, B> Result<A, B> compute(ImgLabeling<A, ? extends IntegerType<?>> reference,
+			ImgLabeling<B, ? extends IntegerType<?>> candidate, double[] thresholds, double minCoverage) {
+		if(!Intervals.equalDimensions(reference, candidate)) {
+			throw new IllegalArgumentException("Labelings have different dimensions: "
+					+ Arrays.toString(Intervals.dimensionsAsLongArray(reference)) + " vs. "
+					+ Arrays.toString(Intervals.dimensionsAsLongArray(candidate)));
+		}
+		LongCounts setPairs = countSetPairs(reference.getIndexImg(), candidate.getIndexImg());
+
+		LabelingMapping<A> mappingA = reference.getMapping();
+		LabelingMapping<B> mappingB = candidate.getMapping();
+		List<A> labelsA = new ArrayList<>(mappingA.getLabels());
+		List<B> labelsB = new ArrayList<>(mappingB.getLabels());
+		int[][] setLabelsA = labelIds(mappingA, labelsA);
+		int[][] setLabelsB = labelIds(mappingB, labelsB);
+
+		// expand the pairs of label sets to pairs of labels
+		long[] areaA = new long[labelsA.size()];
+		long[] areaB = new long[labelsB.size()];
+		LongCounts labelPairs = new LongCounts(setPairs.size());
+		setPairs.forEach((key, count) -> {
+			int[] idsA = setLabelsA[LongCounts.first(key)];
+			int[] idsB = setLabelsB[LongCounts.second(key)];
+			for (int a : idsA) areaA[a] += count;
+			for (int b : idsB) areaB[b] += count;
+			for (int a : idsA) {
+				for (int b : idsB) labelPairs.add(LongCounts.key(a, b), count);
+			}
+		});
+
+		return new Result<>(labelsA, labelsB, areaA, areaB, labelPairs, thresholds, minCoverage);
+	}
+
+	private static LongCounts countSetPairs(RandomAccessibleInterval<? extends IntegerType<?>> indexA,
+			RandomAccessibleInterval<? extends IntegerType<?>> indexB) {
+		RandomAccessibleInterval<? extends IntegerType<?>> a = Views.zeroMin(indexA);
+		RandomAccessibleInterval<? extends IntegerType<?>> b = Views.zeroMin(indexB);
+		int dim = a.numDimensions() - 1;
+		long size = a.dimension(dim);
+		int numSlabs = (int) Math.max(1, Math.min(size, Runtime.getRuntime().availableProcessors() * 4L));
+		return IntStream.range(0, numSlabs).parallel().mapToObj(i -> {
+			long[] min = new long[a.numDimensions()];
+			long[] max = Intervals.maxAsLongArray(a);
+			min[dim] = size * i / numSlabs;
+			max[dim] = size * (i + 1) / numSlabs - 1;
+			Cursor<? extends IntegerType<?>> cursorA = Views.flatIterable(Views.interval(a, min, max)).cursor();
+			Cursor<? extends IntegerType<?>> cursorB = Views.flatIterable(Views.interval(b, min, max)).cursor();
+			LongCounts counts = new LongCounts();
+			// runs of identical pairs are counted at once
+			long current = -1;
+			long run = 0;
+			while(cursorA.hasNext()) {
+				long key = LongCounts.key(cursorA.next().getInteger(), cursorB.next().getInteger());
+				if(key == current) {
+					run++;
+					continue;
+				}
+				if(run > 0) counts.add(current, run);
+				current = key;
+				run = 1;
+			}
+			if(run > 0) counts.add(current, run);
+			return counts;
+		}).reduce((c1, c2) -> {
+			LongCounts larger = c1.size() >= c2.size() ? c1 : c2;
+			larger.addAll(larger == c1 ? c2 : c1);
+			return larger;
+		}).orElseGet(LongCounts::new);
+	}
+
+	/**
+	 * @return for each label set index the ids of its labels, i.e. their positions in the given list
+	 */
+	private static <L> int[][] labelIds(LabelingMapping<L> mapping, List<L> labels) {
+		Map<L, Integer> ids = new HashMap<>(labels.size() * 2);
+		for (int i = 0; i < labels.size(); i++) ids.put(labels.get(i), i);
+		int[][] res = new int[mapping.numSets()][];
+		for (int i = 0; i < res.length; i++) {
+			Set<L> set = mapping.labelsAtIndex(i);
+			res[i] = new int[set.size()];
+			int j = 0;
+			for (L label : set) res[i][j++] = ids.get(label);
+		}
+		return res;
+	}
+
+	public static class Result<A, B> {
+
+		private final List<A> referenceLabels;
+		private final List<B> candidateLabels;
+		private final long[] referenceArea;
+		private final long[] candidateArea;
+		private final double[] referenceIoU;
+		private final double[] candidateIoU;
+		private final int[] referenceMatch;
+		private final int[] candidateMatch;
+		private final boolean[] split;
+		private final boolean[] merged;
+		private final List<Scores> scores = new ArrayList<>();
+		private final int numPairs;
+
+		Result(List<A> labelsA, List<B> labelsB, long[] areaA, long[] areaB, LongCounts pairs,
+		       double[] thresholds, double minCoverage) {
+			this.referenceLabels = Collections.unmodifiableList(labelsA);
+			this.candidateLabels = Collections.unmodifiableList(labelsB);
+			this.referenceArea = areaA;
+			this.candidateArea = areaB;
+			this.numPairs = pairs.size();
+			// labels of the mapping without any pixels are ignored
+			int numA = (int) Arrays.stream(areaA).filter(area -> area > 0).count();
+			int numB = (int) Arrays.stream(areaB).filter(area -> area > 0).count();
+			referenceIoU = new double[labelsA.size()];
+			candidateIoU = new double[labelsB.size()];
+			int[] partsA = new int[labelsA.size()];
+			int[] partsB = new int[labelsB.size()];
+			double minThreshold = Arrays.stream(thresholds).min().getAsDouble();
+			List<long[]> candidates = new ArrayList<>();
+			pairs.forEach((key, intersection) -> {
+				int a = LongCounts.first(key);
+				int b = LongCounts.second(key);
+				double iou = (double) intersection / (areaA[a] + areaB[b] - intersection);
+				referenceIoU[a] = Math.max(referenceIoU[a], iou);
+				candidateIoU[b] = Math.max(candidateIoU[b], iou);
+				if(intersection >= minCoverage * areaB[b]) partsA[a]++;
+				if(intersection >= minCoverage * areaA[a]) partsB[b]++;
+				if(iou >= minThreshold && iou > 0) candidates.add(new long[]{key, Double.doubleToLongBits(iou)});
+			});
+
+			// greedy one to one matching, best pairs first
+			candidates.sort((p1, p2) -> Double.compare(Double.longBitsToDouble(p2[1]), Double.longBitsToDouble(p1[1])));
+			referenceMatch = new int[labelsA.size()];
+			candidateMatch = new int[labelsB.size()];
+			Arrays.fill(referenceMatch, -1);
+			Arrays.fill(candidateMatch, -1);
+			double[] matchIoU = new double[candidates.size()];
+			int numMatches = 0;
+			for (long[] candidate : candidates) {
+				int a = LongCounts.first(candidate[0]);
+				int b = LongCounts.second(candidate[0]);
+				if(referenceMatch[a] >= 0 || candidateMatch[b] >= 0) continue;
+				referenceMatch[a] = b;
+				candidateMatch[b] = a;
+				matchIoU[numMatches++] = Double.longBitsToDouble(candidate[1]);
+			}
+
+			for (double threshold : thresholds) {
+				int tp = 0;
+				double iouSum = 0;
+				for (int i = 0; i < numMatches; i++) {
+					if(matchIoU[i] < threshold) break;
+					tp++;
+					iouSum += matchIoU[i];
+				}
+				scores.add(new Scores(threshold, tp, numB - tp, numA - tp, tp > 0 ? iouSum / tp : 0));
+			}
+			// matches are only valid for the first threshold
+			double tagThreshold = thresholds[0];
+			for (int a = 0; a < referenceMatch.length; a++) {
+				int b = referenceMatch[a];
+				if(b < 0) continue;
+				double iou = (double) pairs.get(LongCounts.key(a, b)) / (areaA[a] + areaB[b] - pairs.get(LongCounts.key(a, b)));
+				if(iou < tagThreshold) {
+					referenceMatch[a] = -1;
+					candidateMatch[b] = -1;
+				}
+			}
+			split = new boolean[labelsA.size()];
+			merged = new boolean[labelsB.size()];
+			for (int i = 0; i < split.length; i++) split[i] = partsA[i] > 1;
+			for (int i = 0; i < merged.length; i++) merged[i] = partsB[i] > 1;
+		}
+
+		public List<Scores> getScores() {
+			return Collections.unmodifiableList(scores);
+		}
+
+		public Scores getScores(double threshold) {
+			for (Scores score : scores) {
+				if(score.threshold == threshold) return score;
+			}
+			return null;
+		}
+
+		/**
+		 * @return the matching candidate label for each matched reference label, based on the first threshold
+		 */
+		public Map<A, B> getMatches() {
+			Map<A, B> res = new HashMap<>();
+			for (int a = 0; a < referenceMatch.length; a++) {
+				if(referenceMatch[a] >= 0) res.put(referenceLabels.get(a), candidateLabels.get(referenceMatch[a]));
+			}
+			return res;
+		}
+
+		public int getNumSplits() {
+			int res = 0;
+			for (boolean s : split) if(s) res++;
+			return res;
+		}
+
+		public int getNumMerges() {
+			int res = 0;
+			for (boolean m : merged) if(m) res++;
+			return res;
+		}
+
+		/**
+		 * @return the number of overlapping pairs of labels, i.e. the number of non-zero entries of the contingency table
+		 */
+		public int getNumOverlappingPairs() {
+			return numPairs;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder res = new StringBuilder();
+			res.append(Arrays.stream(referenceArea).filter(area -> area > 0).count()).append(" reference labels, ");
+			res.append(Arrays.stream(candidateArea).filter(area -> area > 0).count()).append(" candidate labels, ");
+			res.append(getNumSplits()).append(" splits, ");
+			res.append(getNumMerges()).append(" merges");
+			scores.forEach(score -> res.append("\n").append(score));
+			return res.toString();
+		}
+	}
+
+	public static class Scores {
+
+		private final double threshold;
+		private final int truePositives;
+		private final int falsePositives;
+		private final int falseNegatives;
+		private final double meanMatchedIoU;
+
+		Scores(double threshold, int truePositives, int falsePositives, int falseNegatives, double meanMatchedIoU) {
+			this.threshold = threshold;
+			this.truePositives = truePositives;
+			this.falsePositives = falsePositives;
+			this.falseNegatives = falseNegatives;
+			this.meanMatchedIoU = meanMatchedIoU;
+		}
+
+		public double getThreshold() {
+			return threshold;
+		}
+
+		public int getTruePositives() {
+			return truePositives;
+		}
+
+		public int getFalsePositives() {
+			return falsePositives;
+		}
+
+		public int getFalseNegatives() {
+			return falseNegatives;
+		}
+
+		public double getMeanMatchedIoU() {
+			return meanMatchedIoU;
+		}
+
+		public double getPrecision() {
+			return truePositives + falsePositives == 0 ? 0 : (double) truePositives / (truePositives + falsePositives);
+		}
+
+		public double getRecall() {
+			return truePositives + falseNegatives == 0 ? 0 : (double) truePositives / (truePositives + falseNegatives);
+		}
+
+		public double getF1() {
+			int denominator = 2 * truePositives + falsePositives + falseNegatives;
+			return denominator == 0 ? 0 : 2. * truePositives / denominator;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("IoU >= %.2f: TP %d, FP %d, FN %d, precision %.3f, recall %.3f, F1 %.3f, mean IoU %.3f",
+					threshold, truePositives, falsePositives, falseNegatives, getPrecision(), getRecall(), getF1(), meanMatchedIoU);
+		}
+	}
+}
@@ -65,11 +65,13 @@ public class LabelEditorPopupMenu extends JPopupMenu {
 	private static final String MENU_EXPORT_SOURCE = "Export source image";
 	private static final String MENU_EXPORT_RENDERERS = "Renderers";
 	private static final String MENU_EXPORT_TABLE = "Export as table";
+	private static final String MENU_EXPORT_N5 = "Export to N5 container";
 
 	private static final String MENU_SELECT = "Select";
 	private static final String MENU_SELECT_ALL = "Select all";
 	private static final String MENU_SELECT_NONE = "Deselect all";
 	private static final String MENU_SELECT_INVERT = "Invert selection";
+	private static final String MENU_SELECT_GROW = "Grow selection to neighbors";
 	private static final String MENU_SELECT_BYTAG = "By tag..";
 
 	private static final String MENU_OPTIONS = "Options";
@@ -124,6 +126,7 @@ public class LabelEditorPopupMenu extends JPopupMenu {
 			menu.add(getMenuItem(e -> runInNewThread(exportBehaviours::showIndexImg), MENU_EXPORT_INDEXIMG));
 			menu.add(getMenuItem(e -> runInNewThread(exportBehaviours::showData), MENU_EXPORT_SOURCE));
 			menu.add(getMenuItem(e -> runInNewThread(exportBehaviours::showTables), MENU_EXPORT_TABLE));
+			menu.add(getMenuItem(e -> runInNewThread(exportBehaviours::exportToN5), MENU_EXPORT_N5));
 			if (labeling.view().renderers().size() > 0) {
 				JMenu renderers = new JMenu(MENU_EXPORT_RENDERERS);
 				for (LabelEditorRenderer<L> renderer : labeling.view().renderers()) {
@@ -164,6 +167,7 @@ public class LabelEditorPopupMenu extends JPopupMenu {
 		menu.add(getMenuItem(e -> runWhilePausingListeners(labeling, selectionBehaviours::selectAll), MENU_SELECT_ALL));
 		menu.add(getMenuItem(e -> runWhilePausingListeners(labeling, selectionBehaviours::deselectAll), MENU_SELECT_NONE));
 		menu.add(getMenuItem(e -> runWhilePausingListeners(labeling, selectionBehaviours::invertSelection), MENU_SELECT_INVERT));
+		menu.add(getMenuItem(e -> runWhilePausingListeners(labeling, selectionBehaviours::growSelection), MENU_SELECT_GROW));
 		if(context != null) {
 			context.inject(selectionBehaviours);
 			menu.add(getMenuItem(e -> runInNewThread(selectionBehaviours::selectByTag), MENU_SELECT_BYTAG));
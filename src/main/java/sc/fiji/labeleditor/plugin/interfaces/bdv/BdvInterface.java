@@ -40,14 +40,17 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import net.imglib2.Interval;
 import net.imglib2.Localizable;
 import net.imglib2.Point;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.roi.labeling.LabelingType;
 import net.imglib2.util.Intervals;
 import org.scijava.Context;
+import org.scijava.Disposable;
 import org.scijava.plugin.Parameter;
 import org.scijava.ui.behaviour.io.InputTriggerConfig;
 import org.scijava.ui.behaviour.util.Behaviours;
@@ -55,15 +58,18 @@ import sc.fiji.labeleditor.core.controller.DefaultInteractiveLabeling;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
 import sc.fiji.labeleditor.core.controller.LabelEditorBehaviours;
 import sc.fiji.labeleditor.core.controller.LabelEditorInterface;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
 import sc.fiji.labeleditor.core.model.tagging.TagChangedEvent;
 import sc.fiji.labeleditor.core.view.DefaultLabelEditorView;
 import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
 import sc.fiji.labeleditor.core.view.LabelEditorView;
 import sc.fiji.labeleditor.core.view.ViewChangedEvent;
+import sc.fiji.labeleditor.plugin.behaviours.FocusBehaviours;
 import sc.fiji.labeleditor.plugin.behaviours.PopupBehaviours;
 import sc.fiji.labeleditor.plugin.behaviours.modification.LabelingModificationBehaviours;
 import sc.fiji.labeleditor.plugin.behaviours.select.SelectionBehaviours;
+import sc.fiji.labeleditor.plugin.mode.timeslice.TimeSliceLabelEditorModel;
 
 public class BdvInterface implements LabelEditorInterface {
 
@@ -138,16 +144,20 @@ public class BdvInterface implements LabelEditorInterface {
 			//TODO are behaviours now properly removed from BDV?
 			behavioursMap.remove(labeling);
 		}
+		if(labeling instanceof Disposable) ((Disposable) labeling).dispose();
 	}
 
 	public <L> LabelingType<L> findLabelsAtMousePosition(int x, int y, InteractiveLabeling<L> labeling) {
+		long start = labeling.model().metrics().start();
 		RandomAccess<LabelingType<L>> ra = labeling.getLabelingInScope().randomAccess();
 		Localizable pos = getDataPositionAtMouse();
+		LabelingType<L> res = null;
 		if(Intervals.contains(labeling.getLabelingInScope(), pos)) {
 			ra.setPosition(pos);
-			return ra.get();
+			res = ra.get();
 		}
-		return null;
+		labeling.model().metrics().stop(LabelEditorMetrics.FIND_LABELS_AT_MOUSE, start);
+		return res;
 	}
 
 	private Localizable getDataPositionAtMouse() {
@@ -169,7 +179,7 @@ public class BdvInterface implements LabelEditorInterface {
 		behaviours.install(this.bdvHandle.getTriggerbindings(), "labeleditor" + labeling.toString());
 		behavioursMap.put(labeling, behaviours);
 		install(labeling, selectionModel, behaviours);
-//		install(labeling, new FocusBehaviours<>(), behaviours);
+		install(labeling, new FocusBehaviours<>(), behaviours);
 		install(labeling, new LabelingModificationBehaviours<>(), behaviours);
 	}
 
@@ -193,12 +203,54 @@ public class BdvInterface implements LabelEditorInterface {
 
 	@Override
 	public synchronized void onViewChange(ViewChangedEvent viewChangedEvent) {
-		bdvHandle.getViewerPanel().requestRepaint();
+		if(isVisible(viewChangedEvent)) bdvHandle.getViewerPanel().requestRepaint();
 		rendererSources.forEach((renderer, source) -> {
 			source.setActive(renderer.isActive());
 		});
 	}
 
+	/**
+	 * @return false if the changed region of the event is known to be outside of the currently displayed region
+	 */
+	private boolean isVisible(ViewChangedEvent event) {
+		Interval interval = event.interval;
+		if(interval == null) return true;
+		ViewerPanel viewer = bdvHandle.getViewerPanel();
+		int width = viewer.getDisplay().getWidth();
+		int height = viewer.getDisplay().getHeight();
+		if(width <= 0 || height <= 0) return true;
+		AffineTransform3D transform = new AffineTransform3D();
+		viewer.state().getViewerTransform(transform);
+		double[] min = new double[]{Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+		double[] max = new double[]{-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+		double[] corner = new double[3];
+		for (int x = 0; x <= width; x += width) {
+			for (int y = 0; y <= height; y += height) {
+				transform.applyInverse(corner, new double[]{x, y, 0});
+				for (int d = 0; d < 3; d++) {
+					min[d] = Math.min(min[d], corner[d]);
+					max[d] = Math.max(max[d], corner[d]);
+				}
+			}
+		}
+		int timeDimension = interval.numDimensions() > 3 ? 3 : -1;
+		if(event.model instanceof TimeSliceLabelEditorModel) {
+			timeDimension = ((TimeSliceLabelEditorModel<?>) event.model).getTimeDimension();
+		}
+		for (int d = 0, spatial = 0; d < interval.numDimensions(); d++) {
+			if(d == timeDimension) {
+				int time = viewer.state().getCurrentTimepoint();
+				if(time < interval.min(d) || time > interval.max(d)) return false;
+				continue;
+			}
+			if(spatial >= 3) continue;
+			// one pixel margin, the borders of adjacent labels change as well
+			if(interval.max(d) + 1.5 < min[spatial] || interval.min(d) - 1.5 > max[spatial]) return false;
+			spatial++;
+		}
+		return true;
+	}
+
 	@Override
 	public ViewerPanel getComponent() {
 		return bdvHandle.getViewerPanel();
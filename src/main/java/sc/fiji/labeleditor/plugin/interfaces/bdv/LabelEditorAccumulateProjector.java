@@ -38,6 +38,7 @@ import net.imglib2.Cursor;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.type.numeric.ARGBType;
+import sc.fiji.labeleditor.plugin.renderers.ColorMixingUtils;
 
 public class LabelEditorAccumulateProjector extends AccumulateProjector< ARGBType, ARGBType >
 {
@@ -68,20 +69,18 @@ public class LabelEditorAccumulateProjector extends AccumulateProjector< ARGBTyp
 	@Override
 	protected void accumulate( final Cursor< ? extends ARGBType >[] accesses, final ARGBType target )
 	{
-		float alpha = 0, red = 0, green = 0, blue = 0;
-		for (int i = accesses.length-1; i >= 0; i--) {
-			Cursor<? extends ARGBType> access = accesses[i];
-			final int value = access.get().get();
-			final float newalpha = ((float) ARGBType.alpha(value)) / 255.f;
-			final float newred = ARGBType.red(value);
-			final float newgreen = ARGBType.green(value);
-			final float newblue = ARGBType.blue(value);
-			if(alpha < 0.0001 && newalpha < 0.0001) continue;
-			red = (red * alpha + newred * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
-			green = (green * alpha + newgreen * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
-			blue = (blue * alpha + newblue * newalpha * (1 - alpha)) / (alpha + newalpha * (1 - alpha));
-			alpha = alpha + newalpha * (1 - alpha);
+		// front to back: the last source is on top, stop as soon as nothing shines through anymore
+		int red = 0, green = 0, blue = 0;
+		int transmittance = ColorMixingUtils.OPAQUE;
+		for (int i = accesses.length-1; i >= 0 && transmittance > 0; i--) {
+			final int value = accesses[i].get().get();
+			final int weight = ColorMixingUtils.weight(value, transmittance);
+			if(weight == 0) continue;
+			red += ColorMixingUtils.red(value) * weight;
+			green += ColorMixingUtils.green(value) * weight;
+			blue += ColorMixingUtils.blue(value) * weight;
+			transmittance -= weight;
 		}
-		target.set( ARGBType.rgba( red, green, blue, (int)(alpha*255) ) );
+		target.set( ColorMixingUtils.toARGB( red, green, blue, transmittance ) );
 	}
 }
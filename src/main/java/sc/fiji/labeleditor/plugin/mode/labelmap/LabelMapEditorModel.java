@@ -0,0 +1,152 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.mode.labelmap;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.cache.img.DiskCachedCellImgFactory;
+import net.imglib2.img.Img;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Model of a label map with one integer label per pixel, the label being the pixel value.
+ * A label map with at least 32 bits per pixel is used as index image of the labeling without copying it,
+ * narrower label maps are copied into an {@link IntType} image first so that new set indices cannot overflow.
+ * Label set i only contains label i.
+ * Set indices, labels and rows of the {@link LabelMapTagging} are therefore identical,
+ * which renderers use to color all untagged labels at once instead of label by label.
+ * Modifications keeping one label per pixel (deleting, merging) preserve this, others are supported
+ * but disable the shortcut, see {@link #isIdentityMapping()}.
+ * Compaction of the label sets is disabled since it would renumber the labels.
+ * Modifications of the labeling are written into the label map, unless it had to be copied.
+ */
+public class LabelMapEditorModel extends DefaultLabelEditorModel<Integer> {
+
+	private int checkedSets = 0;
+	private boolean identity = true;
+
+	public LabelMapEditorModel(RandomAccessibleInterval<? extends IntegerType<?>> labelMap) {
+		super(makeLabeling(labelMap));
+		init();
+	}
+
+	public LabelMapEditorModel(RandomAccessibleInterval<? extends IntegerType<?>> labelMap, RandomAccessibleInterval<?> data) {
+		super(makeLabeling(labelMap), data);
+		init();
+	}
+
+	private void init() {
+		compaction().setEnabled(false);
+		checkIdentity();
+		labelingListeners().add(this::onLabelingChange);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ImgLabeling<Integer, ? extends IntegerType<?>> makeLabeling(RandomAccessibleInterval<? extends IntegerType<?>> labelMap) {
+		int max = 0;
+		for (IntegerType<?> pixel : Views.flatIterable(labelMap)) {
+			int label = pixel.getInteger();
+			if(label < 0) throw new IllegalArgumentException("Label map contains negative value " + label);
+			if(label > max) max = label;
+		}
+		RandomAccessibleInterval<? extends IntegerType<?>> indexImg = labelMap;
+		if(Util.getTypeFromInterval(labelMap).getBitsPerPixel() < Integer.SIZE) {
+			Img<IntType> backing = new DiskCachedCellImgFactory<>(new IntType()).create(labelMap);
+			LoopBuilder.setImages(labelMap, backing).forEachPixel((input, output) -> output.set(input.getInteger()));
+			indexImg = backing;
+		}
+		// the index image is only accessed through IntegerType, whatever its actual pixel type is
+		ImgLabeling<Integer, IntType> labeling = new ImgLabeling<>((RandomAccessibleInterval<IntType>) indexImg);
+		List<Set<Integer>> labelSets = new ArrayList<>(max + 1);
+		labelSets.add(Collections.emptySet());
+		for (int label = 1; label <= max; label++) {
+			labelSets.add(Collections.singleton(label));
+		}
+		new LabelingMapping.SerialisationAccess<Integer>(labeling.getMapping()) {
+			{
+				super.setLabelSets(labelSets);
+			}
+		};
+		return labeling;
+	}
+
+	@Override
+	protected void initTagging() {
+		setTagging(new LabelMapTagging(this));
+	}
+
+	@Override
+	public LabelMapTagging tagging() {
+		return (LabelMapTagging) super.tagging();
+	}
+
+	/**
+	 * @return whether label set i still only contains label i for all set indices
+	 */
+	public synchronized boolean isIdentityMapping() {
+		return identity;
+	}
+
+	/**
+	 * @return the label map, null if a pixel has more than one label
+	 */
+	public RandomAccessibleInterval<? extends IntegerType<?>> getLabelMap() {
+		return isIdentityMapping() ? labeling().getIndexImg() : null;
+	}
+
+	private synchronized void onLabelingChange(LabelingChangedEvent e) {
+		if(e.getSetIndices() == null) {
+			checkedSets = 0;
+			identity = true;
+		}
+		checkIdentity();
+	}
+
+	private synchronized void checkIdentity() {
+		LabelingMapping<Integer> mapping = labeling().getMapping();
+		int numSets = mapping.numSets();
+		for (int i = checkedSets; i < numSets && identity; i++) {
+			Set<Integer> set = mapping.labelsAtIndex(i);
+			identity = i == 0 ? set.isEmpty() : set.size() == 1 && set.contains(i);
+		}
+		checkedSets = numSets;
+	}
+}
@@ -0,0 +1,75 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.mode.labelmap;
+
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.tagging.DefaultLabelEditorTagging;
+
+import java.util.BitSet;
+import java.util.Set;
+
+/**
+ * Tagging of integer labels using the label itself as row, without any mapping between labels and rows.
+ * Rows are added up to the largest tagged label.
+ */
+public class LabelMapTagging extends DefaultLabelEditorTagging<Integer> {
+
+	public LabelMapTagging(LabelEditorModel model) {
+		super(model);
+	}
+
+	@Override
+	public Integer getRow(Integer label) {
+		if(label == null || label < 0 || label >= getRowCount()) return null;
+		return label;
+	}
+
+	@Override
+	public Integer getLabel(int row) {
+		return row;
+	}
+
+	@Override
+	protected int addRow(Integer label) {
+		if(label < 0) throw new IllegalArgumentException("Label map labels cannot be negative: " + label);
+		appendRows(label + 1 - getRowCount());
+		return label;
+	}
+
+	/**
+	 * @return the labels of the given rows, row 0 being the background
+	 */
+	@Override
+	public Set<Integer> getLabels(BitSet rows) {
+		if(!rows.get(0)) return super.getLabels(rows);
+		BitSet labels = (BitSet) rows.clone();
+		labels.clear(0);
+		return super.getLabels(labels);
+	}
+}
@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.mode.timeslice;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of non-negative ints, e.g. label set indices.
+ * Depending on which needs less memory, it is stored either as sorted array or as bitmap.
+ */
+public final class CompactIntSet {
+
+	private static final CompactIntSet EMPTY = new CompactIntSet(new int[0], null, 0);
+
+	private final int[] sorted;
+	private final long[] words;
+	private final int cardinality;
+
+	private CompactIntSet(int[] sorted, long[] words, int cardinality) {
+		this.sorted = sorted;
+		this.words = words;
+		this.cardinality = cardinality;
+	}
+
+	public static CompactIntSet empty() {
+		return EMPTY;
+	}
+
+	public static CompactIntSet of(BitSet bits) {
+		int cardinality = bits.cardinality();
+		if(cardinality == 0) return EMPTY;
+		long[] words = bits.toLongArray();
+		if((long) cardinality * Integer.SIZE <= (long) words.length * Long.SIZE) {
+			return new CompactIntSet(bits.stream().toArray(), null, cardinality);
+		}
+		return new CompactIntSet(null, words, cardinality);
+	}
+
+	public boolean contains(int value) {
+		if(value < 0) return false;
+		if(sorted != null) return Arrays.binarySearch(sorted, value) >= 0;
+		int word = value >>> 6;
+		return word < words.length && (words[word] & (1L << value)) != 0;
+	}
+
+	public int cardinality() {
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	public void forEach(IntConsumer action) {
+		if(sorted != null) {
+			for (int value : sorted) action.accept(value);
+			return;
+		}
+		for (int i = 0; i < words.length; i++) {
+			long word = words[i];
+			while(word != 0) {
+				action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+	}
+
+	public int[] toArray() {
+		if(sorted != null) return sorted.clone();
+		int[] res = new int[cardinality];
+		int[] count = {0};
+		forEach(value -> res[count[0]++] = value);
+		return res;
+	}
+
+	public BitSet toBitSet() {
+		if(words != null) return BitSet.valueOf(words);
+		BitSet bits = new BitSet();
+		for (int value : sorted) bits.set(value);
+		return bits;
+	}
+}
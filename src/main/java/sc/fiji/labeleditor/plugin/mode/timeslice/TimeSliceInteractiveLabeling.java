@@ -29,41 +29,79 @@
 package sc.fiji.labeleditor.plugin.mode.timeslice;
 
 import bdv.viewer.TimePointListener;
-import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.labeling.LabelingType;
-import net.imglib2.view.Views;
+import org.scijava.Disposable;
 import sc.fiji.labeleditor.core.controller.DefaultInteractiveLabeling;
 import sc.fiji.labeleditor.core.controller.LabelEditorInterface;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelingChangeListener;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
 import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
 import sc.fiji.labeleditor.core.view.LabelEditorView;
 import sc.fiji.labeleditor.plugin.interfaces.bdv.BdvInterface;
 
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-public class TimeSliceInteractiveLabeling<L> extends DefaultInteractiveLabeling<L> {
+public class TimeSliceInteractiveLabeling<L> extends DefaultInteractiveLabeling<L> implements Disposable {
 
-	private long timePoint = 0;
-	private Set<L> labelsInScope = new HashSet<>();
-	private boolean processingLabelsInScope = false;
+	private volatile long timePoint = 0;
+	private final TimeSliceLabelScope<L> scope;
+	private final LabelingChangeListener scopeInvalidation = this::invalidateScope;
+	private final TimePointListener timePointListener = this::timePointChanged;
 
 	public TimeSliceInteractiveLabeling(LabelEditorModel<L> model, LabelEditorView<L> view, LabelEditorInterface interfaceInstance) {
 		super(model, view, interfaceInstance);
+		if(model instanceof TimeSliceLabelEditorModel) {
+			scope = new TimeSliceLabelScope<>((TimeSliceLabelEditorModel<L>) model);
+		} else {
+			scope = null;
+		}
 	}
 
 	@Override
 	public void initialize() {
 		super.initialize();
+		if(scope != null) {
+			model().labelingListeners().remove(scopeInvalidation);
+			model().labelingListeners().add(scopeInvalidation);
+			scope.request(timePoint);
+		}
 		try {
 			BdvInterface bdv = (BdvInterface) interfaceInstance;
-			bdv.getComponent().addTimePointListener(this::timePointChanged);
+			bdv.getComponent().addTimePointListener(timePointListener);
 		} catch (ClassCastException e) {
 			System.err.println("Cannot add a timepoint listener to interface " + interfaceInstance.getClass().getName());
 		}
 	}
 
+	/**
+	 * Removes the listeners of this labeling and stops the background computation of the labels in scope.
+	 */
+	@Override
+	public void dispose() {
+		if(scope != null) {
+			model().labelingListeners().remove(scopeInvalidation);
+			scope.dispose();
+		}
+		if(interfaceInstance instanceof BdvInterface) {
+			((BdvInterface) interfaceInstance).getComponent().removeTimePointListener(timePointListener);
+		}
+	}
+
+	private void invalidateScope(LabelingChangedEvent<?> e) {
+		long[] timePoints = ((TimeSliceLabelEditorModel<L>) model()).getTimeRange(e);
+		if(timePoints == null) scope.invalidate();
+		else scope.invalidate(timePoints[0], timePoints[1]);
+	}
+
 	private void timePointChanged(int index) {
 		this.timePoint = index;
 		for (LabelEditorRenderer renderer : view().renderers()) {
@@ -72,21 +110,7 @@ public class TimeSliceInteractiveLabeling<L> extends DefaultInteractiveLabeling<
 			}
 		}
 		view().updateRenderers();
-		new Thread(() -> {
-			processingLabelsInScope = true;
-			labelsInScope.clear();
-			boolean[] setDone = new boolean[model().labeling().getMapping().numSets()];
-			Cursor<LabelingType<L>> cursor = Views.iterable(getLabelingInScope()).cursor();
-			while(cursor.hasNext()) {
-				int val = cursor.next().getIndex().getInteger();
-				if(setDone[val]) continue;
-				setDone[val] = true;
-				Set<L> labels = cursor.get();
-				if(labels.size() == 0) continue;
-				labelsInScope.addAll(labels);
-			}
-			processingLabelsInScope = false;
-		}).start();
+		if(scope != null) scope.request(index);
 	}
 
 	@Override
@@ -99,9 +123,49 @@ public class TimeSliceInteractiveLabeling<L> extends DefaultInteractiveLabeling<
 		return model().labeling();
 	}
 
+	@Override
+	public Interval toLabelingInterval(Interval intervalInScope) {
+		if(!(model() instanceof TimeSliceLabelEditorModel)) return intervalInScope;
+		int numDimensions = model().labeling().numDimensions();
+		if(intervalInScope.numDimensions() == numDimensions) return intervalInScope;
+		int timeDimension = ((TimeSliceLabelEditorModel<L>) model()).getTimeDimension();
+		long[] min = new long[numDimensions];
+		long[] max = new long[numDimensions];
+		for (int d = 0, i = 0; d < numDimensions; d++) {
+			if(d == timeDimension) {
+				min[d] = timePoint;
+				max[d] = timePoint;
+			} else {
+				min[d] = intervalInScope.min(i);
+				max[d] = intervalInScope.max(i++);
+			}
+		}
+		return new FinalInterval(min, max);
+	}
+
+	/**
+	 * @return a future of the (immutable) set of labels present at the given timepoint
+	 */
+	public Future<Set<L>> getLabelSetAtTime(long timePoint) {
+		if(scope == null) return CompletableFuture.completedFuture(super.getLabelSetInScope());
+		return scope.request(timePoint);
+	}
+
 	@Override
 	public Set<L> getLabelSetInScope() {
-		while(processingLabelsInScope){}
-		return labelsInScope;
+		if(scope == null) return super.getLabelSetInScope();
+		while(true) {
+			try {
+				Set<L> labels = scope.request(timePoint).get();
+				return labels != null ? labels : Collections.emptySet();
+			} catch (CancellationException e) {
+				// the timepoint changed while waiting, ask for the current one
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return Collections.emptySet();
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
 	}
 }
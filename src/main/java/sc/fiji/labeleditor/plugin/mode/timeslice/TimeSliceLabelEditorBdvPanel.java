@@ -36,8 +36,13 @@ import sc.fiji.labeleditor.core.view.LabelEditorView;
 import sc.fiji.labeleditor.plugin.interfaces.bdv.BdvInterface;
 import sc.fiji.labeleditor.plugin.interfaces.bdv.LabelEditorBdvPanel;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class TimeSliceLabelEditorBdvPanel extends LabelEditorBdvPanel {
 
+	private final List<TimeSliceInteractiveLabeling<?>> labelings = new ArrayList<>();
+
 	public TimeSliceLabelEditorBdvPanel() {
 		super();
 	}
@@ -60,6 +65,14 @@ public class TimeSliceLabelEditorBdvPanel extends LabelEditorBdvPanel {
 		if(context() != null) context().inject(interactiveLabeling);
 		interactiveLabeling.initialize();
 		getInterfaceInstance().display(view, options);
+		labelings.add(interactiveLabeling);
 		return interactiveLabeling;
 	}
+
+	@Override
+	public void dispose() {
+		labelings.forEach(TimeSliceInteractiveLabeling::dispose);
+		labelings.clear();
+		super.dispose();
+	}
 }
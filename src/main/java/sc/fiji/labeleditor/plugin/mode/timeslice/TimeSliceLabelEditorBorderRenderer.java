@@ -33,9 +33,7 @@ import net.imglib2.converter.Converter;
 import net.imglib2.converter.Converters;
 import net.imglib2.roi.boundary.IntTypeBoundary;
 import net.imglib2.type.numeric.ARGBType;
-import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.integer.IntType;
-import net.imglib2.view.IntervalView;
 import org.scijava.plugin.Plugin;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
 import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
@@ -55,13 +53,11 @@ public class TimeSliceLabelEditorBorderRenderer<L> extends TimeSliceLabelEditorR
 
 	@Override
 	public void updateOnTagChange(LabelEditorModel<L> model) {
-		TimeSliceLabelEditorModel<L> timeModel = (TimeSliceLabelEditorModel<L>) model;
-		IntervalView<? extends IntegerType<?> > intervalView = timeModel.getIndexImgAtTime(timePoint);
-		updateLUT(model, intervalView, LabelEditorTargetComponent.BORDER);
+		updateLUT(model, LabelEditorTargetComponent.BORDER);
 	}
 
 	public RandomAccessibleInterval<ARGBType> getOutput() {
-		Converter<IntType, ARGBType> converter = (i, o) -> o.set(getLUT()[i.get()]);
+		Converter<IntType, ARGBType> converter = (i, o) -> o.set(getColor(i.get()));
 		return Converters.convert(output, converter, new ARGBType());
 	}
 }
@@ -28,6 +28,7 @@
  */
 package sc.fiji.labeleditor.plugin.mode.timeslice;
 
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.roi.labeling.ImgLabeling;
 import net.imglib2.roi.labeling.LabelingType;
@@ -36,19 +37,52 @@ import net.imglib2.type.numeric.integer.IntType;
 import net.imglib2.view.IntervalView;
 import net.imglib2.view.Views;
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
+import sc.fiji.labeleditor.core.model.RegionAdjacencyGraph;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
+
+import java.util.Set;
 
 public class TimeSliceLabelEditorModel<L> extends DefaultLabelEditorModel<L> {
 
 	private final int timeDimension;
+	private final TimeSlicePresenceIndex presenceIndex = new TimeSlicePresenceIndex(this);
+	private final TimeSliceLinkIndex<L> linkIndex = new TimeSliceLinkIndex<>(this);
 
 	public TimeSliceLabelEditorModel(ImgLabeling<L, IntType> labeling, int timeDimension) {
 		super(labeling);
 		this.timeDimension = timeDimension;
+		labelingListeners().add(this::onLabelingChange);
 	}
 
 	public TimeSliceLabelEditorModel(ImgLabeling<L, IntType> labeling, RandomAccessibleInterval data, int timeDimension) {
 		super(labeling, data);
 		this.timeDimension = timeDimension;
+		labelingListeners().add(this::onLabelingChange);
+	}
+
+	private void onLabelingChange(LabelingChangedEvent e) {
+		long[] timePoints = getTimeRange(e);
+		if(timePoints == null) {
+			presenceIndex.invalidate();
+		} else {
+			for (long t = timePoints[0]; t <= timePoints[1]; t++) presenceIndex.invalidate(t);
+		}
+		linkIndex.invalidate();
+	}
+
+	/**
+	 * @return the first and the last timepoint modified by the given change, null if unknown
+	 */
+	public long[] getTimeRange(LabelingChangedEvent<?> e) {
+		Interval interval = e.getInterval();
+		if(interval == null || interval.numDimensions() != labeling().numDimensions()) return null;
+		return new long[]{interval.min(timeDimension), interval.max(timeDimension)};
+	}
+
+	@Override
+	protected RegionAdjacencyGraph<L> createAdjacencyGraph() {
+		return new RegionAdjacencyGraph<>(labeling(), timeDimension);
 	}
 
 	public int getTimeDimension() {
@@ -59,6 +93,61 @@ public class TimeSliceLabelEditorModel<L> extends DefaultLabelEditorModel<L> {
 		return Views.hyperSlice(labeling().getIndexImg(), getTimeDimension(), currentTimePoint);
 	}
 
+	/**
+	 * @return the label set indices occurring at the given timepoint
+	 */
+	public CompactIntSet getSetIndicesAtTime(long currentTimePoint) {
+		return presenceIndex.get(currentTimePoint);
+	}
+
+	public TimeSlicePresenceIndex presenceIndex() {
+		return presenceIndex;
+	}
+
+	public TimeSliceLinkIndex<L> linkIndex() {
+		return linkIndex;
+	}
+
+	/**
+	 * @return the labels at the next timepoint overlapping with the given label
+	 */
+	public Set<L> getSuccessors(L label) {
+		return linkIndex.getSuccessors(label);
+	}
+
+	/**
+	 * @return the labels at the previous timepoint overlapping with the given label
+	 */
+	public Set<L> getPredecessors(L label) {
+		return linkIndex.getPredecessors(label);
+	}
+
+	/**
+	 * @return the given label and all its ancestors and descendants across timepoints
+	 */
+	public Set<L> getLineage(L label) {
+		Set<L> res = linkIndex.getLinked(label, true, false);
+		res.addAll(linkIndex.getLinked(label, false, true));
+		return res;
+	}
+
+	/**
+	 * Selects the given label and all labels linked to it in the given directions.
+	 */
+	public void selectLinked(L label, boolean forward, boolean backward) {
+		select(linkIndex.getLinked(label, forward, backward));
+	}
+
+	public void selectLineage(L label) {
+		select(getLineage(label));
+	}
+
+	private void select(Set<L> labels) {
+		tagging().pauseListeners();
+		labels.forEach(l -> tagging().addTagToLabel(LabelEditorTag.SELECTED, l));
+		tagging().resumeListeners();
+	}
+
 	public IntervalView<LabelingType<L>> getLabelingAtTime(long currentTimePoint) {
 		return Views.hyperSlice(labeling(), getTimeDimension(), currentTimePoint);
 	}
@@ -29,11 +29,8 @@
 package sc.fiji.labeleditor.plugin.mode.timeslice;
 
 import bdv.viewer.TimePointListener;
-import net.imglib2.Cursor;
-import net.imglib2.type.numeric.IntegerType;
-import net.imglib2.type.numeric.integer.IntType;
-import net.imglib2.view.IntervalView;
 import org.scijava.plugin.Plugin;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
 import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
 import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
@@ -54,41 +51,35 @@ public class TimeSliceLabelEditorRenderer<L> extends AbstractLabelEditorRenderer
 
 	@Override
 	public void updateOnTagChange(LabelEditorModel<L> model) {
-		TimeSliceLabelEditorModel<L> timeModel = (TimeSliceLabelEditorModel<L>) model;
-		IntervalView< ? extends IntegerType< ? > > intervalView = timeModel.getIndexImgAtTime(timePoint);
-		updateLUT(model, intervalView, LabelEditorTargetComponent.FACE);
+		updateLUT(model, LabelEditorTargetComponent.FACE);
 	}
 
-	protected void updateLUT(LabelEditorModel<L> model, IntervalView<? extends IntegerType<?>> slice, Object targetComponent) {
+	protected void updateLUT(LabelEditorModel<L> model, Object targetComponent) {
 
+		long start = model.metrics().start();
+
+		this.targetComponent = targetComponent;
 		if(lut == null || lut.length != model.labeling().getMapping().numSets()) {
 			lut = new int[model.labeling().getMapping().numSets()];
 		} else {
 			Arrays.fill(lut, 0);
 		}
 
-		if(model.colors() == null) return;
-
-		boolean[] lutDone = new boolean[model.labeling().getMapping().numSets()];
-
-		if(model.colors() != null) {
-
-			Cursor<? extends IntegerType<?>> cursor = slice.cursor();
-
-			while(cursor.hasNext()) {
-
-				int val = cursor.next().getInteger();
-
-				if(lutDone[val]) continue;
-				lutDone[val] = true;
-
-				Set<L> labels = model.labeling().getMapping().labelsAtIndex(val);
+		if(model.colors() == null) {
+			updateHighlight();
+			return;
+		}
 
-				if(labels.size() == 0) continue;
+		CompactIntSet present = ((TimeSliceLabelEditorModel<L>) model).getSetIndicesAtTime(timePoint);
+		present.forEach(val -> {
+			if(val >= lut.length) return;
+			Set<L> labels = model.labeling().getMapping().labelsAtIndex(val);
+			if(labels.size() == 0) return;
+			lut[val] = getMixColor(model.colors(), targetComponent, labels);
+		});
+		updateHighlight();
 
-				lut[val] = getMixColor(model.colors(), targetComponent, labels);
-			}
-		}
+		model.metrics().stop(LabelEditorMetrics.UPDATE_LUT, start, present.cardinality());
 	}
 
 	@Override
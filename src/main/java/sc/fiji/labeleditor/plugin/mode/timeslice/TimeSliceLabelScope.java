@@ -0,0 +1,149 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.mode.timeslice;
+
+import net.imglib2.roi.labeling.LabelingMapping;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the set of labels present at a timepoint of a {@link TimeSliceLabelEditorModel} in the background.
+ * Only the most recently requested timepoint is computed, older pending requests are cancelled.
+ * Results are immutable snapshots, the most recently used ones are cached per timepoint.
+ */
+public class TimeSliceLabelScope<L> {
+
+	private static final int DEFAULT_CACHE_SIZE = 16;
+
+	private final TimeSliceLabelEditorModel<L> model;
+	private final ThreadPoolExecutor executor;
+	private final Map<Long, Set<L>> cache;
+
+	private Future<Set<L>> pending;
+	private long pendingTimePoint = -1;
+	private long version = 0;
+
+	public TimeSliceLabelScope(TimeSliceLabelEditorModel<L> model) {
+		this(model, DEFAULT_CACHE_SIZE);
+	}
+
+	public TimeSliceLabelScope(TimeSliceLabelEditorModel<L> model, int cacheSize) {
+		this.model = model;
+		this.cache = new LinkedHashMap<Long, Set<L>>(cacheSize, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Set<L>> eldest) {
+				return size() > cacheSize;
+			}
+		};
+		this.executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "labeleditor-timeslice-scope");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Requests the labels present at the given timepoint.
+	 * A pending computation for any other timepoint is cancelled.
+	 */
+	public synchronized Future<Set<L>> request(long timePoint) {
+		Set<L> cached = cache.get(timePoint);
+		if(cached != null) {
+			model.metrics().hit(LabelEditorMetrics.TIME_SLICE_SCOPE_CACHE);
+			return CompletableFuture.completedFuture(cached);
+		}
+		model.metrics().miss(LabelEditorMetrics.TIME_SLICE_SCOPE_CACHE);
+		if(pending != null && !pending.isDone()) {
+			if(pendingTimePoint == timePoint) return pending;
+			pending.cancel(true);
+			executor.purge();
+		}
+		long requestVersion = version;
+		pendingTimePoint = timePoint;
+		pending = executor.submit(() -> compute(timePoint, requestVersion));
+		return pending;
+	}
+
+	/**
+	 * Drops all cached results, e.g. after the labeling was modified.
+	 */
+	public synchronized void invalidate() {
+		version++;
+		cache.clear();
+		if(pending != null) {
+			pending.cancel(true);
+			executor.purge();
+			pending = null;
+		}
+	}
+
+	/**
+	 * Drops the cached results of the given range of timepoints.
+	 */
+	public synchronized void invalidate(long fromTimePoint, long toTimePoint) {
+		cache.keySet().removeIf(t -> t >= fromTimePoint && t <= toTimePoint);
+		if(pending != null && pendingTimePoint >= fromTimePoint && pendingTimePoint <= toTimePoint) {
+			version++;
+			pending.cancel(true);
+			executor.purge();
+			pending = null;
+		}
+	}
+
+	public void dispose() {
+		invalidate();
+		executor.shutdownNow();
+	}
+
+	private Set<L> compute(long timePoint, long requestVersion) {
+		LabelingMapping<L> mapping = model.labeling().getMapping();
+		CompactIntSet present = model.getSetIndicesAtTime(timePoint);
+		if(Thread.currentThread().isInterrupted()) return null;
+		Set<L> labels = new HashSet<>();
+		present.forEach(index -> labels.addAll(mapping.labelsAtIndex(index)));
+		Set<L> snapshot = Collections.unmodifiableSet(labels);
+		synchronized (this) {
+			if(requestVersion == version && !Thread.currentThread().isInterrupted()) {
+				cache.put(timePoint, snapshot);
+			}
+		}
+		return snapshot;
+	}
+}
@@ -0,0 +1,331 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.mode.timeslice;
+
+import net.imglib2.Cursor;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.view.Views;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Links labels of a {@link TimeSliceLabelEditorModel} to the labels they overlap with at the next timepoint.
+ * The overlaps of all pairs of consecutive timepoints are computed in parallel
+ * and stored as sparse adjacency arrays (successors and predecessors) with the number of overlapping pixels per link.
+ */
+public class TimeSliceLinkIndex<L> {
+
+	private final TimeSliceLabelEditorModel<L> model;
+
+	private volatile Links links;
+
+	private class Links {
+		final List<L> labels = new ArrayList<>();
+		final Map<L, Integer> ids = new HashMap<>();
+		int[] successorOffsets;
+		int[] successors;
+		long[] successorOverlaps;
+		int[] predecessorOffsets;
+		int[] predecessors;
+	}
+
+	public TimeSliceLinkIndex(TimeSliceLabelEditorModel<L> model) {
+		this.model = model;
+	}
+
+	public void invalidate() {
+		links = null;
+	}
+
+	public synchronized void build() {
+		links = compute();
+	}
+
+	/**
+	 * @return the labels at the next timepoint overlapping with the given label
+	 */
+	public Set<L> getSuccessors(L label) {
+		Links links = getOrBuild();
+		Integer id = links.ids.get(label);
+		if(id == null) return Collections.emptySet();
+		return toLabels(links, links.successors, links.successorOffsets[id], links.successorOffsets[id + 1]);
+	}
+
+	/**
+	 * @return the labels at the previous timepoint overlapping with the given label
+	 */
+	public Set<L> getPredecessors(L label) {
+		Links links = getOrBuild();
+		Integer id = links.ids.get(label);
+		if(id == null) return Collections.emptySet();
+		return toLabels(links, links.predecessors, links.predecessorOffsets[id], links.predecessorOffsets[id + 1]);
+	}
+
+	/**
+	 * @return the number of pixels of {@code from} overlapping with {@code to} at the next timepoint
+	 */
+	public long getOverlap(L from, L to) {
+		Links links = getOrBuild();
+		Integer fromId = links.ids.get(from);
+		Integer toId = links.ids.get(to);
+		if(fromId == null || toId == null) return 0;
+		for (int i = links.successorOffsets[fromId]; i < links.successorOffsets[fromId + 1]; i++) {
+			if(links.successors[i] == toId) return links.successorOverlaps[i];
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the given label and all labels transitively linked to it in forward and / or backward direction
+	 */
+	public Set<L> getLinked(L label, boolean forward, boolean backward) {
+		Links links = getOrBuild();
+		Integer id = links.ids.get(label);
+		if(id == null) return Collections.singleton(label);
+		BitSet visited = new BitSet(links.labels.size());
+		Deque<Integer> queue = new ArrayDeque<>();
+		visited.set(id);
+		queue.add(id);
+		while(!queue.isEmpty()) {
+			int current = queue.poll();
+			if(forward) visit(links.successors, links.successorOffsets, current, visited, queue);
+			if(backward) visit(links.predecessors, links.predecessorOffsets, current, visited, queue);
+		}
+		Set<L> res = new HashSet<>();
+		visited.stream().forEach(i -> res.add(links.labels.get(i)));
+		return res;
+	}
+
+	private static void visit(int[] targets, int[] offsets, int id, BitSet visited, Deque<Integer> queue) {
+		for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+			int target = targets[i];
+			if(!visited.get(target)) {
+				visited.set(target);
+				queue.add(target);
+			}
+		}
+	}
+
+	private Set<L> toLabels(Links links, int[] targets, int from, int to) {
+		Set<L> res = new HashSet<>();
+		for (int i = from; i < to; i++) res.add(links.labels.get(targets[i]));
+		return res;
+	}
+
+	private Links getOrBuild() {
+		Links res = links;
+		if(res == null) {
+			synchronized (this) {
+				if(links == null) build();
+				res = links;
+			}
+		}
+		return res;
+	}
+
+	private Links compute() {
+		LabelingMapping<L> mapping = model.labeling().getMapping();
+		Links res = new Links();
+		for (L label : mapping.getLabels()) {
+			res.ids.put(label, res.labels.size());
+			res.labels.add(label);
+		}
+		int numTimePoints = (int) model.labeling().dimension(model.getTimeDimension());
+
+		// overlapping label set index pairs of consecutive timepoints
+		PairCounter setPairs = IntStream.range(0, Math.max(0, numTimePoints - 1)).parallel()
+				.mapToObj(this::countOverlappingSets)
+				.reduce(PairCounter::addAll).orElseGet(PairCounter::new);
+
+		// resolve label set pairs into label pairs
+		PairCounter labelPairs = new PairCounter();
+		setPairs.forEach((key, count) -> {
+			Set<L> labels = mapping.labelsAtIndex(first(key));
+			Set<L> nextLabels = mapping.labelsAtIndex(second(key));
+			for (L label : labels) {
+				int id = res.ids.get(label);
+				for (L nextLabel : nextLabels) {
+					int nextId = res.ids.get(nextLabel);
+					if(id != nextId) labelPairs.add(pair(id, nextId), count);
+				}
+			}
+		});
+
+		int numLabels = res.labels.size();
+		long[] edges = labelPairs.keys();
+		Arrays.sort(edges);
+		res.successorOffsets = new int[numLabels + 1];
+		res.successors = new int[edges.length];
+		res.successorOverlaps = new long[edges.length];
+		res.predecessorOffsets = new int[numLabels + 1];
+		res.predecessors = new int[edges.length];
+		for (long edge : edges) {
+			res.successorOffsets[first(edge) + 1]++;
+			res.predecessorOffsets[second(edge) + 1]++;
+		}
+		for (int i = 0; i < numLabels; i++) {
+			res.successorOffsets[i + 1] += res.successorOffsets[i];
+			res.predecessorOffsets[i + 1] += res.predecessorOffsets[i];
+		}
+		int[] predecessorFill = Arrays.copyOf(res.predecessorOffsets, numLabels);
+		for (int i = 0; i < edges.length; i++) {
+			long edge = edges[i];
+			res.successors[i] = second(edge);
+			res.successorOverlaps[i] = labelPairs.get(edge);
+			res.predecessors[predecessorFill[second(edge)]++] = first(edge);
+		}
+		return res;
+	}
+
+	private PairCounter countOverlappingSets(int timePoint) {
+		PairCounter counter = new PairCounter();
+		Cursor<? extends IntegerType<?>> current = Views.flatIterable(model.getIndexImgAtTime(timePoint)).cursor();
+		Cursor<? extends IntegerType<?>> next = Views.flatIterable(model.getIndexImgAtTime(timePoint + 1)).cursor();
+		LabelingMapping<L> mapping = model.labeling().getMapping();
+		int lastA = -1, lastB = -1;
+		long run = 0;
+		while(current.hasNext()) {
+			int a = current.next().getInteger();
+			int b = next.next().getInteger();
+			if(a == lastA && b == lastB) {
+				if(run > 0) run++;
+				continue;
+			}
+			if(run > 0) counter.add(pair(lastA, lastB), run);
+			lastA = a;
+			lastB = b;
+			run = isEmpty(mapping, a) || isEmpty(mapping, b) ? 0 : 1;
+		}
+		if(run > 0) counter.add(pair(lastA, lastB), run);
+		return counter;
+	}
+
+	private static boolean isEmpty(LabelingMapping<?> mapping, int index) {
+		return mapping.labelsAtIndex(index).isEmpty();
+	}
+
+	private static long pair(int a, int b) {
+		return ((long) a << 32) | (b & 0xffffffffL);
+	}
+
+	private static int first(long pair) {
+		return (int) (pair >>> 32);
+	}
+
+	private static int second(long pair) {
+		return (int) pair;
+	}
+
+	/**
+	 * Open addressing hash map from non-negative long keys to long counts.
+	 */
+	private static class PairCounter {
+
+		private static final long FREE = -1;
+
+		interface Consumer {
+			void accept(long key, long count);
+		}
+
+		private long[] keys = newKeys(16);
+		private long[] counts = new long[16];
+		private int size = 0;
+
+		private static long[] newKeys(int capacity) {
+			long[] keys = new long[capacity];
+			Arrays.fill(keys, FREE);
+			return keys;
+		}
+
+		void add(long key, long count) {
+			if(size * 2 >= keys.length) grow();
+			int slot = slot(keys, key);
+			if(keys[slot] == FREE) {
+				keys[slot] = key;
+				size++;
+			}
+			counts[slot] += count;
+		}
+
+		long get(long key) {
+			int slot = slot(keys, key);
+			return keys[slot] == FREE ? 0 : counts[slot];
+		}
+
+		long[] keys() {
+			long[] res = new long[size];
+			int i = 0;
+			for (long key : keys) if(key != FREE) res[i++] = key;
+			return res;
+		}
+
+		void forEach(Consumer consumer) {
+			for (int i = 0; i < keys.length; i++) {
+				if(keys[i] != FREE) consumer.accept(keys[i], counts[i]);
+			}
+		}
+
+		PairCounter addAll(PairCounter other) {
+			other.forEach(this::add);
+			return this;
+		}
+
+		private static int slot(long[] keys, long key) {
+			int mask = keys.length - 1;
+			int slot = (int) (key ^ (key >>> 29) ^ (key >>> 32)) * 0x9E3779B9 & mask;
+			while(keys[slot] != FREE && keys[slot] != key) slot = (slot + 1) & mask;
+			return slot;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			long[] oldCounts = counts;
+			keys = newKeys(oldKeys.length * 2);
+			counts = new long[oldKeys.length * 2];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if(oldKeys[i] == FREE) continue;
+				int slot = slot(keys, oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+}
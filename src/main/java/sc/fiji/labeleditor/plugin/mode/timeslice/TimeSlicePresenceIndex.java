@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.mode.timeslice;
+
+import net.imglib2.Cursor;
+import net.imglib2.type.numeric.IntegerType;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+/**
+ * Index from timepoint to the label set indices occurring at this timepoint of a {@link TimeSliceLabelEditorModel}.
+ * All timepoints are scanned in parallel on first access,
+ * after a labeling change timepoints are rescanned lazily when requested.
+ */
+public class TimeSlicePresenceIndex {
+
+	private final TimeSliceLabelEditorModel<?> model;
+	private volatile AtomicReferenceArray<Slot> timePoints;
+
+	public TimeSlicePresenceIndex(TimeSliceLabelEditorModel<?> model) {
+		this.model = model;
+	}
+
+	public CompactIntSet get(long timePoint) {
+		AtomicReferenceArray<Slot> slots = getOrBuild();
+		if(timePoint < 0 || timePoint >= slots.length()) return CompactIntSet.empty();
+		int t = (int) timePoint;
+		Slot slot = slots.get(t);
+		if(slot.entry != null) {
+			model.metrics().hit(LabelEditorMetrics.TIME_SLICE_PRESENCE_INDEX);
+			return slot.entry;
+		}
+		model.metrics().miss(LabelEditorMetrics.TIME_SLICE_PRESENCE_INDEX);
+		CompactIntSet entry = scan(t);
+		// only store the result if the slot was not invalidated during the scan
+		slots.compareAndSet(t, slot, new Slot(entry));
+		return entry;
+	}
+
+	public synchronized void build() {
+		int numTimePoints = (int) model.labeling().dimension(model.getTimeDimension());
+		AtomicReferenceArray<Slot> slots = emptySlots(numTimePoints);
+		// timepoints are scanned on other threads, stop once the requesting thread is interrupted,
+		// e.g. by a cancelled TimeSliceLabelScope request, the remaining timepoints are scanned when requested
+		Thread caller = Thread.currentThread();
+		IntStream.range(0, numTimePoints).parallel().forEach(t -> {
+			if(!caller.isInterrupted()) slots.set(t, new Slot(scan(t)));
+		});
+		timePoints = slots;
+	}
+
+	public synchronized void invalidate() {
+		AtomicReferenceArray<Slot> slots = timePoints;
+		if(slots == null) return;
+		timePoints = emptySlots(slots.length());
+	}
+
+	public synchronized void invalidate(long timePoint) {
+		AtomicReferenceArray<Slot> slots = timePoints;
+		if(slots == null || timePoint < 0 || timePoint >= slots.length()) return;
+		// a new empty slot, so that scans started before cannot store their result
+		slots.set((int) timePoint, new Slot(null));
+	}
+
+	private AtomicReferenceArray<Slot> getOrBuild() {
+		AtomicReferenceArray<Slot> slots = timePoints;
+		if(slots == null) {
+			synchronized (this) {
+				if(timePoints == null) build();
+				slots = timePoints;
+			}
+		}
+		return slots;
+	}
+
+	private static AtomicReferenceArray<Slot> emptySlots(int numTimePoints) {
+		AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(numTimePoints);
+		for (int t = 0; t < numTimePoints; t++) {
+			slots.set(t, new Slot(null));
+		}
+		return slots;
+	}
+
+	private CompactIntSet scan(int timePoint) {
+		BitSet present = new BitSet(model.labeling().getMapping().numSets());
+		Cursor<? extends IntegerType<?>> cursor = model.getIndexImgAtTime(timePoint).cursor();
+		while(cursor.hasNext()) {
+			present.set(cursor.next().getInteger());
+		}
+		return CompactIntSet.of(present);
+	}
+
+	/**
+	 * The content of a timepoint, null if it has to be scanned.
+	 * Each invalidation creates a new slot, its identity serves as stamp of the scan.
+	 */
+	private static class Slot {
+		final CompactIntSet entry;
+
+		Slot(CompactIntSet entry) {
+			this.entry = entry;
+		}
+	}
+}
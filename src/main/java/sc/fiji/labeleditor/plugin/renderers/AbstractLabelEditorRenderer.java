@@ -34,21 +34,37 @@ import net.imglib2.converter.Converters;
 import net.imglib2.roi.labeling.LabelingMapping;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.IntegerType;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
+import sc.fiji.labeleditor.core.model.colors.CompiledTagColors;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorLabelColors;
 import sc.fiji.labeleditor.core.model.colors.LabelEditorTagColors;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
 import sc.fiji.labeleditor.core.view.LabelEditorRenderer;
 import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
+import sc.fiji.labeleditor.plugin.mode.labelmap.LabelMapEditorModel;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public abstract class AbstractLabelEditorRenderer<L> implements LabelEditorRenderer<L> {
 
+	private static final int PARALLEL_THRESHOLD = 10000;
+	private static final int CHUNK_SIZE = 2048;
+
 	protected int[] lut;
+	protected Object targetComponent;
+	private volatile Highlight<L> highlight;
+	private final ThreadLocal<Scratch<L>> scratch = ThreadLocal.withInitial(Scratch::new);
 	boolean debug = false;
 	boolean active = true;
 	protected LabelEditorModel<L> model;
@@ -65,46 +81,248 @@ public abstract class AbstractLabelEditorRenderer<L> implements LabelEditorRende
 
 	protected synchronized void updateLUT(LabelingMapping<L> mapping, LabelEditorTagColors tagColors, LabelEditorTargetComponent targetComponent) {
 
+		long start = model.metrics().start();
+
+		this.targetComponent = targetComponent;
 		if(lut == null || lut.length != model.labeling().getMapping().numSets()) {
 			lut = new int[model.labeling().getMapping().numSets()];
 		} else {
 			Arrays.fill(lut, 0);
 		}
 
-		if(tagColors == null) return;
+		if(tagColors == null) {
+			updateHighlight();
+			return;
+		}
 
-		for (int i = 0; i < lut.length; i++) {
+		CompiledTagColors compiled = tagColors.compile();
+		int[] lut = this.lut;
+		boolean done = isLabelMap() && updateLabelMapLUT(mapping, compiled, lut);
+		if(!done && lut.length < PARALLEL_THRESHOLD) {
+			updateLUT(mapping, compiled, targetComponent, lut, 0, lut.length);
+		} else if(!done) {
+			int numChunks = (lut.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+			ForkJoinPool.commonPool().submit(() -> IntStream.range(0, numChunks).parallel().forEach(chunk ->
+					updateLUT(mapping, compiled, targetComponent, lut, chunk * CHUNK_SIZE, Math.min(lut.length, (chunk + 1) * CHUNK_SIZE))
+			)).join();
+		}
 
-			Set<L> labels = mapping.labelsAtIndex(i);
+		updateHighlight();
 
-			if(labels.size() == 0) continue;
+		if(debug) {
+			printLUT(mapping, lut);
+		}
 
-			lut[i] = getMixColor(tagColors, targetComponent, labels);
+		model.metrics().stop(LabelEditorMetrics.UPDATE_LUT, start, lut.length);
+	}
 
+	/**
+	 * Updates only the LUT entries of the given label set indices and of sets created since the last update.
+	 * The colors of all other sets do not depend on the labeling and stay valid.
+	 * @return false if the LUT has to be rebuilt completely instead
+	 */
+	protected synchronized boolean updateLUT(LabelingMapping<L> mapping, LabelEditorTagColors tagColors, BitSet setIndices) {
+		if(lut == null || targetComponent == null || tagColors == null) return false;
+		int numSets = mapping.numSets();
+		if(numSets < lut.length) return false;
+
+		long start = model.metrics().start();
+
+		int oldLength = lut.length;
+		int[] lut = numSets == oldLength ? this.lut : Arrays.copyOf(this.lut, numSets);
+		CompiledTagColors compiled = tagColors.compile();
+		Scratch<L> scratch = this.scratch.get();
+		int count = 0;
+		for (int i = setIndices.nextSetBit(0); i >= 0 && i < oldLength; i = setIndices.nextSetBit(i + 1)) {
+			lut[i] = computeColor(mapping, compiled, i, scratch);
+			count++;
 		}
+		for (int i = oldLength; i < numSets; i++) {
+			lut[i] = computeColor(mapping, compiled, i, scratch);
+			count++;
+		}
+		scratch.clear();
+		this.lut = lut;
+		updateHighlight();
 
-		if(debug) {
-			printLUT(mapping, lut);
+		model.metrics().stop(LabelEditorMetrics.UPDATE_LUT, start, count);
+		return true;
+	}
+
+	private boolean isLabelMap() {
+		return model instanceof LabelMapEditorModel
+				&& ((LabelMapEditorModel) model).isIdentityMapping()
+				&& model.labelColors().isEmpty();
+	}
+
+	/**
+	 * In a label map, set index, label and tagging row are identical and all untagged labels share the same color,
+	 * so only the colors of tagged labels are mixed individually.
+	 * @return false if most labels are tagged, the LUT is then better computed in parallel
+	 */
+	private boolean updateLabelMapLUT(LabelingMapping<L> mapping, CompiledTagColors compiled, int[] lut) {
+		BitSet tagged = ((LabelMapEditorModel) model).tagging().getTaggedRows();
+		if(lut.length >= PARALLEL_THRESHOLD && tagged.cardinality() > lut.length / 2) return false;
+		if(lut.length == 0) return true;
+		// index 0 is the empty label set, the background
+		lut[0] = 0;
+		Scratch<L> scratch = this.scratch.get();
+		int untagged = tagged.nextClearBit(1);
+		if(untagged < lut.length) Arrays.fill(lut, 1, lut.length, computeColor(mapping, compiled, untagged, scratch));
+		for (int i = tagged.nextSetBit(1); i >= 0 && i < lut.length; i = tagged.nextSetBit(i + 1)) {
+			lut[i] = computeColor(mapping, compiled, i, scratch);
+		}
+		scratch.clear();
+		return true;
+	}
+
+	private int computeColor(LabelingMapping<L> mapping, CompiledTagColors compiled, int index, Scratch<L> scratch) {
+		Set<L> labels = mapping.labelsAtIndex(index);
+		if(labels.size() == 0) return 0;
+		return getMixColor(compiled, targetComponent, labels, null, scratch);
+	}
+
+	private void updateLUT(LabelingMapping<L> mapping, CompiledTagColors compiled, Object targetComponent, int[] lut, int from, int to) {
+		Scratch<L> scratch = this.scratch.get();
+		for (int i = from; i < to; i++) {
+			Set<L> labels = mapping.labelsAtIndex(i);
+			if(labels.size() == 0) continue;
+			lut[i] = getMixColor(compiled, targetComponent, labels, null, scratch);
 		}
+		scratch.clear();
 	}
 
 	protected int getMixColor(LabelEditorTagColors tagColors, Object targetComponent, Set<L> labels) {
-		List<L> sortedLabels = new ArrayList<>(labels);
-		sortedLabels.sort(model.getLabelComparator());
+		Scratch<L> scratch = this.scratch.get();
+		int color = getMixColor(tagColors.compile(), targetComponent, labels, null, scratch);
+		scratch.clear();
+		return color;
+	}
+
+	private int getMixColor(CompiledTagColors compiled, Object targetComponent, Set<L> labels, Set<L> highlighted, Scratch<L> scratch) {
+		int componentId = compiled.getComponentId(targetComponent);
+		LabelEditorLabelColors<L> individualColors = null;
+		if(targetComponent instanceof LabelEditorTargetComponent && !model.labelColors().isEmpty()) {
+			individualColors = model.labelColors();
+		}
 
-		int[] labelColors = new int[sortedLabels.size()];
-		for (int j = 0; j < labelColors.length; j++) {
+		List<L> sortedLabels = scratch.labels;
+		sortedLabels.clear();
+		sortedLabels.addAll(labels);
+		if(sortedLabels.size() > 1) {
+			Comparator<L> comparator = model.getLabelComparator();
+			if(highlighted != null && !Collections.disjoint(highlighted, sortedLabels)) {
+				// highlighted labels are drawn on top, like labels tagged with MOUSE_OVER
+				comparator = Comparator.<L, Boolean>comparing(label -> !highlighted.contains(label)).thenComparing(comparator);
+			}
+			sortedLabels.sort(comparator);
+		}
+
+		int[] labelColors = scratch.labelColors(sortedLabels.size());
+		List<Object> sortedTags = scratch.tags;
+		for (int j = 0; j < sortedLabels.size(); j++) {
 
 			L label = sortedLabels.get(j);
-			Set<Object> labelTags = model.tagging().getTags(label);
-			ArrayList<Object> sortedTags = new ArrayList<>(labelTags);
-			sortedTags.sort(model.getTagComparator());
+			sortedTags.clear();
+			sortedTags.addAll(model.tagging().getTags(label));
+			if(highlighted != null && highlighted.contains(label) && !sortedTags.contains(LabelEditorTag.MOUSE_OVER)) {
+				sortedTags.add(LabelEditorTag.MOUSE_OVER);
+			}
+			if(sortedTags.size() > 1) sortedTags.sort(model.getTagComparator());
 			sortedTags.add(LabelEditorTag.DEFAULT);
 
-			labelColors[j] = mixColorsAdditive(label, sortedTags, tagColors, targetComponent, model.tagging());
+			int numColors = sortedTags.size();
+			int[] colors = scratch.tagColors(numColors + 1);
+			compiled.getColors(label, sortedTags, componentId, model.tagging(), colors);
+
+			// the individual color of the label goes in front of the default tag color
+			int labelColor = individualColors == null ? 0 : individualColors.get(label, (LabelEditorTargetComponent) targetComponent);
+			if(labelColor != 0) {
+				colors[numColors] = colors[numColors - 1];
+				colors[numColors - 1] = labelColor;
+				numColors++;
+			}
+			labelColors[j] = ColorMixingUtils.mixColorsAdditive(colors, numColors);
+		}
+
+		return ColorMixingUtils.mixColorsOverlay(labelColors, sortedLabels.size());
+	}
+
+	@Override
+	public void updateOnHighlight(LabelEditorModel<L> model, Set<L> labels, BitSet setIndices) {
+		highlight = labels.isEmpty() ? null : new Highlight<>(labels, setIndices);
+		updateHighlight();
+	}
+
+	/**
+	 * Recomputes the colors of the highlighted label sets only, the LUT itself stays untouched.
+	 */
+	protected void updateHighlight() {
+		Highlight<L> highlight = this.highlight;
+		if(highlight == null || model == null || targetComponent == null || model.colors() == null) return;
+		LabelingMapping<L> mapping = model.labeling().getMapping();
+		CompiledTagColors compiled = model.colors().compile();
+		Scratch<L> scratch = this.scratch.get();
+		int[] colors = new int[highlight.indices.length];
+		for (int i = 0; i < colors.length; i++) {
+			int index = highlight.indices[i];
+			if(index >= mapping.numSets()) continue;
+			Set<L> labels = mapping.labelsAtIndex(index);
+			if(labels.size() == 0) continue;
+			colors[i] = getMixColor(compiled, targetComponent, labels, highlight.labels, scratch);
+		}
+		scratch.clear();
+		highlight.colors = colors;
+	}
+
+	/**
+	 * @return the color of the given label set index, taking the current highlight into account
+	 */
+	protected int getColor(int index) {
+		Highlight<L> highlight = this.highlight;
+		if(highlight != null && index >= 0 && highlight.setIndices.get(index)) {
+			int[] colors = highlight.colors;
+			if(colors != null) return colors[Arrays.binarySearch(highlight.indices, index)];
+		}
+		return getLUT()[index];
+	}
+
+	private static class Highlight<L> {
+		final Set<L> labels;
+		final BitSet setIndices;
+		final int[] indices;
+		volatile int[] colors;
+
+		Highlight(Set<L> labels, BitSet setIndices) {
+			this.labels = labels;
+			this.setIndices = setIndices;
+			this.indices = setIndices.stream().toArray();
+		}
+	}
+
+	/**
+	 * Buffers reused by a thread across LUT entries, so that mixing allocates nothing per entry.
+	 */
+	private static class Scratch<L> {
+		final List<L> labels = new ArrayList<>();
+		final List<Object> tags = new ArrayList<>();
+		private int[] tagColors = new int[8];
+		private int[] labelColors = new int[8];
+
+		int[] tagColors(int size) {
+			if(tagColors.length < size) tagColors = new int[Math.max(size, tagColors.length * 2)];
+			return tagColors;
 		}
 
-		return ColorMixingUtils.mixColorsOverlay(labelColors);
+		int[] labelColors(int size) {
+			if(labelColors.length < size) labelColors = new int[Math.max(size, labelColors.length * 2)];
+			return labelColors;
+		}
+
+		void clear() {
+			labels.clear();
+			tags.clear();
+		}
 	}
 
 	private void printLUT(LabelingMapping<L> mapping, int[] lut) {
@@ -129,9 +347,17 @@ public abstract class AbstractLabelEditorRenderer<L> implements LabelEditorRende
 	public void updateOnLabelingChange() {
 	}
 
+	@Override
+	public void updateOnLabelingChange(LabelEditorModel<L> model, LabelingChangedEvent<L> event) {
+		updateOnLabelingChange();
+		if(event.getSetIndices() == null || !updateLUT(model.labeling().getMapping(), model.colors(), event.getSetIndices())) {
+			updateOnTagChange(model);
+		}
+	}
+
 	@Override
 	public synchronized RandomAccessibleInterval<ARGBType> getOutput() {
-		Converter<? super IntegerType<?>, ARGBType> converter = (i, o) -> o.set(getLUT()[i.getInteger()]);
+		Converter<? super IntegerType<?>, ARGBType> converter = (i, o) -> o.set(getColor(i.getInteger()));
 		return Converters.convert(model.labeling().getIndexImg(), converter,
 				new ARGBType());
 	}
@@ -57,7 +57,7 @@ public class BorderLabelEditorRenderer<L> extends DefaultLabelEditorRenderer<L>
 
 	@Override
 	public RandomAccessibleInterval<ARGBType> getOutput() {
-		Converter<IntType, ARGBType> converter = (i, o) -> o.set(getLUT()[i.get()]);
+		Converter<IntType, ARGBType> converter = (i, o) -> o.set(getColor(i.get()));
 		return Converters.convert(output, converter, new ARGBType() );
 	}
 
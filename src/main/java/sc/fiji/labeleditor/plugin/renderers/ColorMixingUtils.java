@@ -30,47 +30,101 @@ package sc.fiji.labeleditor.plugin.renderers;
 
 import net.imglib2.type.numeric.ARGBType;
 
+/**
+ * Integer alpha compositing of ARGB colors.
+ * Coverage and transmittance are kept premultiplied in fixed point with {@link #OPAQUE} as full coverage,
+ * so that an 8 bit alpha times a transmittance divides by 255 without drift and
+ * the only divisions per pixel happen when converting the result back to ARGB.
+ */
 public class ColorMixingUtils {
 
+	public static final int OPAQUE = 255 * 255;
+
 	//https://en.wikipedia.org/wiki/Alpha_compositing
 	//https://wikimedia.org/api/rest_v1/media/math/render/svg/12ea004023a1756851fc7caa0351416d2ba03bae
 	public static int mixColorsOverlay(int[] colors) {
-		float red = 0;
-		float green = 0;
-		float blue = 0;
-		float alpha = 0;
-		for (int color : colors) {
-			if(color == 0) continue;
-			float newred = ARGBType.red(color);
-			float newgreen = ARGBType.green(color);
-			float newblue = ARGBType.blue(color);
-			float newalpha = ((float)ARGBType.alpha(color))/255.f;
-			if(alpha < 0.0001 && newalpha < 0.0001) continue;
-			red = (red*alpha+newred*newalpha*(1-alpha))/(alpha + newalpha*(1-alpha));
-			green = (green*alpha+newgreen*newalpha*(1-alpha))/(alpha + newalpha*(1-alpha));
-			blue = (blue*alpha+newblue*newalpha*(1-alpha))/(alpha + newalpha*(1-alpha));
-			alpha = alpha + newalpha*(1-alpha);
+		return mixColorsOverlay(colors, colors.length);
+	}
+
+	/**
+	 * Mixes the first {@code length} colors of the array, so that callers can reuse a scratch buffer.
+	 */
+	public static int mixColorsOverlay(int[] colors, int length) {
+		int red = 0;
+		int green = 0;
+		int blue = 0;
+		int transmittance = OPAQUE;
+		for (int i = 0; i < length && transmittance > 0; i++) {
+			final int color = colors[i];
+			final int weight = weight(color, transmittance);
+			if(weight == 0) continue;
+			red += red(color) * weight;
+			green += green(color) * weight;
+			blue += blue(color) * weight;
+			transmittance -= weight;
 		}
-		return ARGBType.rgba((int)red, (int)green, (int)blue, (int)(alpha*255));
+		return toARGB(red, green, blue, transmittance);
 	}
 
 	public static int mixColorsAdditive(int[] colors) {
-		float red = 0;
-		float green = 0;
-		float blue = 0;
-		float alpha = 0;
-		for (int color : colors) {
-			if(color == 0) continue;
-			float newred = ARGBType.red(color);
-			float newgreen = ARGBType.green(color);
-			float newblue = ARGBType.blue(color);
-			float newalpha = ((float)ARGBType.alpha(color))/255.f;
-			if(alpha < 0.0001 && newalpha < 0.0001) continue;
-			red = Math.min(255, red + newred*newalpha);
-			green = Math.min(255, green + newgreen*newalpha);
-			blue = Math.min(255, blue + newblue*newalpha);
-			alpha = alpha + newalpha*(1-alpha);
+		return mixColorsAdditive(colors, colors.length);
+	}
+
+	/**
+	 * Mixes the first {@code length} colors of the array, so that callers can reuse a scratch buffer.
+	 */
+	public static int mixColorsAdditive(int[] colors, int length) {
+		int red = 0;
+		int green = 0;
+		int blue = 0;
+		int transmittance = OPAQUE;
+		for (int i = 0; i < length; i++) {
+			final int color = colors[i];
+			final int alpha = alpha(color);
+			if(alpha == 0) continue;
+			red += red(color) * alpha;
+			green += green(color) * alpha;
+			blue += blue(color) * alpha;
+			transmittance -= weight(color, transmittance);
 		}
-		return ARGBType.rgba((int)red, (int)green, (int)blue, (int)(alpha*255));
+		return ARGBType.rgba(
+				Math.min(255, red / 255),
+				Math.min(255, green / 255),
+				Math.min(255, blue / 255),
+				(OPAQUE - transmittance) / 255);
+	}
+
+	/**
+	 * @return the premultiplied weight of {@code color} when composited behind
+	 * layers which let {@code transmittance} (in units of {@link #OPAQUE}) pass through.
+	 */
+	public static int weight(int color, int transmittance) {
+		return alpha(color) * transmittance / 255;
+	}
+
+	/**
+	 * Converts premultiplied channel sums accumulated with {@link #weight(int, int)}
+	 * back into a non-premultiplied ARGB value.
+	 */
+	public static int toARGB(int red, int green, int blue, int transmittance) {
+		final int coverage = OPAQUE - transmittance;
+		if(coverage <= 0) return 0;
+		return ARGBType.rgba(red / coverage, green / coverage, blue / coverage, coverage / 255);
+	}
+
+	public static int alpha(int color) {
+		return color >>> 24;
+	}
+
+	public static int red(int color) {
+		return (color >> 16) & 0xff;
+	}
+
+	public static int green(int color) {
+		return (color >> 8) & 0xff;
+	}
+
+	public static int blue(int color) {
+		return color & 0xff;
 	}
 }
@@ -0,0 +1,77 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.table;
+
+/**
+ * Stable merge sort of index arrays, comparing the indices by primitive keys.
+ */
+class IndexSort {
+
+	interface IndexComparator {
+		int compare(int index1, int index2);
+	}
+
+	/**
+	 * Sorts the indices ascending by their keys, NaN keys last.
+	 */
+	static void sort(int[] indices, double[] keys, boolean ascending) {
+		sort(indices, (i1, i2) -> {
+			double key1 = keys[i1];
+			double key2 = keys[i2];
+			if(Double.isNaN(key1) || Double.isNaN(key2)) return Boolean.compare(Double.isNaN(key1), Double.isNaN(key2));
+			return ascending ? Double.compare(key1, key2) : Double.compare(key2, key1);
+		});
+	}
+
+	static void sort(int[] indices, IndexComparator comparator) {
+		int[] buffer = new int[indices.length];
+		int[] src = indices;
+		int[] dst = buffer;
+		for (int width = 1; width < indices.length; width *= 2) {
+			for (int start = 0; start < indices.length; start += 2 * width) {
+				int mid = Math.min(start + width, indices.length);
+				int end = Math.min(start + 2 * width, indices.length);
+				merge(src, dst, start, mid, end, comparator);
+			}
+			int[] tmp = src;
+			src = dst;
+			dst = tmp;
+		}
+		if(src != indices) System.arraycopy(src, 0, indices, 0, indices.length);
+	}
+
+	private static void merge(int[] src, int[] dst, int start, int mid, int end, IndexComparator comparator) {
+		int i = start, j = mid, k = start;
+		while(i < mid && j < end) {
+			dst[k++] = comparator.compare(src[j], src[i]) < 0 ? src[j++] : src[i++];
+		}
+		while(i < mid) dst[k++] = src[i++];
+		while(j < end) dst[k++] = src[j++];
+	}
+}
@@ -28,60 +28,225 @@
  */
 package sc.fiji.labeleditor.plugin.table;
 
-import org.scijava.table.interactive.DefaultInteractiveTable;
-import org.scijava.table.interactive.SelectionModelAdapter;
+import net.imglib2.type.numeric.RealType;
+import org.scijava.table.interactive.IntSelectionModel;
+import org.scijava.table.interactive.IntSelectionModelAdapter;
+import org.scijava.table.interactive.SortableTableModel;
 import sc.fiji.labeleditor.core.controller.InteractiveLabeling;
+import sc.fiji.labeleditor.core.model.LabelingChangeListener;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
 import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTagging;
 import sc.fiji.labeleditor.core.model.tagging.TagChangeListener;
 import sc.fiji.labeleditor.core.model.tagging.TagChangedEvent;
 
-import java.util.Arrays;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
-//TODO since the DefaultLabelEditorTagging is already a table, it might be better to display it directly
-public class LabelEditorTable<L> extends DefaultInteractiveTable<Integer> implements TagChangeListener {
+/**
+ * Table of all labels and their tags, reading the cells lazily from the tagging of the model.
+ * Tag changes update the affected cells, labeling changes reload the rows and keep the sort order.
+ * Rows are sorted through index arrays by primitive keys of the sorted column.
+ */
+public class LabelEditorTable<L> extends AbstractTableModel implements SortableTableModel, TagChangeListener, LabelingChangeListener {
+
+	// above this number of changed cells, the whole table is repainted instead of single cells
+	private static final int MAX_CELL_UPDATES = 1000;
 
 	private final InteractiveLabeling<L> labeling;
+	private final List<Object> tags = new ArrayList<>();
+	private final Map<Object, Integer> tagToColumn = new HashMap<>();
+	// maps model rows to labels and back
+	private final IntSelectionModelAdapter<L> selectionModel;
+	private int[] viewToModel = new int[0];
+	private int[] modelToView = new int[0];
+	// the sorted column and direction, reapplied when the rows are reloaded, -1 if unsorted
+	private int sortColumn = -1;
+	private boolean sortAscending = true;
 
 	public LabelEditorTable(InteractiveLabeling<L> labeling) {
-
 		this.labeling = labeling;
-
-		populateTable();
+		selectionModel = new IntSelectionModelAdapter<>(labeling.getSelectionModel(), new ArrayList<>(labeling.model().labeling().getMapping().getLabels()));
+		resetOrder();
+		loadColumns();
 		labeling.model().tagging().listeners().add(this);
+		labeling.model().labelingListeners().add(this);
 	}
 
-	private void populateTable() {
-		Map<Integer, L> mappingLeft = new HashMap<>();
-		Map<L, Integer> mappingRight = new HashMap<>();
-		int i = 0;
-		List<LabelEditorTag> labelEditorTags = Arrays.asList(LabelEditorTag.values());
-		for (L label : labeling.model().labeling().getMapping().getLabels()) {
-			appendRow(label.toString());
-			for (Object tag : labeling.model().tagging().getTags(label)) {
-				if(labelEditorTags.contains(tag)) continue;
-				int col = getColumnIndex(tag.toString());
-				if(col < 0) {
-					appendColumn(tag.toString());
-					col = getColumnCount()-1;
-				}
-				Object value = labeling.model().tagging().getValue(tag, label);
-				if(value != null) set(col, i, value.toString());
-			}
-			mappingLeft.put(i, label);
-			mappingRight.put(label, i);
-			i++;
+	public IntSelectionModel getSelectionModel() {
+		return selectionModel;
+	}
+
+	public void dispose() {
+		labeling.model().tagging().listeners().remove(this);
+		labeling.model().labelingListeners().remove(this);
+	}
+
+	private void loadRows() {
+		selectionModel.setRows(new ArrayList<>(labeling.model().labeling().getMapping().getLabels()));
+		resetOrder();
+		if(sortColumn >= 0) applySort();
+	}
+
+	private void resetOrder() {
+		viewToModel = identity(selectionModel.getRowCount());
+		modelToView = identity(selectionModel.getRowCount());
+	}
+
+	private void loadColumns() {
+		tags.clear();
+		tagToColumn.clear();
+		List<Object> allTags = labeling.model().tagging().getAllTags().stream()
+				.filter(tag -> !(tag instanceof LabelEditorTag))
+				.sorted(Comparator.comparing(Object::toString))
+				.collect(Collectors.toList());
+		allTags.forEach(this::addColumn);
+	}
+
+	private void addColumn(Object tag) {
+		tagToColumn.put(tag, tags.size() + 1);
+		tags.add(tag);
+	}
+
+	@Override
+	public int getRowCount() {
+		return selectionModel.getRowCount();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return tags.size() + 1;
+	}
+
+	@Override
+	public String getColumnName(int column) {
+		if(column == 0) return "";
+		return tags.get(column - 1).toString();
+	}
+
+	@Override
+	public Object getValueAt(int row, int column) {
+		L label = selectionModel.getObject(viewToModel[row]);
+		if(column == 0) return label;
+		return labeling.model().tagging().getValue(tags.get(column - 1), label);
+	}
+
+	@Override
+	public boolean isCellEditable(int row, int column) {
+		return false;
+	}
+
+	@Override
+	public int convertRowIndexToModel(int viewRow) {
+		return viewToModel[viewRow];
+	}
+
+	@Override
+	public int convertRowIndexToView(int modelRow) {
+		return modelToView[modelRow];
+	}
+
+	@Override
+	public void sort(int column, boolean ascending) {
+		sortColumn = column;
+		sortAscending = ascending;
+		applySort();
+		fireTableDataChanged();
+	}
+
+	private void applySort() {
+		int[] order = identity(getRowCount());
+		if(sortColumn == 0) {
+			sortByLabel(order, sortAscending);
+		} else {
+			IndexSort.sort(order, getKeys(tags.get(sortColumn - 1)), sortAscending);
+		}
+		viewToModel = order;
+		for (int i = 0; i < order.length; i++) {
+			modelToView[order[i]] = i;
+		}
+	}
+
+	private void sortByLabel(int[] order, boolean ascending) {
+		int numRows = getRowCount();
+		if(numRows > 0 && selectionModel.getObject(0) instanceof RealType) {
+			double[] keys = new double[numRows];
+			for (int i = 0; i < keys.length; i++) keys[i] = ((RealType<?>) selectionModel.getObject(i)).getRealDouble();
+			IndexSort.sort(order, keys, ascending);
+		} else {
+			String[] keys = new String[numRows];
+			for (int i = 0; i < keys.length; i++) keys[i] = String.valueOf(selectionModel.getObject(i));
+			IndexSort.sort(order, ascending ?
+					(i1, i2) -> keys[i1].compareTo(keys[i2]) :
+					(i1, i2) -> keys[i2].compareTo(keys[i1]));
 		}
-		setSelectionModel(new SelectionModelAdapter<>(labeling.getSelectionModel(), mappingRight, mappingLeft));
+	}
+
+	/**
+	 * @return the numeric value of each row, 1 for rows with a non-numeric tag and NaN for rows without the tag
+	 */
+	private double[] getKeys(Object tag) {
+		LabelEditorTagging<L> tagging = labeling.model().tagging();
+		double[] keys = new double[getRowCount()];
+		for (int i = 0; i < keys.length; i++) {
+			Object value = tagging.getValue(tag, selectionModel.getObject(i));
+			if(value instanceof RealType) keys[i] = ((RealType<?>) value).getRealDouble();
+			else keys[i] = value == null ? Double.NaN : 1;
+		}
+		return keys;
+	}
+
+	private static int[] identity(int size) {
+		int[] res = new int[size];
+		for (int i = 0; i < size; i++) res[i] = i;
+		return res;
 	}
 
 	@Override
 	public void tagChanged(List<TagChangedEvent> e) {
-		e.forEach(event -> {
-			if(event.model != labeling.model()) return;
-			//TODO update table entry
+		List<TagChangedEvent> events = e.stream()
+				.filter(event -> event.model == labeling.model() && !(event.tag instanceof LabelEditorTag))
+				.collect(Collectors.toList());
+		if(events.isEmpty()) return;
+		SwingUtilities.invokeLater(() -> updateCells(events));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void updateCells(List<TagChangedEvent> events) {
+		boolean newColumns = false;
+		for (TagChangedEvent event : events) {
+			if(!tagToColumn.containsKey(event.tag)) {
+				addColumn(event.tag);
+				newColumns = true;
+			}
+		}
+		if(newColumns) {
+			fireTableStructureChanged();
+			return;
+		}
+		if(events.size() > MAX_CELL_UPDATES) {
+			fireTableRowsUpdated(0, getRowCount() - 1);
+			return;
+		}
+		for (TagChangedEvent event : events) {
+			int row = selectionModel.getRow((L) event.label);
+			if(row < 0) continue;
+			fireTableCellUpdated(modelToView[row], tagToColumn.get(event.tag));
+		}
+	}
+
+	@Override
+	public void labelingChanged(LabelingChangedEvent e) {
+		if(!e.affectsLabels()) return;
+		SwingUtilities.invokeLater(() -> {
+			loadRows();
+			fireTableDataChanged();
 		});
 	}
 }
@@ -4,6 +4,7 @@
 
 import net.imglib2.algorithm.labeling.ConnectedComponents.StructuringElement
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel
+import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent
 
 input = io.open("https://samples.fiji.sc/blobs.png")
 
@@ -13,10 +14,5 @@ labeling = ops.labeling().cca(binary, StructuringElement.EIGHT_CONNECTED)
 
 model = new DefaultLabelEditorModel(labeling)
 
-random = new Random();
-for (def label : labeling.getMapping().getLabels()) {
-    // assign each label also as a tag to itself (so you can set colors for each label separately)
-    model.tagging().addTagToLabel(label, label)
-    // add random color to each tag
-    model.colors().getBorderColor(label).set(random.nextInt(255), random.nextInt(255), random.nextInt(255), 255)
-}
+// assign a random border color to each label
+model.labelColors().setRandom(labeling.getMapping().getLabels(), LabelEditorTargetComponent.BORDER, new Random(), 255)
@@ -0,0 +1,119 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.table.interactive;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultSelectionModelTest {
+
+	@Test
+	public void testRemoveNotifiesOnce() throws InterruptedException {
+		DefaultSelectionModel<Integer> model = new DefaultSelectionModel<>();
+		model.setSelected(1, true);
+		SelectionEventDispatcher.flush();
+		List<String> events = record(model);
+		model.setSelected(1, false);
+		SelectionEventDispatcher.flush();
+		assertEquals(Arrays.asList("selection"), events);
+	}
+
+	@Test
+	public void testCoalescedInOrder() throws InterruptedException {
+		DefaultSelectionModel<Integer> model = new DefaultSelectionModel<>();
+		List<String> events = record(model);
+		model.pauseListeners();
+		for (int i = 0; i < 100; i++) {
+			model.toggle(i);
+			model.focus(i);
+		}
+		model.resumeListeners();
+		SelectionEventDispatcher.flush();
+		assertEquals(Arrays.asList("selection", "focus"), events);
+		assertEquals(100, model.getSelected().size());
+
+		events.clear();
+		for (int i = 0; i < 100; i++) {
+			model.toggle(i);
+		}
+		SelectionEventDispatcher.flush();
+		assertTrue(events.size() >= 1 && events.size() <= 100);
+		assertTrue(model.isEmpty());
+	}
+
+	@Test
+	public void testFailingListener() throws InterruptedException {
+		DefaultSelectionModel<Integer> model = new DefaultSelectionModel<>();
+		model.listeners().add(new SelectionListener() {
+			@Override
+			public void selectionChanged() {
+				throw new IllegalStateException("failing listener");
+			}
+
+			@Override
+			public void focusChanged() {
+			}
+		});
+		List<String> events = record(model);
+		List<Throwable> reported = new ArrayList<>();
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reported.add(e));
+		try {
+			model.setSelected(1, true);
+			SelectionEventDispatcher.flush();
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(handler);
+		}
+		assertEquals(Arrays.asList("selection"), events);
+		assertEquals(1, reported.size());
+		assertEquals("failing listener", reported.get(0).getMessage());
+	}
+
+	private List<String> record(SelectionModel<Integer> model) {
+		List<String> events = new ArrayList<>();
+		model.listeners().add(new SelectionListener() {
+			@Override
+			public void selectionChanged() {
+				events.add("selection");
+			}
+
+			@Override
+			public void focusChanged() {
+				events.add("focus");
+			}
+		});
+		return events;
+	}
+}
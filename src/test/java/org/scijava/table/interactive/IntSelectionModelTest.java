@@ -0,0 +1,78 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.scijava.table.interactive;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntSelectionModelTest {
+
+	@Test
+	public void testDefaultIntSelectionModel() {
+		DefaultIntSelectionModel model = new DefaultIntSelectionModel();
+		BitSet rows = new BitSet();
+		rows.set(3);
+		rows.set(1000);
+		assertTrue(model.setSelected(rows, true));
+		assertFalse(model.setSelected(rows, true));
+		assertTrue(model.isSelected(1000));
+		assertEquals(new HashSet<>(Arrays.asList(3, 1000)), model.getSelected());
+		model.toggle(3);
+		assertFalse(model.isSelected(3));
+		model.focus(1000);
+		assertEquals(1000, model.getFocusedRow());
+	}
+
+	@Test
+	public void testAdapter() {
+		DefaultSelectionModel<String> labels = new DefaultSelectionModel<>();
+		IntSelectionModelAdapter<String> rows = new IntSelectionModelAdapter<>(labels, Arrays.asList("a", "b", "c"));
+		BitSet selection = new BitSet();
+		selection.set(0);
+		selection.set(2);
+		rows.setSelected(selection, true);
+		assertEquals(new HashSet<>(Arrays.asList("a", "c")), labels.getSelected());
+		assertEquals(selection, rows.getSelectedRows());
+		assertEquals(1, rows.getRow("b"));
+		assertEquals(-1, rows.getRow("d"));
+
+		rows.setRows(Arrays.asList("c", "b", "a"));
+		labels.setSelected("a", false);
+		assertEquals("c", rows.getObject(0));
+		assertTrue(rows.isSelected(0));
+		assertFalse(rows.isSelected(2));
+	}
+}
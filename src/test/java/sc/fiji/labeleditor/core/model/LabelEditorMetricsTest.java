@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LabelEditorMetricsTest {
+
+	@Test
+	public void testDisabled() {
+		LabelEditorMetrics metrics = new LabelEditorMetrics();
+		long start = metrics.start();
+		assertEquals(LabelEditorMetrics.DISABLED, start);
+		metrics.stop(LabelEditorMetrics.UPDATE_LUT, start, 10);
+		metrics.hit(LabelEditorMetrics.TIME_SLICE_SCOPE_CACHE);
+		assertTrue(metrics.getMetrics().isEmpty());
+	}
+
+	@Test
+	public void testNone() {
+		LabelEditorMetrics.NONE.setEnabled(true);
+		assertFalse(LabelEditorMetrics.NONE.isEnabled());
+		assertEquals(LabelEditorMetrics.DISABLED, LabelEditorMetrics.NONE.start());
+	}
+
+	@Test
+	public void testStartAtZero() {
+		LabelEditorMetrics metrics = new LabelEditorMetrics();
+		metrics.setEnabled(true);
+		// System.nanoTime() may return any value, including 0
+		metrics.stop(LabelEditorMetrics.UPDATE_LUT, 0, 10);
+		assertEquals(1, metrics.get(LabelEditorMetrics.UPDATE_LUT).getCount());
+	}
+
+	@Test
+	public void testRecord() {
+		LabelEditorMetrics metrics = new LabelEditorMetrics();
+		List<String> traced = new ArrayList<>();
+		metrics.setTracer((name, start, duration, amount) -> traced.add(name));
+		metrics.setEnabled(true);
+		metrics.stop(LabelEditorMetrics.UPDATE_LUT, metrics.start(), 10);
+		metrics.stop(LabelEditorMetrics.UPDATE_LUT, metrics.start(), 30);
+		metrics.hit(LabelEditorMetrics.TIME_SLICE_SCOPE_CACHE);
+		metrics.hit(LabelEditorMetrics.TIME_SLICE_SCOPE_CACHE);
+		metrics.hit(LabelEditorMetrics.TIME_SLICE_SCOPE_CACHE);
+		metrics.miss(LabelEditorMetrics.TIME_SLICE_SCOPE_CACHE);
+
+		LabelEditorMetrics.Metric lut = metrics.get(LabelEditorMetrics.UPDATE_LUT);
+		assertEquals(2, lut.getCount());
+		assertEquals(40, lut.getTotalAmount());
+		assertEquals(20, lut.getMeanAmount(), 0);
+		assertTrue(lut.getMaxMillis() >= 0);
+		assertEquals(0.75, metrics.get(LabelEditorMetrics.TIME_SLICE_SCOPE_CACHE).getHitRate(), 0);
+		assertEquals(2, traced.size());
+		assertTrue(metrics.report().contains(LabelEditorMetrics.UPDATE_LUT));
+	}
+}
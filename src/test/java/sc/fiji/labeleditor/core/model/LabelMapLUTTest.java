@@ -0,0 +1,92 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class LabelMapLUTTest {
+
+	@Test
+	public void testConvert() {
+		ImgLabeling<Integer, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(5, 5));
+		RandomAccess<LabelingType<Integer>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{1, 1});
+		ra.get().add(7);
+		ra.get().add(3);
+		ra.setPosition(new long[]{2, 1});
+		ra.get().add(7);
+		LabelEditorModel<Integer> model = new DefaultLabelEditorModel<>(labeling);
+		assertSame(model.labelMapLUT(), model.labelMapLUT());
+		RandomAccess<IntType> labelMap = model.labelMapLUT().convert().randomAccess();
+		labelMap.setPosition(new long[]{0, 0});
+		assertEquals(0, labelMap.get().get());
+		labelMap.setPosition(new long[]{1, 1});
+		assertEquals(3, labelMap.get().get());
+		labelMap.setPosition(new long[]{2, 1});
+		assertEquals(7, labelMap.get().get());
+		ra.setPosition(new long[]{3, 3});
+		ra.get().add(9);
+		labelMap.setPosition(new long[]{3, 3});
+		assertEquals(9, labelMap.get().get());
+	}
+
+	@Test
+	public void testInvalidation() {
+		ImgLabeling<Integer, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(5, 5));
+		RandomAccess<LabelingType<Integer>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{1, 1});
+		ra.get().add(7);
+		ra.get().add(3);
+		LabelEditorModel<Integer> model = new DefaultLabelEditorModel<>(labeling);
+		LabelMapLUT<Integer> lut = model.labelMapLUT();
+		int index = ra.get().getIndex().getInteger();
+		int[] table = lut.get();
+		assertEquals(3, table[index]);
+		assertSame(table, lut.get());
+
+		// tagged labels come first in the label comparator
+		model.tagging().addTagToLabel("tag", 7);
+		assertEquals(7, lut.get()[index]);
+
+		// same number of sets, but the labeling changed
+		table = lut.get();
+		model.notifyLabelingListeners();
+		assertEquals(7, lut.get()[index]);
+		assertNotSame(table, lut.get());
+	}
+}
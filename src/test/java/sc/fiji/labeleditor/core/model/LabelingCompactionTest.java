@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LabelingCompactionTest {
+
+	@Test
+	public void testCompact() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(10, 10));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{1, 1});
+		ra.get().add("a");
+		ra.get().add("b");
+		ra.get().remove("a");
+		ra.setPosition(new long[]{2, 2});
+		ra.get().add("c");
+		ra.get().add("d");
+		ra.setPosition(new long[]{3, 3});
+		ra.get().add("e");
+		ra.get().clear();
+		int numSets = labeling.getMapping().numSets();
+
+		int[] remap = LabelingCompaction.compact(labeling);
+
+		assertEquals(numSets, remap.length);
+		assertEquals(0, remap[0]);
+		assertEquals(3, labeling.getMapping().numSets());
+		assertEquals(new HashSet<>(Arrays.asList("b", "c", "d")), labeling.getMapping().getLabels());
+		ra.setPosition(new long[]{1, 1});
+		assertEquals(Collections.singleton("b"), ra.get());
+		ra.setPosition(new long[]{2, 2});
+		assertEquals(new HashSet<>(Arrays.asList("c", "d")), ra.get());
+		ra.setPosition(new long[]{3, 3});
+		assertTrue(ra.get().isEmpty());
+
+		// existing sets are reused after compaction
+		ra.get().add("b");
+		int index = ra.get().getIndex().getInteger();
+		ra.setPosition(new long[]{1, 1});
+		assertEquals(ra.get().getIndex().getInteger(), index);
+		assertEquals(3, labeling.getMapping().numSets());
+		assertNull(LabelingCompaction.compact(labeling));
+	}
+
+	@Test
+	public void testInvalidIndex() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(10, 10));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{1, 1});
+		ra.get().add("a");
+		ra.get().add("b");
+		int numSets = labeling.getMapping().numSets();
+		RandomAccess<IntType> indexAccess = labeling.getIndexImg().randomAccess();
+		indexAccess.setPosition(new long[]{5, 5});
+		indexAccess.get().set(numSets + 10);
+
+		try {
+			LabelingCompaction.compact(labeling);
+			fail();
+		} catch (IllegalStateException ignored) {
+		}
+
+		// nothing was rewritten
+		assertEquals(numSets, labeling.getMapping().numSets());
+		assertEquals(numSets + 10, indexAccess.get().get());
+		indexAccess.get().set(-1);
+		try {
+			LabelingCompaction.compact(labeling);
+			fail();
+		} catch (IllegalStateException ignored) {
+		}
+		assertEquals(-1, indexAccess.get().get());
+		ra.setPosition(new long[]{1, 1});
+		assertEquals(new HashSet<>(Arrays.asList("a", "b")), ra.get());
+	}
+}
@@ -0,0 +1,73 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.roi.labeling.LabelingType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedLabelingTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSaveAndReopen() throws Exception {
+		File directory = new File(folder.getRoot(), "labeling");
+		try (MappedLabeling<String> mapped = MappedLabeling.create(directory, 4, 10, 7)) {
+			RandomAccess<LabelingType<String>> ra = mapped.labeling().randomAccess();
+			ra.setPosition(new long[]{1, 1});
+			ra.get().add("a");
+			ra.setPosition(new long[]{9, 6});
+			ra.get().add("a");
+			ra.get().add("b");
+		}
+
+		try (MappedLabeling<String> mapped = MappedLabeling.open(directory, label -> label)) {
+			RandomAccess<LabelingType<String>> ra = mapped.labeling().randomAccess();
+			ra.setPosition(new long[]{1, 1});
+			assertEquals(Collections.singleton("a"), ra.get());
+			ra.setPosition(new long[]{9, 6});
+			assertEquals(new HashSet<>(Arrays.asList("a", "b")), ra.get());
+			ra.setPosition(new long[]{5, 5});
+			assertTrue(ra.get().isEmpty());
+			assertEquals(new HashSet<>(Arrays.asList("a", "b")), mapped.labeling().getMapping().getLabels());
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model;
+
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RegionAdjacencyGraphTest {
+
+	@Test
+	public void testBuildAndUpdate() {
+		// a a b b . c
+		// a a b b . c
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(6, 2));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		for (int y = 0; y < 2; y++) {
+			set(ra, 0, y, "a");
+			set(ra, 1, y, "a");
+			set(ra, 2, y, "b");
+			set(ra, 3, y, "b");
+			set(ra, 5, y, "c");
+		}
+		RegionAdjacencyGraph<String> graph = new RegionAdjacencyGraph<>(labeling, -1);
+
+		assertEquals(1, graph.getNumEdges());
+		assertEquals(Collections.singleton("b"), graph.getNeighbors("a"));
+		assertEquals(2, graph.getBoundarySize("a", "b"));
+		assertEquals(2, graph.getBoundarySize("b", "a"));
+		assertTrue(graph.getNeighbors("c").isEmpty());
+		assertEquals(new HashSet<>(Arrays.asList("a", "b")), graph.grow(Collections.singleton("a")));
+
+		set(ra, 4, 0, "b");
+		set(ra, 0, 1, "d");
+		LabelingChangedEvent.Builder<String> changes = new LabelingChangedEvent.Builder<>();
+		changes.include(new Point(4, 0));
+		changes.include(new Point(0, 1));
+		graph.update(changes.build());
+
+		assertEquals(3, graph.getNumEdges());
+		assertEquals(new HashSet<>(Arrays.asList("a", "c")), graph.getNeighbors("b"));
+		assertEquals(1, graph.getBoundarySize("b", "c"));
+		assertEquals(Collections.singleton("a"), graph.getNeighbors("d"));
+		assertEquals(2, graph.getBoundarySize("a", "d"));
+		assertEquals(2, graph.getBoundarySize("a", "b"));
+	}
+
+	private static void set(RandomAccess<LabelingType<String>> ra, long x, long y, String label) {
+		ra.setPosition(new long[]{x, y});
+		ra.get().clear();
+		ra.get().add(label);
+	}
+}
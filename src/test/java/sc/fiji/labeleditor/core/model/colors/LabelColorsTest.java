@@ -0,0 +1,80 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.colors;
+
+import org.junit.Test;
+import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LabelColorsTest {
+
+	@Test
+	public void testSetAndGet() {
+		DefaultLabelEditorTagColors tagColors = new DefaultLabelEditorTagColors();
+		List<ColorChangedEvent> events = new ArrayList<>();
+		tagColors.listeners().add(events::add);
+		LabelEditorLabelColors<Integer> colors = new DefaultLabelEditorLabelColors<>(tagColors);
+		assertTrue(colors.isEmpty());
+
+		List<Integer> labels = new ArrayList<>();
+		for (int i = 0; i < 100; i++) labels.add(i);
+		colors.setAll(labels, LabelEditorTargetComponent.FACE, label -> label + 1);
+		colors.set(200, LabelEditorTargetComponent.BORDER, 5);
+
+		assertEquals(2, events.size());
+		assertEquals(51, colors.get(50, LabelEditorTargetComponent.FACE));
+		assertEquals(0, colors.get(50, LabelEditorTargetComponent.BORDER));
+		assertEquals(5, colors.get(200, LabelEditorTargetComponent.BORDER));
+		assertEquals(0, colors.get(300, LabelEditorTargetComponent.FACE));
+
+		colors.remove(50);
+		assertEquals(0, colors.get(50, LabelEditorTargetComponent.FACE));
+
+		colors.setRandom(labels, LabelEditorTargetComponent.FACE, new Random(0), 100);
+		assertEquals(100, colors.get(7, LabelEditorTargetComponent.FACE) >>> 24);
+
+		colors.clear();
+		assertTrue(colors.isEmpty());
+		assertEquals(0, colors.get(7, LabelEditorTargetComponent.FACE));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testEmpty() {
+		LabelEditorLabelColors<Integer> colors = LabelEditorLabelColors.empty();
+		assertTrue(colors.isEmpty());
+		assertEquals(0, colors.get(1, LabelEditorTargetComponent.FACE));
+		colors.set(1, LabelEditorTargetComponent.FACE, 5);
+	}
+}
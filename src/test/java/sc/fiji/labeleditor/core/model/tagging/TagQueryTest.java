@@ -0,0 +1,101 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.core.model.tagging;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class TagQueryTest {
+
+	@Test
+	public void testQuery() {
+		DefaultLabelEditorTagging<String> tagging = new DefaultLabelEditorTagging<>(null);
+		tagging.addValueToLabel("area", new IntType(100), "a");
+		tagging.addValueToLabel("area", new IntType(600), "b");
+		tagging.addValueToLabel("area", new IntType(700), "c");
+		tagging.addValueToLabel("area", new IntType(800), "d");
+		tagging.addTagToLabel("border", "c");
+		tagging.addTagToLabel("classA", "b");
+		tagging.addTagToLabel("classA", "c");
+		tagging.addTagToLabel("class B", "d");
+
+		assertEquals(setOf("b", "d"), TagQuery.compile("area > 500 AND NOT border AND (classA OR \"class B\")").evaluate(tagging));
+		assertEquals(setOf("b", "c", "d"), TagQuery.compile("area>=600").evaluate(tagging));
+		assertEquals(setOf("a", "c", "d"), TagQuery.compile("!classA || border && area == 700").evaluate(tagging));
+		assertEquals(setOf("b", "c", "d"), TagQuery.compile("area != 100").evaluate(tagging));
+		assertEquals(setOf(), TagQuery.compile("unknown OR size > 1").evaluate(tagging));
+
+		tagging.removeTagFromLabel("border", "c");
+		assertEquals(setOf("b", "c"), TagQuery.compile("area > 500 and not border and classA").evaluate(tagging));
+	}
+
+	@Test
+	public void testEvaluateModel() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(4, 4));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{0, 0});
+		ra.get().add("a");
+		ra.setPosition(new long[]{1, 1});
+		ra.get().add("b");
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		model.tagging().addTagToLabel("border", "a");
+		assertEquals(setOf("b"), TagQuery.compile("NOT border").evaluate(model));
+		assertEquals(setOf("a"), TagQuery.compile("border").evaluate(model));
+	}
+
+	@Test
+	public void testFilterUntaggedLabels() {
+		DefaultLabelEditorTagging<String> tagging = new DefaultLabelEditorTagging<>(null);
+		tagging.addTagToLabel("border", "a");
+		Set<String> scope = setOf("a", "b");
+		assertEquals(setOf("b"), TagQuery.compile("NOT border").filter(tagging, scope));
+		assertEquals(setOf("a"), TagQuery.compile("border").filter(tagging, scope));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidQuery() {
+		TagQuery.compile("area > AND border");
+	}
+
+	private Set<String> setOf(String... labels) {
+		return new HashSet<>(Arrays.asList(labels));
+	}
+}
@@ -34,6 +34,7 @@ import bdv.util.BdvHandlePanel;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.view.Views;
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.plugin.compare.LabelComparison;
 import sc.fiji.labeleditor.plugin.interfaces.bdv.BdvInterface;
 import net.imagej.ImageJ;
 import net.imglib2.algorithm.labeling.ConnectedComponents;
@@ -68,6 +69,11 @@ public class E07_MultipleLabelings {
 		model1.colors().getDefaultFaceColor().set(255,255,0,55);
 		model2.colors().getDefaultFaceColor().set(255,0,255,55);
 
+		// match the labels of both models and mark labels merged by the gauss segmentation
+		LabelComparison.Result<Integer, Integer> result = new LabelComparison<>(model1, model2).computeAndTag();
+		System.out.println(result);
+		model2.colors().getFaceColor(LabelComparison.MERGED).set(255,0,0,100);
+
 		JFrame frame = new JFrame("Label editor");
 		frame.setMinimumSize(new Dimension(500,500));
 		BdvHandlePanel panel = new BdvHandlePanel(frame, Bdv.options().is2D());
@@ -34,6 +34,7 @@ import net.imagej.ImageJ;
 import net.imglib2.img.Img;
 import net.imglib2.roi.labeling.ImgLabeling;
 import net.imglib2.type.numeric.integer.IntType;
+import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
 
 import java.io.IOException;
 import java.util.Random;
@@ -51,14 +52,8 @@ public class E06_RandomColors {
 
 		LabelEditorModel<Integer> model = new DefaultLabelEditorModel<>(labeling, input);
 
-		Random random = new Random();
-		for (Integer label : labeling.getMapping().getLabels()) {
-			System.out.println(label);
-			// assign each label also as a tag to itself (so you can set colors for each label separately)
-			model.tagging().addTagToLabel(label, label);
-			// add random color to each tag
-			model.colors().getBorderColor(label).set(random.nextInt(255), random.nextInt(255), random.nextInt(255), 200);
-		}
+		// assign a random border color to each label
+		model.labelColors().setRandom(labeling.getMapping().getLabels(), LabelEditorTargetComponent.BORDER, new Random(), 200);
 
 		model.colors().getFocusFaceColor().set(255,255,0,255);
 		model.colors().getSelectedFaceColor().set(0,255,255,255);
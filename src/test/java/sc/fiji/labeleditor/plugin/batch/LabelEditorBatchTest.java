@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.batch;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LabelEditorBatchTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testProcess() throws IOException, InterruptedException {
+		// label 1 touches the border and has 2 pixels, label 2 is inside and has 4 pixels
+		Img<IntType> labelMap = ArrayImgs.ints(new int[]{
+				1, 1, 0, 0, 0,
+				0, 0, 0, 0, 0,
+				0, 0, 2, 2, 0,
+				0, 0, 2, 2, 0,
+				0, 0, 0, 0, 0}, 5, 5);
+		File input1 = folder.newFile("a.tif");
+		File input2 = folder.newFile("b.tif");
+		File output = new File(folder.getRoot(), "output");
+		LabelEditorBatch batch = new LabelEditorBatch(file -> labelMap)
+				.addRule(TagRule.parse("large #ff0000: area > 3"))
+				.setNumThreads(2)
+				.setRender(true);
+		List<LabelEditorBatch.Result> results = batch.process(Arrays.asList(input1, input2), output);
+
+		assertEquals(2, results.size());
+		for (LabelEditorBatch.Result result : results) {
+			assertNull(result.getError());
+			assertEquals(2, result.getNumLabels());
+			assertEquals(1, (int) result.getTagCounts().get("large"));
+		}
+		List<String> table = Files.readAllLines(new File(output, "a.csv").toPath());
+		assertEquals(3, table.size());
+		assertTrue(table.get(1).startsWith("1,2.0,,"));
+		assertTrue(table.get(1).endsWith("border"));
+		assertTrue(table.get(2).startsWith("2,4.0,,"));
+		assertTrue(table.get(2).endsWith("large"));
+		assertTrue(new File(output, "b.png").exists());
+	}
+
+}
@@ -0,0 +1,173 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.behaviours.export;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExportLabelsTest {
+
+	@Test
+	public void testCreateView() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(20, 20));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{2, 3});
+		ra.get().add("a");
+		ra.get().add("b");
+		ra.setPosition(new long[]{5, 8});
+		ra.get().add("a");
+		ra.setPosition(new long[]{15, 15});
+		ra.get().add("c");
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		model.tagging().addTagToLabel("tag", "a");
+		model.tagging().addTagToLabel(LabelEditorTag.SELECTED, "a");
+
+		LabelEditorModel<String> view = ExportLabels.createView(model, new HashSet<>(Arrays.asList("a", "d")));
+
+		assertArrayEquals(new long[]{4, 6}, new long[]{view.labeling().dimension(0), view.labeling().dimension(1)});
+		RandomAccess<LabelingType<String>> viewRA = view.labeling().randomAccess();
+		viewRA.setPosition(new long[]{0, 0});
+		assertEquals(Collections.singleton("a"), viewRA.get());
+		viewRA.setPosition(new long[]{3, 5});
+		assertEquals(Collections.singleton("a"), viewRA.get());
+		viewRA.setPosition(new long[]{1, 1});
+		assertTrue(viewRA.get().isEmpty());
+		assertTrue(view.tagging().getTags("a").contains("tag"));
+		assertFalse(view.tagging().getTags("a").contains(LabelEditorTag.SELECTED));
+
+		assertNull(ExportLabels.createView(model, Collections.singleton("d")));
+	}
+
+	@Test
+	public void testCreateCopy() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(20, 20));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{2, 3});
+		ra.get().add("a");
+		ra.setPosition(new long[]{5, 8});
+		ra.get().add("a");
+		LabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+
+		LabelEditorModel<String> copy = ExportLabels.createCopy(model, Collections.singleton("a"));
+
+		RandomAccess<LabelingType<String>> copyRA = copy.labeling().randomAccess();
+		copyRA.setPosition(new long[]{1, 1});
+		copyRA.get().add("b");
+		assertEquals(Collections.singleton("b"), copyRA.get());
+		copyRA.setPosition(new long[]{0, 0});
+		copyRA.get().clear();
+		assertTrue(copyRA.get().isEmpty());
+		// the source is not affected
+		ra.setPosition(new long[]{2, 3});
+		assertEquals(Collections.singleton("a"), ra.get());
+		ra.setPosition(new long[]{3, 4});
+		assertTrue(ra.get().isEmpty());
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testChunkedExport() throws IOException {
+		File container = folder.newFolder();
+		List<Long> progress = new ArrayList<>();
+		new ChunkedExport(container)
+				.setBlockSize(4)
+				.setCompressed(false)
+				.setProgressListener((written, total) -> {
+					synchronized (progress) {
+						progress.add(written);
+					}
+				})
+				.write("img", ArrayImgs.ints(10, 4));
+		assertTrue(new File(container, "attributes.json").exists());
+		assertTrue(new File(container, "img/attributes.json").exists());
+		assertEquals(2 + 2 + 2 * 4 + 4 * 4 * 4, new File(container, "img/0/0").length());
+		assertEquals(2 + 2 + 2 * 4 + 2 * 4 * 4, new File(container, "img/2/0").length());
+		assertEquals(4, progress.size());
+	}
+
+	@Test
+	public void testChunkedExportManyBlocks() throws IOException {
+		File container = folder.newFolder();
+		List<Long> progress = new ArrayList<>();
+		new ChunkedExport(container)
+				.setBlockSize(2)
+				.setNumThreads(2)
+				.setProgressListener((written, total) -> {
+					synchronized (progress) {
+						progress.add(written);
+					}
+				})
+				.write("img", ArrayImgs.ints(20, 20));
+		assertEquals(101, progress.size());
+		assertTrue(progress.contains(100L));
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				assertTrue(new File(container, "img/" + x + "/" + y).exists());
+			}
+		}
+	}
+
+	@Test
+	public void testBlockGrid() {
+		long[] gridSize = ChunkedExport.gridSize(ArrayImgs.ints(10, 4), new int[]{4, 4});
+		assertArrayEquals(new long[]{3, 1}, gridSize);
+		assertEquals(2, ChunkedExport.blockInterval(ArrayImgs.ints(10, 4), new int[]{4, 4}, new long[]{2, 0}).dimension(0));
+	}
+
+	@Test
+	public void testBlockSize() {
+		assertArrayEquals(new int[]{64, 64}, ChunkedExport.blockSize(2, 64));
+		assertArrayEquals(new int[]{64, 64, 64, 1, 1}, ChunkedExport.blockSize(5, 64));
+	}
+}
@@ -0,0 +1,114 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.behaviours.modification;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+import org.junit.Test;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeleteLabelsTest {
+
+	@Test
+	public void testDelete() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(10, 10, 10));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		for (int z = 0; z < 10; z++) {
+			ra.setPosition(new long[]{1, 1, z});
+			ra.get().add("a");
+			ra.setPosition(new long[]{2, 1, z});
+			ra.get().add("a");
+			ra.get().add("b");
+			ra.setPosition(new long[]{3, 1, z});
+			ra.get().add("c");
+		}
+
+		long pixels = DeleteLabels.delete(new HashSet<>(Arrays.asList("a", "d")), labeling);
+
+		assertEquals(20, pixels);
+		ra.setPosition(new long[]{1, 1, 5});
+		assertTrue(ra.get().isEmpty());
+		ra.setPosition(new long[]{2, 1, 5});
+		assertEquals(new HashSet<>(Arrays.asList("b")), ra.get());
+		ra.setPosition(new long[]{3, 1, 5});
+		assertEquals(new HashSet<>(Arrays.asList("c")), ra.get());
+		ra.setPosition(new long[]{0, 0, 0});
+		assertTrue(ra.get().isEmpty());
+	}
+
+	@Test
+	public void testDeleteCollectsChanges() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(10, 10, 10));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{2, 3, 4});
+		ra.get().add("a");
+		ra.setPosition(new long[]{5, 1, 6});
+		ra.get().add("a");
+		ra.get().add("b");
+		ra.setPosition(new long[]{9, 9, 9});
+		ra.get().add("c");
+
+		LabelingChangedEvent.Builder<String> changes = new LabelingChangedEvent.Builder<>();
+		DeleteLabels.delete(Collections.singleton("a"), labeling, changes);
+		LabelingChangedEvent<String> event = changes.build();
+
+		assertArrayEquals(new long[]{2, 1, 4}, Intervals.minAsLongArray(event.getInterval()));
+		assertArrayEquals(new long[]{5, 3, 6}, Intervals.maxAsLongArray(event.getInterval()));
+		assertEquals(Collections.singleton("a"), event.getRemovedLabels());
+		assertTrue(event.getAddedLabels().isEmpty());
+		ra.setPosition(new long[]{5, 1, 6});
+		assertTrue(event.getSetIndices().get(ra.get().getIndex().getInteger()));
+		assertFalse(event.intersects(Intervals.createMinMax(7, 7, 7, 9, 9, 9)));
+		assertTrue(event.intersects(Intervals.createMinMax(0, 0, 0, 2, 1, 4)));
+		assertFalse(event.isEmpty());
+	}
+
+	@Test
+	public void testDeleteMissingLabel() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(5, 5));
+		assertEquals(0, DeleteLabels.delete(new HashSet<>(Arrays.asList("a")), labeling));
+		LabelingChangedEvent.Builder<String> changes = new LabelingChangedEvent.Builder<>();
+		DeleteLabels.delete(Collections.singleton("a"), labeling, changes);
+		assertTrue(changes.build().isEmpty());
+		assertFalse(new LabelingChangedEvent<String>().isEmpty());
+	}
+}
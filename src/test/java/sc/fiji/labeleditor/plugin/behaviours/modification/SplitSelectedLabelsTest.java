@@ -34,14 +34,24 @@ import net.imglib2.RandomAccess;
 import net.imglib2.algorithm.labeling.ConnectedComponents;
 import net.imglib2.algorithm.region.hypersphere.HyperSphere;
 import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.type.logic.BitType;
 import net.imglib2.type.numeric.integer.IntType;
 import net.imglib2.type.numeric.real.DoubleType;
 import org.junit.Test;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class SplitSelectedLabelsTest {
 
@@ -78,6 +88,60 @@ public class SplitSelectedLabelsTest {
 		ij.context().dispose();
 	}
 
+	@Test
+	public void defaultLabelFactory() {
+		SplitLabels.LabelFactory<Integer> integers = SplitLabels.defaultLabelFactory(new HashSet<>(Arrays.asList(3, 7)));
+		assertEquals(8, (int) integers.create(3, 0));
+		assertEquals(9, (int) integers.create(3, 1));
+		SplitLabels.LabelFactory<String> strings = SplitLabels.defaultLabelFactory(new HashSet<>(Arrays.asList("a", "a-2")));
+		assertEquals("a-1", strings.create("a", 0));
+		assertEquals("a-2'", strings.create("a", 1));
+		SplitLabels.LabelFactory<IntType> intTypes = SplitLabels.defaultLabelFactory(new HashSet<>(Arrays.asList(new IntType(3), new IntType(7))));
+		assertEquals(new IntType(8), intTypes.create(new IntType(3), 0));
+		assertEquals(new IntType(9), intTypes.create(new IntType(3), 1));
+	}
+
+	@Test
+	public void splitLabelMapModel() {
+		ImageJ ij = new ImageJ();
+		Img data = ij.op().create().img(new long[]{300, 300});
+		int radius = 15;
+		drawSphere(data, new long[]{170, 170}, radius);
+		drawSphere(data, new long[]{170, 215}, radius);
+		ij.op().filter().gauss(data, data, 10);
+		Img<BitType> threshold = (Img) ij.op().threshold().otsu(data);
+
+		DefaultLabelEditorModel<IntType> model = DefaultLabelEditorModel.initFromLabelMap(threshold, data);
+		assertEquals(1, model.labeling().getMapping().getLabels().size());
+		IntType label = model.labeling().getMapping().getLabels().iterator().next();
+
+		Map<IntType, Set<IntType>> parts = SplitLabels.split(Collections.singleton(label), model, 1, ij.op());
+
+		assertTrue(parts.containsKey(label));
+		assertTrue(parts.get(label).size() > 1);
+		assertFalse(model.labeling().getMapping().getLabels().contains(label));
+		for (IntType part : parts.get(label)) {
+			assertTrue(part.get() > label.get());
+		}
+
+		ij.context().dispose();
+	}
+
+	@Test
+	public void findLocalMinima() {
+		long[] dims = {5, 4};
+		float[] values = new float[20];
+		Arrays.fill(values, 1);
+		values[6] = 0;
+		values[8] = 0;
+		values[13] = 0;
+		long[] mask = {-1L};
+		ImgLabeling<Integer, IntType> seeds = new ImgLabeling<>(ArrayImgs.ints(dims));
+		assertEquals(1, SplitLabels.findLocalMinima(values, dims, mask, seeds));
+		mask[0] = 0;
+		assertEquals(0, SplitLabels.findLocalMinima(values, dims, mask, new ImgLabeling<>(ArrayImgs.ints(dims))));
+	}
+
 	private void drawSphere(Img<DoubleType> img, long[] position, int radius) {
 		RandomAccess<DoubleType> ra = img.randomAccess();
 		ra.setPosition(position);
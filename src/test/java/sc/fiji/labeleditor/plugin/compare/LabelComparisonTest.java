@@ -0,0 +1,94 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.compare;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelEditorModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LabelComparisonTest {
+
+	@Test
+	public void testCompare() {
+		// reference: a and b side by side, e in the upper right corner
+		ImgLabeling<String, IntType> reference = new ImgLabeling<>(ArrayImgs.ints(10, 10));
+		// candidate: 1 covering a and b, 2 inside of e, 3 without overlap
+		ImgLabeling<Integer, IntType> candidate = new ImgLabeling<>(ArrayImgs.ints(10, 10));
+		Cursor<LabelingType<String>> cursorA = reference.localizingCursor();
+		while(cursorA.hasNext()) {
+			LabelingType<String> val = cursorA.next();
+			int x = cursorA.getIntPosition(0);
+			int y = cursorA.getIntPosition(1);
+			if(x < 4) val.add("a");
+			else if(x < 8) val.add("b");
+			else if(y < 5) val.add("e");
+		}
+		Cursor<LabelingType<Integer>> cursorB = candidate.localizingCursor();
+		while(cursorB.hasNext()) {
+			LabelingType<Integer> val = cursorB.next();
+			int x = cursorB.getIntPosition(0);
+			int y = cursorB.getIntPosition(1);
+			if(x < 8) val.add(1);
+			else if(y < 4) val.add(2);
+			else if(y > 6) val.add(3);
+		}
+
+		LabelEditorModel<String> referenceModel = new DefaultLabelEditorModel<>(reference);
+		LabelEditorModel<Integer> candidateModel = new DefaultLabelEditorModel<>(candidate);
+		LabelComparison.Result<String, Integer> result = new LabelComparison<>(referenceModel, candidateModel)
+				.setThresholds(0.5, 0.75)
+				.computeAndTag();
+
+		assertEquals(3, result.getNumOverlappingPairs());
+		assertEquals(0, result.getNumSplits());
+		assertEquals(1, result.getNumMerges());
+
+		LabelComparison.Scores scores = result.getScores(0.5);
+		assertEquals(2, scores.getTruePositives());
+		assertEquals(1, scores.getFalsePositives());
+		assertEquals(1, scores.getFalseNegatives());
+		assertEquals(2. / 3., scores.getF1(), 0.0001);
+		scores = result.getScores(0.75);
+		assertEquals(1, scores.getTruePositives());
+		assertEquals(0.8, scores.getMeanMatchedIoU(), 0.0001);
+
+		assertEquals(Integer.valueOf(2), result.getMatches().get("e"));
+		assertTrue(candidateModel.tagging().getTags(1).contains(LabelComparison.MERGED));
+		assertTrue(candidateModel.tagging().getTags(3).contains(LabelComparison.UNMATCHED));
+		assertEquals(2, referenceModel.tagging().getValue(LabelComparison.MATCH, "e"));
+	}
+}
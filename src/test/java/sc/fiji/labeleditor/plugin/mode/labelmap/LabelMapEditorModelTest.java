@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.mode.labelmap;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LabelMapEditorModelTest {
+
+	@Test
+	public void testIdentityMapping() {
+		Img<IntType> labelMap = ArrayImgs.ints(new int[]{0, 1, 1, 2, 3, 3}, 3, 2);
+		LabelMapEditorModel model = new LabelMapEditorModel(labelMap);
+
+		assertSame(labelMap, model.getLabelMap());
+		assertTrue(model.isIdentityMapping());
+		assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), model.labeling().getMapping().getLabels());
+		RandomAccess<LabelingType<Integer>> ra = model.labeling().randomAccess();
+		ra.setPosition(new long[]{0, 1});
+		assertEquals(Collections.singleton(2), ra.get());
+
+		model.tagging().addTagToLabel("a", 3);
+		assertEquals(Integer.valueOf(3), model.tagging().getRow(3));
+		assertNull(model.tagging().getRow(4));
+		assertEquals(Collections.singleton(3), model.tagging().getLabels("a"));
+
+		// modifications are written into the label map
+		ra.get().clear();
+		ra.get().add(1);
+		model.notifyLabelingListeners();
+		assertEquals(1, get(labelMap, 0, 1).get());
+		assertTrue(model.isIdentityMapping());
+
+		ra.get().add(3);
+		model.notifyLabelingListeners();
+		assertFalse(model.isIdentityMapping());
+		assertNull(model.getLabelMap());
+	}
+
+	@Test
+	public void testNarrowLabelMap() {
+		Img<UnsignedByteType> labelMap = ArrayImgs.unsignedBytes(new byte[]{0, 1, 1, 2, 3, (byte) 255}, 3, 2);
+		LabelMapEditorModel model = new LabelMapEditorModel(labelMap);
+
+		// copied into an int image, so that new set indices do not overflow
+		assertNotSame(labelMap, model.getLabelMap());
+		assertTrue(model.isIdentityMapping());
+		assertEquals(255, get(model.getLabelMap(), 2, 1).getInteger());
+		RandomAccess<LabelingType<Integer>> ra = model.labeling().randomAccess();
+		ra.setPosition(new long[]{0, 0});
+		ra.get().add(1);
+		ra.get().add(2);
+		assertTrue(ra.get().getIndex().getInteger() > 255);
+		assertEquals(new HashSet<>(Arrays.asList(1, 2)), ra.get());
+		assertEquals(0, get(labelMap, 0, 0).get());
+	}
+
+	private static <T> T get(RandomAccessibleInterval<T> img, long x, long y) {
+		RandomAccess<T> ra = img.randomAccess();
+		ra.setPosition(new long[]{x, y});
+		return ra.get();
+	}
+}
@@ -0,0 +1,122 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.mode.timeslice;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TimeSliceLabelScopeTest {
+
+	private TimeSliceLabelEditorModel<String> model;
+	private TimeSliceLabelScope<String> scope;
+
+	@Before
+	public void setUp() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(4, 4, 3));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		for (int t = 0; t < 3; t++) {
+			ra.setPosition(new long[]{t, t, t});
+			ra.get().add("t" + t);
+		}
+		model = new TimeSliceLabelEditorModel<>(labeling, 2);
+		model.metrics().setEnabled(true);
+		scope = new TimeSliceLabelScope<>(model, 2);
+	}
+
+	@After
+	public void tearDown() {
+		scope.dispose();
+	}
+
+	@Test
+	public void testCancellation() throws ExecutionException, InterruptedException {
+		Future<Set<String>> first;
+		Future<Set<String>> second;
+		// the computation cannot complete while holding the monitor of the scope
+		synchronized (scope) {
+			first = scope.request(0);
+			assertSame(first, scope.request(0));
+			second = scope.request(1);
+			assertTrue(first.isCancelled());
+			assertFalse(second.isDone());
+		}
+		assertEquals(Collections.singleton("t1"), second.get());
+
+		Future<Set<String>> third;
+		synchronized (scope) {
+			third = scope.request(2);
+			scope.invalidate();
+			assertTrue(third.isCancelled());
+		}
+		// neither the cancelled nor the invalidated computation was cached
+		long misses = misses();
+		assertEquals(Collections.singleton("t0"), scope.request(0).get());
+		assertEquals(misses + 1, misses());
+	}
+
+	@Test
+	public void testLeastRecentlyUsed() throws ExecutionException, InterruptedException {
+		assertEquals(Collections.singleton("t0"), scope.request(0).get());
+		assertEquals(Collections.singleton("t1"), scope.request(1).get());
+		long hits = hits();
+		// touch 0, so that 1 is evicted when 2 is added
+		assertTrue(scope.request(0).isDone());
+		assertEquals(hits + 1, hits());
+		assertEquals(Collections.singleton("t2"), scope.request(2).get());
+		long misses = misses();
+		assertTrue(scope.request(0).isDone());
+		scope.request(1).get();
+		assertEquals(misses + 1, misses());
+	}
+
+	private long hits() {
+		return model.metrics().get(LabelEditorMetrics.TIME_SLICE_SCOPE_CACHE).getHits();
+	}
+
+	private long misses() {
+		return model.metrics().get(LabelEditorMetrics.TIME_SLICE_SCOPE_CACHE).getMisses();
+	}
+}
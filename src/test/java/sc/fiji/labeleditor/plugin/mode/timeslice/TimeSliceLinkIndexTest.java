@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.mode.timeslice;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimeSliceLinkIndexTest {
+
+	@Test
+	public void testLinks() {
+		// a (t=0) divides into b and c (t=1), b continues as d (t=2), e is unrelated
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(4, 4, 3));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		add(ra, "a", 0, 0, 0);
+		add(ra, "a", 1, 0, 0);
+		add(ra, "e", 3, 3, 0);
+		add(ra, "b", 0, 0, 1);
+		add(ra, "c", 1, 0, 1);
+		add(ra, "d", 0, 0, 2);
+		add(ra, "d", 0, 1, 2);
+		TimeSliceLabelEditorModel<String> model = new TimeSliceLabelEditorModel<>(labeling, 2);
+
+		assertEquals(setOf("b", "c"), model.getSuccessors("a"));
+		assertEquals(setOf("a"), model.getPredecessors("c"));
+		assertEquals(setOf(), model.getSuccessors("e"));
+		assertEquals(1, model.linkIndex().getOverlap("a", "b"));
+		assertEquals(setOf("a", "b", "c", "d"), model.getLineage("a"));
+		assertEquals(setOf("a", "b", "d"), model.getLineage("d"));
+
+		model.selectLinked("b", true, false);
+		assertTrue(model.tagging().getLabels(LabelEditorTag.SELECTED).containsAll(setOf("b", "d")));
+		assertFalse(model.tagging().getLabels(LabelEditorTag.SELECTED).contains("a"));
+
+		add(ra, "f", 3, 3, 1);
+		model.notifyLabelingListeners();
+		assertEquals(setOf("e"), model.getPredecessors("f"));
+	}
+
+	private void add(RandomAccess<LabelingType<String>> ra, String label, long... position) {
+		ra.setPosition(position);
+		ra.get().add(label);
+	}
+
+	private HashSet<String> setOf(String... labels) {
+		return new HashSet<>(Arrays.asList(labels));
+	}
+}
@@ -0,0 +1,136 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.mode.timeslice;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+import sc.fiji.labeleditor.core.model.LabelEditorMetrics;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimeSlicePresenceIndexTest {
+
+	@Test
+	public void testSetIndicesAtTime() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(4, 4, 3));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{0, 0, 0});
+		ra.get().add("a");
+		ra.setPosition(new long[]{1, 1, 1});
+		ra.get().add("b");
+		TimeSliceLabelEditorModel<String> model = new TimeSliceLabelEditorModel<>(labeling, 2);
+
+		assertEquals(setOf("a"), labelsAt(model, 0));
+		assertEquals(setOf("b"), labelsAt(model, 1));
+		assertEquals(setOf(), labelsAt(model, 2));
+
+		ra.setPosition(new long[]{2, 2, 2});
+		ra.get().add("a");
+		model.notifyLabelingListeners();
+		assertEquals(setOf("a"), labelsAt(model, 2));
+	}
+
+	@Test
+	public void testInvalidateTimePoint() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(4, 4, 3));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		TimeSliceLabelEditorModel<String> model = new TimeSliceLabelEditorModel<>(labeling, 2);
+		TimeSlicePresenceIndex index = new TimeSlicePresenceIndex(model);
+		assertTrue(index.get(1).isEmpty());
+
+		ra.setPosition(new long[]{1, 1, 1});
+		ra.get().add("b");
+		int setIndex = ra.get().getIndex().getInteger();
+		assertFalse(index.get(1).contains(setIndex));
+		index.invalidate(1);
+		assertTrue(index.get(1).contains(setIndex));
+		assertTrue(index.get(1).contains(setIndex));
+		index.invalidate(5);
+	}
+
+	@Test
+	public void testInterruptedBuild() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(4, 4, 3));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{1, 1, 1});
+		ra.get().add("b");
+		int setIndex = ra.get().getIndex().getInteger();
+		TimeSliceLabelEditorModel<String> model = new TimeSliceLabelEditorModel<>(labeling, 2);
+		TimeSlicePresenceIndex index = new TimeSlicePresenceIndex(model);
+		model.metrics().setEnabled(true);
+		Thread.currentThread().interrupt();
+		try {
+			index.build();
+		} finally {
+			Thread.interrupted();
+		}
+		// the skipped timepoint is scanned on request
+		assertTrue(index.get(1).contains(setIndex));
+		assertEquals(1, model.metrics().get(LabelEditorMetrics.TIME_SLICE_PRESENCE_INDEX).getMisses());
+	}
+
+	@Test
+	public void testCompactIntSet() {
+		BitSet sparse = new BitSet();
+		sparse.set(3);
+		sparse.set(1000);
+		BitSet dense = new BitSet();
+		dense.set(0, 100);
+		for (BitSet bits : new BitSet[]{sparse, dense}) {
+			CompactIntSet set = CompactIntSet.of(bits);
+			assertEquals(bits.cardinality(), set.cardinality());
+			assertEquals(bits, set.toBitSet());
+			bits.stream().forEach(i -> assertTrue(set.contains(i)));
+			assertFalse(set.contains(2000));
+		}
+		assertTrue(CompactIntSet.of(new BitSet()).isEmpty());
+	}
+
+	private Set<String> labelsAt(TimeSliceLabelEditorModel<String> model, long timePoint) {
+		Set<String> res = new HashSet<>();
+		model.getSetIndicesAtTime(timePoint).forEach(index -> res.addAll(model.labeling().getMapping().labelsAtIndex(index)));
+		return res;
+	}
+
+	private Set<String> setOf(String... labels) {
+		Set<String> res = new HashSet<>();
+		for (String label : labels) res.add(label);
+		return res;
+	}
+}
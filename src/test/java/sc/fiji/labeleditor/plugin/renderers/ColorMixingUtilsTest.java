@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.type.numeric.ARGBType;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ColorMixingUtilsTest {
+
+	@Test
+	public void testOverlayMatchesFloatCompositing() {
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			int[] colors = randomColors(random);
+			assertClose(mixOverlayFloat(colors), ColorMixingUtils.mixColorsOverlay(colors));
+		}
+	}
+
+	@Test
+	public void testAdditiveMatchesFloatCompositing() {
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			int[] colors = randomColors(random);
+			assertClose(mixAdditiveFloat(colors), ColorMixingUtils.mixColorsAdditive(colors));
+		}
+	}
+
+	@Test
+	public void testOpaqueColorHidesColorsBehind() {
+		int red = ARGBType.rgba(255, 0, 0, 255);
+		int green = ARGBType.rgba(0, 255, 0, 100);
+		assertEquals(red, ColorMixingUtils.mixColorsOverlay(new int[]{red, green}));
+		assertEquals(0, ColorMixingUtils.mixColorsOverlay(new int[]{0, 0}));
+	}
+
+	private int[] randomColors(Random random) {
+		int[] colors = new int[1 + random.nextInt(5)];
+		for (int j = 0; j < colors.length; j++) {
+			colors[j] = ARGBType.rgba(random.nextInt(256), random.nextInt(256), random.nextInt(256), random.nextInt(256));
+		}
+		return colors;
+	}
+
+	private void assertClose(int expected, int actual) {
+		assertTrue(Math.abs(ARGBType.red(expected) - ARGBType.red(actual)) <= 1);
+		assertTrue(Math.abs(ARGBType.green(expected) - ARGBType.green(actual)) <= 1);
+		assertTrue(Math.abs(ARGBType.blue(expected) - ARGBType.blue(actual)) <= 1);
+		assertTrue(Math.abs(ARGBType.alpha(expected) - ARGBType.alpha(actual)) <= 1);
+	}
+
+	// float reference implementations the fixed point versions replace
+
+	private static int mixOverlayFloat(int[] colors) {
+		float red = 0, green = 0, blue = 0, alpha = 0;
+		for (int color : colors) {
+			if(color == 0) continue;
+			float newalpha = ((float)ARGBType.alpha(color))/255.f;
+			if(alpha < 0.0001 && newalpha < 0.0001) continue;
+			red = (red*alpha+ARGBType.red(color)*newalpha*(1-alpha))/(alpha + newalpha*(1-alpha));
+			green = (green*alpha+ARGBType.green(color)*newalpha*(1-alpha))/(alpha + newalpha*(1-alpha));
+			blue = (blue*alpha+ARGBType.blue(color)*newalpha*(1-alpha))/(alpha + newalpha*(1-alpha));
+			alpha = alpha + newalpha*(1-alpha);
+		}
+		return ARGBType.rgba((int)red, (int)green, (int)blue, (int)(alpha*255));
+	}
+
+	private static int mixAdditiveFloat(int[] colors) {
+		float red = 0, green = 0, blue = 0, alpha = 0;
+		for (int color : colors) {
+			if(color == 0) continue;
+			float newalpha = ((float)ARGBType.alpha(color))/255.f;
+			if(alpha < 0.0001 && newalpha < 0.0001) continue;
+			red = Math.min(255, red + ARGBType.red(color)*newalpha);
+			green = Math.min(255, green + ARGBType.green(color)*newalpha);
+			blue = Math.min(255, blue + ARGBType.blue(color)*newalpha);
+			alpha = alpha + newalpha*(1-alpha);
+		}
+		return ARGBType.rgba((int)red, (int)green, (int)blue, (int)(alpha*255));
+	}
+}
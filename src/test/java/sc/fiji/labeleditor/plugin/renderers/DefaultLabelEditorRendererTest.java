@@ -49,7 +49,10 @@ import org.junit.Ignore;
 import org.junit.Test;
 import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
 import sc.fiji.labeleditor.core.model.LabelEditorModel;
+import sc.fiji.labeleditor.core.model.colors.CompiledTagColors;
+import sc.fiji.labeleditor.core.model.colors.DefaultLabelEditorColor;
 import sc.fiji.labeleditor.core.model.colors.DefaultLabelEditorTagColors;
+import sc.fiji.labeleditor.core.model.colors.LabelEditorColorset;
 import sc.fiji.labeleditor.core.model.colors.LabelEditorTagColors;
 import sc.fiji.labeleditor.core.model.tagging.DefaultLabelEditorTagging;
 import sc.fiji.labeleditor.core.view.DefaultLabelEditorView;
@@ -62,6 +65,8 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 public class DefaultLabelEditorRendererTest<T extends RealType<T> & NativeType<T>> {
 
@@ -233,6 +238,50 @@ public class DefaultLabelEditorRendererTest<T extends RealType<T> & NativeType<T
 		//TODO test second color and mixed color
 	}
 
+	@Test
+	public void testCompiledTagColors() {
+		LabelEditorTagColors tagColors = new DefaultLabelEditorTagColors();
+		tagColors.getFaceColor("tag1").set(255, 0, 0, 100);
+		tagColors.getBorderColor("tag2").set(0, 255, 0, 100);
+		CompiledTagColors compiled = tagColors.compile();
+		assertSame(compiled, tagColors.compile());
+		int face = compiled.getComponentId(LabelEditorTargetComponent.FACE);
+		assertEquals(ARGBType.rgba(255, 0, 0, 100), compiled.get(compiled.getTagId("tag1"), face, null));
+		assertEquals(0, compiled.get(compiled.getTagId("tag2"), face, null));
+		assertEquals(-1, compiled.getTagId("tag3"));
+		assertEquals(0, compiled.get(compiled.getTagId("tag3"), face, null));
+		assertEquals(-1, compiled.getComponentId(LabelEditorTargetComponent.TITLE));
+
+		tagColors.getFaceColor("tag1").set(0, 0, 255, 100);
+		assertNotSame(compiled, tagColors.compile());
+		compiled = tagColors.compile();
+		assertEquals(ARGBType.rgba(0, 0, 255, 100), compiled.get(compiled.getTagId("tag1"), face, null));
+	}
+
+	@Test
+	public void testCompileDuringChange() {
+		LabelEditorTagColors tagColors = new DefaultLabelEditorTagColors();
+		LabelEditorColorset colorset = tagColors.getColorset("tag1");
+		// the color changes while it is compiled, the snapshot must not be kept
+		colorset.put(LabelEditorTargetComponent.FACE, new DefaultLabelEditorColor(colorset, ARGBType.rgba(255, 0, 0, 100)) {
+			boolean changed = false;
+			@Override
+			public int get() {
+				int color = super.get();
+				if(!changed) {
+					changed = true;
+					set(0, 0, 255, 100);
+				}
+				return color;
+			}
+		});
+		CompiledTagColors compiled = tagColors.compile();
+		int face = compiled.getComponentId(LabelEditorTargetComponent.FACE);
+		assertEquals(ARGBType.rgba(255, 0, 0, 100), compiled.get(compiled.getTagId("tag1"), face, null));
+		compiled = tagColors.compile();
+		assertEquals(ARGBType.rgba(0, 0, 255, 100), compiled.get(compiled.getTagId("tag1"), face, null));
+	}
+
 	@Test
 	public void testMixTransparentColors() {
 		LabelEditorTagColors tagColors = new DefaultLabelEditorTagColors();
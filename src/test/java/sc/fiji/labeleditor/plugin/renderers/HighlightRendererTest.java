@@ -0,0 +1,124 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.model.LabelingChangedEvent;
+import sc.fiji.labeleditor.core.model.tagging.LabelEditorTag;
+import sc.fiji.labeleditor.core.view.DefaultLabelEditorView;
+
+import java.util.BitSet;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class HighlightRendererTest {
+
+	@Test
+	public void testHighlight() {
+		DefaultLabelEditorModel<String> model = createModel();
+		DefaultLabelEditorModel<String> reference = createModel();
+		DefaultLabelEditorView<String> view = new DefaultLabelEditorView<>(model);
+		DefaultLabelEditorRenderer<String> renderer = new DefaultLabelEditorRenderer<>();
+		view.add(renderer);
+		int[] lut = renderer.getLUT().clone();
+
+		view.setHighlighted(Collections.singleton("b"));
+
+		// hovering has to look like the MOUSE_OVER tag did, including drawing the hovered label on top
+		reference.tagging().addTagToLabel(LabelEditorTag.MOUSE_OVER, "b");
+		DefaultLabelEditorRenderer<String> expected = new DefaultLabelEditorRenderer<>();
+		new DefaultLabelEditorView<>(reference).add(expected);
+		int a = index(model, 0), b = index(model, 1), ab = index(model, 2);
+		assertEquals(lut[a], renderer.getColor(a));
+		assertNotEquals(lut[b], renderer.getColor(b));
+		assertNotEquals(lut[ab], renderer.getColor(ab));
+		assertEquals(expected.getLUT()[b], renderer.getColor(b));
+		assertEquals(expected.getLUT()[ab], renderer.getColor(ab));
+		assertEquals(lut[b], renderer.getLUT()[b]);
+
+		view.setHighlighted(Collections.emptySet());
+		assertEquals(lut[b], renderer.getColor(b));
+		assertEquals(lut[ab], renderer.getColor(ab));
+	}
+
+	@Test
+	public void testHighlightNewSets() {
+		DefaultLabelEditorModel<String> model = createModel();
+		DefaultLabelEditorView<String> view = new DefaultLabelEditorView<>(model);
+		DefaultLabelEditorRenderer<String> renderer = new DefaultLabelEditorRenderer<>();
+		view.add(renderer);
+		view.setHighlighted(Collections.singleton("b"));
+
+		// a targeted edit creating a new set containing the highlighted label
+		RandomAccess<LabelingType<String>> ra = model.labeling().randomAccess();
+		ra.setPosition(new long[]{3, 0});
+		ra.get().add("b");
+		ra.get().add("c");
+		int bc = ra.get().getIndex().getInteger();
+		BitSet written = new BitSet();
+		written.set(bc);
+		model.notifyLabelingListeners(new LabelingChangedEvent<>(null, written, Collections.singleton("c"), Collections.emptySet()));
+
+		assertNotEquals(renderer.getLUT()[bc], renderer.getColor(bc));
+	}
+
+	private static DefaultLabelEditorModel<String> createModel() {
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(4, 1));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		ra.setPosition(new long[]{0, 0});
+		ra.get().add("a");
+		ra.setPosition(new long[]{1, 0});
+		ra.get().add("b");
+		ra.setPosition(new long[]{2, 0});
+		ra.get().add("a");
+		ra.get().add("b");
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		model.colors().getFaceColor("ta").set(ARGBType.rgba(255, 0, 0, 100));
+		model.colors().getFaceColor("tb").set(ARGBType.rgba(0, 0, 255, 100));
+		model.colors().getFocusFaceColor().set(ARGBType.rgba(0, 255, 0, 100));
+		model.tagging().addTagToLabel("ta", "a");
+		model.tagging().addTagToLabel("tb", "b");
+		return model;
+	}
+
+	private static int index(DefaultLabelEditorModel<String> model, long x) {
+		RandomAccess<LabelingType<String>> ra = model.labeling().randomAccess();
+		ra.setPosition(new long[]{x, 0});
+		return ra.get().getIndex().getInteger();
+	}
+}
@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.view.DefaultLabelEditorView;
+import sc.fiji.labeleditor.plugin.mode.labelmap.LabelMapEditorModel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LabelMapRendererTest {
+
+	private final Img<IntType> labelMap = ArrayImgs.ints(new int[]{0, 1, 1, 2, 3, 3}, 3, 2);
+
+	@Test
+	public void testUntaggedLabels() {
+		LabelMapEditorModel model = new LabelMapEditorModel(labelMap);
+		DefaultLabelEditorRenderer<Integer> renderer = render(model);
+		DefaultLabelEditorRenderer<IntType> expected = render(DefaultLabelEditorModel.initFromLabelMap(labelMap));
+
+		assertTrue(model.isIdentityMapping());
+		int[] lut = renderer.getLUT();
+		assertEquals(4, lut.length);
+		assertEquals(0, lut[0]);
+		assertNotEquals(0, lut[1]);
+		assertEquals(lut[1], lut[2]);
+		assertEquals(lut[1], lut[3]);
+		assertArrayEquals(expected.getLUT(), lut);
+	}
+
+	@Test
+	public void testTaggedLabels() {
+		LabelMapEditorModel model = new LabelMapEditorModel(labelMap);
+		DefaultLabelEditorModel<IntType> generic = DefaultLabelEditorModel.initFromLabelMap(labelMap);
+		int red = ARGBType.rgba(255, 0, 0, 255);
+		model.colors().getFaceColor("a").set(red);
+		generic.colors().getFaceColor("a").set(red);
+		DefaultLabelEditorRenderer<Integer> renderer = render(model);
+		DefaultLabelEditorRenderer<IntType> expected = render(generic);
+		model.tagging().addTagToLabel("a", 2);
+		generic.tagging().addTagToLabel("a", new IntType(2));
+		renderer.lut[0] = red;
+		renderer.updateOnTagChange(model);
+		expected.updateOnTagChange(generic);
+
+		int[] lut = renderer.getLUT();
+		assertEquals(0, lut[0]);
+		assertNotEquals(lut[1], lut[2]);
+		assertEquals(lut[1], lut[3]);
+		assertArrayEquals(expected.getLUT(), lut);
+	}
+
+	private static <L> DefaultLabelEditorRenderer<L> render(DefaultLabelEditorModel<L> model) {
+		DefaultLabelEditorView<L> view = new DefaultLabelEditorView<>(model);
+		DefaultLabelEditorRenderer<L> renderer = new DefaultLabelEditorRenderer<>();
+		view.add(renderer);
+		return renderer;
+	}
+}
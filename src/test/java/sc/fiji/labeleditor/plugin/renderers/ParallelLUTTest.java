@@ -0,0 +1,88 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.renderers;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.roi.labeling.ImgLabeling;
+import net.imglib2.roi.labeling.LabelingMapping;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.integer.IntType;
+import org.junit.Test;
+import sc.fiji.labeleditor.core.model.DefaultLabelEditorModel;
+import sc.fiji.labeleditor.core.view.LabelEditorTargetComponent;
+import sc.fiji.labeleditor.core.view.DefaultLabelEditorView;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelLUTTest {
+
+	@Test
+	public void testParallelMatchesSequential() {
+		int numPixels = 25000;
+		ImgLabeling<String, IntType> labeling = new ImgLabeling<>(ArrayImgs.ints(numPixels, 1));
+		RandomAccess<LabelingType<String>> ra = labeling.randomAccess();
+		for (int i = 0; i < numPixels; i++) {
+			ra.setPosition(new long[]{i, 0});
+			ra.get().add("label" + i);
+			// sets with several labels need sorting, which uses the scratch buffers of the threads
+			if(i % 3 == 0) ra.get().add("shared" + (i % 7));
+		}
+		DefaultLabelEditorModel<String> model = new DefaultLabelEditorModel<>(labeling);
+		String[] tags = {"red", "green", "blue"};
+		int[] colors = {ARGBType.rgba(255, 0, 0, 100), ARGBType.rgba(0, 255, 0, 150), ARGBType.rgba(0, 0, 255, 200)};
+		for (int i = 0; i < tags.length; i++) {
+			model.colors().getFaceColor(tags[i]).set(colors[i]);
+		}
+		model.tagging().pauseListeners();
+		for (int i = 0; i < numPixels; i += 2) {
+			model.tagging().addTagToLabel(tags[i % tags.length], "label" + i);
+			if(i % 5 == 0) model.tagging().addTagToLabel(tags[(i + 1) % tags.length], "label" + i);
+		}
+		for (int i = 0; i < 7; i++) {
+			model.tagging().addTagToLabel(tags[i % tags.length], "shared" + i);
+		}
+		model.tagging().resumeListeners();
+
+		DefaultLabelEditorRenderer<String> renderer = new DefaultLabelEditorRenderer<>();
+		new DefaultLabelEditorView<>(model).add(renderer);
+		int[] lut = renderer.getLUT();
+
+		LabelingMapping<String> mapping = labeling.getMapping();
+		assertTrue(mapping.numSets() > 10000);
+		int[] expected = new int[mapping.numSets()];
+		for (int i = 0; i < expected.length; i++) {
+			if(mapping.labelsAtIndex(i).isEmpty()) continue;
+			expected[i] = renderer.getMixColor(model.colors(), LabelEditorTargetComponent.FACE, mapping.labelsAtIndex(i));
+		}
+		assertArrayEquals(expected, lut);
+	}
+}
@@ -0,0 +1,64 @@
+/*-
+ * #%L
+ * UI component for image segmentation label comparison and selection
+ * %%
+ * Copyright (C) 2019 - 2020 DAIS developers
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package sc.fiji.labeleditor.plugin.table;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IndexSortTest {
+
+	@Test
+	public void testSortByKeys() {
+		double[] keys = {3, Double.NaN, 1, 2, 1};
+		int[] indices = {0, 1, 2, 3, 4};
+		IndexSort.sort(indices, keys, true);
+		assertArrayEquals(new int[]{2, 4, 3, 0, 1}, indices);
+		indices = new int[]{0, 1, 2, 3, 4};
+		IndexSort.sort(indices, keys, false);
+		assertArrayEquals(new int[]{0, 3, 2, 4, 1}, indices);
+	}
+
+	@Test
+	public void testSortRandom() {
+		Random random = new Random(42);
+		double[] keys = random.doubles(1001).map(d -> Math.floor(d * 50)).toArray();
+		int[] indices = IntStream.range(0, keys.length).toArray();
+		IndexSort.sort(indices, keys, true);
+		for (int i = 1; i < indices.length; i++) {
+			assertTrue(keys[indices[i - 1]] <= keys[indices[i]]);
+			// stable
+			if(keys[indices[i - 1]] == keys[indices[i]]) assertTrue(indices[i - 1] < indices[i]);
+		}
+	}
+}